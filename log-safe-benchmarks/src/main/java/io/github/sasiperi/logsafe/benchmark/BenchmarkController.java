@@ -0,0 +1,36 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.benchmark;
+
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.github.sasiperi.logsafe.benchmark.dto.EmployeeBatch;
+
+/**
+ * End-point the filter benchmarks (and request body benchmarks, as the handler method) go through.
+ *
+ * @author sasiperi
+ */
+@RestController
+public class BenchmarkController {
+
+    @PostMapping("/employees/batch")
+    public EmployeeBatch createBatch(@RequestBody EmployeeBatch batch) {
+        return batch;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.benchmark;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.sasiperi.logsafe.benchmark.dto.Address;
+import io.github.sasiperi.logsafe.benchmark.dto.Employee;
+import io.github.sasiperi.logsafe.logger.Redact;
+import io.github.sasiperi.logsafe.logger.RedactionPlan;
+import io.github.sasiperi.logsafe.logger.Redactor;
+
+/**
+ * Compares the ways of reading DTO fields during redaction traversal.
+ * - reflectiveLookupAndFieldGet: what processDTO did per request, before redaction plans (getDeclaredFields, setAccessible, annotation lookup, Field.get).
+ * - cachedFieldGet: fields resolved once, values read through {@link Field#get(Object)}.
+ * - planMethodHandle: {@link RedactionPlan}, values read through the pre-built MethodHandle getters.
+ * - generatedRedactor: {@link Redactor} generated by log-safe-redaction-processor, values read with plain getter calls.
+ * Run with -prof gc to compare gc.alloc.rate.norm as well.
+ *
+ * @author sasiperi
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FieldAccessBenchmark {
+
+    private Employee employee;
+    private Field[] fields;
+    private List<RedactionPlan.RedactableField> planFields;
+    private Redactor<Object> generatedRedactor;
+
+    @Setup
+    public void setup() {
+        employee = new Employee(5, "John", "Doe", "123-45-6789", new Address("NY", "New York", "555-1234"));
+
+        fields = Employee.class.getDeclaredFields();
+        for (Field field : fields) {
+            field.setAccessible(true);
+        }
+        planFields = RedactionPlan.of(Employee.class).getFields();
+        generatedRedactor = generatedRedactor(Employee.class);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static Redactor<Object> generatedRedactor(Class<?> type) {
+        for (Redactor redactor : ServiceLoader.load(Redactor.class)) {
+            if (redactor.getType() == type) {
+                return redactor;
+            }
+        }
+        throw new IllegalStateException("No generated redactor for " + type.getName() + ", is log-safe-redaction-processor in annotationProcessorPaths?");
+    }
+
+    @Benchmark
+    public void reflectiveLookupAndFieldGet(Blackhole bh) throws IllegalAccessException {
+        for (Field field : employee.getClass().getDeclaredFields()) {
+            if (Modifier.isFinal(field.getModifiers())) {
+                continue;
+            }
+            field.setAccessible(true);
+            bh.consume(field.isAnnotationPresent(Redact.class));
+            bh.consume(field.get(employee));
+        }
+    }
+
+    @Benchmark
+    public void cachedFieldGet(Blackhole bh) throws IllegalAccessException {
+        for (Field field : fields) {
+            bh.consume(field.get(employee));
+        }
+    }
+
+    @Benchmark
+    public void planMethodHandle(Blackhole bh) throws IllegalAccessException {
+        for (RedactionPlan.RedactableField field : planFields) {
+            bh.consume(field.isRedact());
+            bh.consume(field.read(employee));
+        }
+    }
+
+    @Benchmark
+    public void generatedRedactor(Blackhole bh) {
+        generatedRedactor.redact(employee, (name, value, redact) -> {
+            bh.consume(redact);
+            bh.consume(value);
+        });
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.github.sasiperi.logsafe.benchmark.dto.Address;
+import io.github.sasiperi.logsafe.benchmark.dto.Employee;
+import io.github.sasiperi.logsafe.logger.HttpLogMessage;
+import io.github.sasiperi.logsafe.logger.LogSafeJsonMapper;
+
+/**
+ * Compares writing the log line and reading the body, with a mapper per call vs the shared readers/writers.
+ * - newMapperToString: what {@link HttpLogMessage#toString()} did before, a new ObjectMapper per log line.
+ * - sharedWriterToString: the shared {@link LogSafeJsonMapper#getLogMessageWriter()}, as used by LogEventWriter.
+ * - newMapperReadBody / sharedReaderReadBody: deserializing the body to the DTO, new mapper vs {@link LogSafeJsonMapper#readerFor}.
+ * Run with -prof gc to compare gc.alloc.rate.norm as well.
+ *
+ * @author sasiperi
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogMessageSerializationBenchmark {
+
+    private HttpLogMessage message;
+    private ObjectWriter messageWriter;
+    private String body;
+    private ObjectReader reader;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+
+        LogSafeJsonMapper jsonMapper = new LogSafeJsonMapper(new ObjectMapper());
+        ObjectWriter writer = jsonMapper.getWriter();
+        messageWriter = jsonMapper.getLogMessageWriter();
+
+        Employee employee = new Employee(5, "John", "Doe", "123-45-6789", new Address("NY", "New York", "555-1234"));
+        body = writer.writeValueAsString(employee);
+        reader = jsonMapper.readerFor(Employee.class);
+
+        message = HttpLogMessage.builder()
+                .httpMethod("POST")
+                .uri("/employees")
+                .remoteHost("127.0.0.1")
+                .headers(Map.of("content-type", "application/json", "authorization", "[REDACTED]", "x-request-id", "5f2b9c"))
+                .requestParams(Map.of("dryRun", "false"))
+                .body(body)
+                .build();
+    }
+
+    @Benchmark
+    public String newMapperToString() throws JsonProcessingException {
+        return new ObjectMapper().writeValueAsString(message);
+    }
+
+    @Benchmark
+    public String sharedWriterToString() throws JsonProcessingException {
+        return messageWriter.writeValueAsString(message);
+    }
+
+    @Benchmark
+    public Employee newMapperReadBody() throws JsonProcessingException {
+        return new ObjectMapper().readValue(body, Employee.class);
+    }
+
+    @Benchmark
+    public Employee sharedReaderReadBody() throws JsonProcessingException {
+        return reader.readValue(body);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.sasiperi.logsafe.logger.HttpLogMessage;
+import io.github.sasiperi.logsafe.logger.LogMessageRedactor;
+import io.github.sasiperi.logsafe.logger.RedactionException;
+import io.github.sasiperi.logsafe.logger.RedactionMode;
+
+/**
+ * {@link LogMessageRedactor#redactLogMessage} cost.
+ * - redactBody: body only, on shallow (flat), deep (nested lists of DTOs) and wide (40 fields) DTOs.
+ * - redactBodySerializer: same, with {@link RedactionMode#SERIALIZER}, redacted while serialized, no intermediate maps.
+ * - redactHeaders: headers only, that's the sensitive key lookup, with the given number of headers.
+ * Run with -prof gc to compare gc.alloc.rate.norm as well.
+ *
+ * @author sasiperi
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedactorBenchmark {
+
+    @Param({"SHALLOW", "DEEP", "WIDE"})
+    private String shape;
+
+    private LogMessageRedactor redactor;
+    private LogMessageRedactor serializerRedactor;
+    private Object body;
+
+    // Separate state, so that header counts are not crossed with the body shapes.
+    @State(Scope.Benchmark)
+    public static class Headers {
+
+        @Param({"10", "50"})
+        private int headerCount;
+
+        private Map<String, String> headers;
+
+        @Setup
+        public void setup() {
+            headers = BenchmarkFixtures.headers(headerCount);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        redactor = BenchmarkFixtures.redactor(BenchmarkFixtures.jsonMapper());
+        serializerRedactor = BenchmarkFixtures.redactor(BenchmarkFixtures.jsonMapper(), RedactionMode.SERIALIZER);
+        body = switch (shape) {
+            case "DEEP" -> BenchmarkFixtures.deep();
+            case "WIDE" -> BenchmarkFixtures.wide();
+            default -> BenchmarkFixtures.shallow();
+        };
+    }
+
+    // Message is built per call, as the redactor replaces the body/headers of the message.
+    @Benchmark
+    public HttpLogMessage redactBody() throws RedactionException {
+        return redactor.redactLogMessage(HttpLogMessage.builder().body(body).build());
+    }
+
+    @Benchmark
+    public HttpLogMessage redactBodySerializer() throws RedactionException {
+        return serializerRedactor.redactLogMessage(HttpLogMessage.builder().body(body).build());
+    }
+
+    @Benchmark
+    public HttpLogMessage redactHeaders(Headers headers) throws RedactionException {
+        return redactor.redactLogMessage(HttpLogMessage.builder().headers(new HashMap<>(headers.headers)).build());
+    }
+}
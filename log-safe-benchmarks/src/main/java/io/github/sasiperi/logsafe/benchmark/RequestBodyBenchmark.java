@@ -0,0 +1,105 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.method.HandlerMethod;
+
+import io.github.sasiperi.logsafe.benchmark.dto.EmployeeBatch;
+import io.github.sasiperi.logsafe.config.BodyBufferPoolConfig;
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import io.github.sasiperi.logsafe.logger.RedactionMode;
+import io.github.sasiperi.logsafe.logger.in.HttpLogFilterHelper;
+import io.github.sasiperi.logsafe.logger.in.RepeatableContentCachingRequestWrapper;
+
+/**
+ * Caching and reading the request body, by body size.
+ * - getRequestBody: cache the body and deserialize it to the @RequestBody type (OBJECT mode).
+ * - getRedactedRequestBody: cache the body and redact it in a single streaming pass (STREAMING mode).
+ * Run with -prof gc to compare gc.alloc.rate.norm as well.
+ *
+ * @author sasiperi
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestBodyBenchmark {
+
+    private static final int MAX_BODY_BYTES = 1_048_576;
+
+    @Param({"1024", "65536", "524288"})
+    private int bodyBytes;
+
+    private byte[] body;
+    private HandlerMethod handlerMethod;
+    private BodyBufferPool bufferPool;
+    private HttpLogFilterHelper objectHelper;
+    private HttpLogFilterHelper streamingHelper;
+
+    @Setup
+    public void setup() throws Exception {
+        body = BenchmarkFixtures.employeeBatchJson(bodyBytes);
+        handlerMethod = new HandlerMethod(new BenchmarkController(), BenchmarkController.class.getMethod("createBatch", EmployeeBatch.class));
+        bufferPool = new BodyBufferPool(new BodyBufferPoolConfig(), MAX_BODY_BYTES);
+        objectHelper = BenchmarkFixtures.helper(RedactionMode.OBJECT);
+        streamingHelper = BenchmarkFixtures.helper(RedactionMode.STREAMING);
+    }
+
+    @Benchmark
+    public Object getRequestBody() throws IOException {
+        RepeatableContentCachingRequestWrapper request = wrap();
+        try {
+            return objectHelper.getRequestBody(request, handlerMethod);
+        } finally {
+            request.release();
+        }
+    }
+
+    @Benchmark
+    public String getRedactedRequestBody() throws IOException {
+        RepeatableContentCachingRequestWrapper request = wrap();
+        try {
+            return streamingHelper.getRedactedRequestBody(request, handlerMethod);
+        } finally {
+            request.release();
+        }
+    }
+
+    private RepeatableContentCachingRequestWrapper wrap() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/employees/batch");
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(body);
+        return new RepeatableContentCachingRequestWrapper(request, MAX_BODY_BYTES, bufferPool);
+    }
+}
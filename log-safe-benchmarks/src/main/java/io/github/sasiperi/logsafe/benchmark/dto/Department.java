@@ -0,0 +1,39 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.benchmark.dto;
+
+import java.util.List;
+
+import io.github.sasiperi.logsafe.logger.Redact;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Deep DTO, department, its teams, their lead/members and their addresses.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Department {
+    private String name;
+
+    @Redact
+    private String costCenter;
+
+    private Employee head;
+    private List<Team> teams;
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.benchmark.dto;
+
+import io.github.sasiperi.logsafe.logger.Redact;
+import lombok.Data;
+
+/**
+ * Wide DTO, 40 flat fields, every 5th one is redacted.
+ */
+@Data
+public class WideRecord {
+    private String field01;
+
+    private String field02;
+
+    private String field03;
+
+    private String field04;
+
+    @Redact
+    private String field05;
+
+    private String field06;
+
+    private String field07;
+
+    private String field08;
+
+    private String field09;
+
+    @Redact
+    private String field10;
+
+    private String field11;
+
+    private String field12;
+
+    private String field13;
+
+    private String field14;
+
+    @Redact
+    private String field15;
+
+    private String field16;
+
+    private String field17;
+
+    private String field18;
+
+    private String field19;
+
+    @Redact
+    private String field20;
+
+    private String field21;
+
+    private String field22;
+
+    private String field23;
+
+    private String field24;
+
+    @Redact
+    private String field25;
+
+    private String field26;
+
+    private String field27;
+
+    private String field28;
+
+    private String field29;
+
+    @Redact
+    private String field30;
+
+    private String field31;
+
+    private String field32;
+
+    private String field33;
+
+    private String field34;
+
+    @Redact
+    private String field35;
+
+    private String field36;
+
+    private String field37;
+
+    private String field38;
+
+    private String field39;
+
+    @Redact
+    private String field40;
+}
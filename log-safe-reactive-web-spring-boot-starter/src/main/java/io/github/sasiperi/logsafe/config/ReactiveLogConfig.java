@@ -0,0 +1,41 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.config;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import io.github.sasiperi.logsafe.logger.reactive.ReactiveHttpLogFilterHelper;
+import lombok.Data;
+
+/**
+ * Configuration of the log scheduler of the reactive (WebFlux) filter, see {@link ReactiveHttpLogFilterHelper}.
+ * Redaction and writing the log is done on this bounded scheduler, never on the event loop.
+ * When the scheduler can not keep up (all threads busy and the queue is full), log events are dropped.
+ *
+ * @author sasiperi
+ */
+@Configuration
+@ConfigurationProperties(prefix = "logsafe.logger.reactive")
+@Data
+@AutoConfiguration
+public class ReactiveLogConfig {
+
+    private int schedulerThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int queueCapacity = 1024;
+
+}
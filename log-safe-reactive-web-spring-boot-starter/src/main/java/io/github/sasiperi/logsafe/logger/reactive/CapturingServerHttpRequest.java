@@ -0,0 +1,52 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.reactive;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Tees the request body into a {@link DataBufferCapture}, as the handler reads it. Buffers are passed on as is, the body is not
+ * aggregated (or delayed), so the handler keeps streaming the body.
+ * @author sasiperi
+ */
+public class CapturingServerHttpRequest extends ServerHttpRequestDecorator {
+
+    private final DataBufferCapture capture;
+    private final Runnable onBodyDone;
+
+    /**
+     * @param delegate request to decorate
+     * @param capture capture of the body
+     * @param onBodyDone called once the body is read (or errored, cancelled), e.g. to log the request
+     */
+    public CapturingServerHttpRequest(ServerHttpRequest delegate, DataBufferCapture capture, Runnable onBodyDone) {
+        super(delegate);
+        this.capture = capture;
+        this.onBodyDone = onBodyDone;
+    }
+
+    @Override
+    public Flux<DataBuffer> getBody() {
+        return super.getBody()
+                .doOnNext(capture::write)
+                .doOnComplete(capture::complete)
+                .doFinally(signal -> onBodyDone.run());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.reactive;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Tees the response body into a {@link DataBufferCapture}, as it's written. Buffers are written through to the client as is,
+ * so the time to first byte and streaming responses are not affected. Single value bodies (e.g. of Mono) are kept as Mono,
+ * so the server still writes (and flushes) them at once.
+ * @author sasiperi
+ */
+public class CapturingServerHttpResponse extends ServerHttpResponseDecorator {
+
+    private final DataBufferCapture capture;
+
+    public CapturingServerHttpResponse(ServerHttpResponse delegate, DataBufferCapture capture) {
+        super(delegate);
+        this.capture = capture;
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        if (body instanceof Mono<? extends DataBuffer> mono) {
+            return super.writeWith(mono.doOnNext(capture::write).doOnSuccess(buffer -> capture.complete()));
+        }
+        return super.writeWith(Flux.from(body).doOnNext(capture::write).doOnComplete(capture::complete));
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        return super.writeAndFlushWith(Flux.from(body)
+                .map(chunk -> Flux.from(chunk).doOnNext(capture::write))
+                .doOnComplete(capture::complete));
+    }
+}
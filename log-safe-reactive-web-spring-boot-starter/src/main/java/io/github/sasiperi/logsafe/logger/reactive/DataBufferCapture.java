@@ -0,0 +1,137 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.reactive;
+
+import java.nio.ByteBuffer;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+
+/**
+ * Copy of the first max-body-bytes of a request or response body, taken from the {@link DataBuffer}s as they pass through,
+ * without holding on to (or aggregating) the buffers themselves. The copy is kept in a buffer leased from {@link BodyBufferPool}.
+ * @implNote Buffers are written by the exchange (event loop) and read by the log scheduler, once {@link #close()}d.
+ * Nothing is written after close, so reading the content needs no lock. {@link #release()} when logged.
+ * @author sasiperi
+ */
+public class DataBufferCapture {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int maxBodyBytes;
+    private final BodyBufferPool bufferPool;
+
+    private byte[] content = EMPTY;
+    private int contentLength;
+    private boolean truncated;
+    private boolean complete;
+    private boolean closed;
+
+    /**
+     * @param bufferPool pool to lease the capture buffer from
+     * @param maxBodyBytes max number of bytes to capture
+     * @param expectedLength content length if known (e.g. Content-Length header), otherwise -1
+     */
+    public DataBufferCapture(BodyBufferPool bufferPool, int maxBodyBytes, long expectedLength) {
+        this.bufferPool = bufferPool;
+        this.maxBodyBytes = Math.max(0, maxBodyBytes);
+        if (expectedLength > 0) {
+            ensureCapacity((int) Math.min(expectedLength, this.maxBodyBytes));
+        }
+    }
+
+    /**
+     * Copies the readable bytes of the buffer (up to max-body-bytes in total), read position of the buffer is not changed.
+     * @param dataBuffer buffer passing through
+     */
+    public synchronized void write(DataBuffer dataBuffer) {
+        if (closed) {
+            return;
+        }
+        int readable = dataBuffer.readableByteCount();
+        int count = Math.min(readable, maxBodyBytes - contentLength);
+        if (count < readable) {
+            truncated = true;
+        }
+        if (count <= 0) {
+            return;
+        }
+        ensureCapacity(contentLength + count);
+        dataBuffer.toByteBuffer(dataBuffer.readPosition(), ByteBuffer.wrap(content), contentLength, count);
+        contentLength += count;
+    }
+
+    /**
+     * Marks the body as fully passed through, a body that's not complete (e.g. cancelled) is not logged.
+     */
+    public synchronized void complete() {
+        complete = true;
+    }
+
+    /**
+     * Stops capturing, any buffer passing through after this (e.g. of a cancelled exchange) is not captured.
+     */
+    public synchronized void close() {
+        closed = true;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= content.length) {
+            return;
+        }
+        long grownSize = Math.max((long) Math.max(content.length, DEFAULT_BUFFER_SIZE) * 2, capacity);
+        byte[] grown = bufferPool.lease((int) Math.min(grownSize, maxBodyBytes));
+        System.arraycopy(content, 0, grown, 0, contentLength);
+        bufferPool.release(content, contentLength);
+        content = grown;
+    }
+
+    /**
+     * @return capture buffer itself (no copy), valid up to {@link #getContentLength()} and until {@link #release()}.
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    public int getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return true if the body is larger than max-body-bytes, that's only the first part of the body is captured.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Returns the capture buffer to the pool, once the body is logged.
+     */
+    public synchronized void release() {
+        closed = true;
+        byte[] buffer = content;
+        int length = contentLength;
+        content = EMPTY;
+        contentLength = 0;
+        bufferPool.release(buffer, length);
+    }
+}
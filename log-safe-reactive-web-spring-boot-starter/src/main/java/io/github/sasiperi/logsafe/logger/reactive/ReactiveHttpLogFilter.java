@@ -0,0 +1,229 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.reactive;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.RequestMappingInfo;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import io.github.sasiperi.logsafe.logger.LogFilterRules;
+import io.github.sasiperi.logsafe.logger.LogSampler;
+import io.github.sasiperi.logsafe.logger.in.HandlerLogMetadataCache;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux counterpart of the servlet HttpRequestResponseLogFilter, logs the request and (optionally) the response
+ * of the exchanges handled by a controller (handler) method, with the sensitive data redacted.
+ * @implNote Nothing here blocks the event loop. Request and response bodies are not aggregated, the {@link org.springframework.core.io.buffer.DataBuffer}s
+ * are passed on as is and only a copy of the first max-body-bytes is kept (see {@link DataBufferCapture}).
+ * Redaction and writing the log is done on the bounded scheduler of {@link ReactiveHttpLogFilterHelper}.
+ * @implNote Request is logged once its body is read by the handler (or right away, when there is no body to log),
+ * response once the exchange is done.
+ *
+ * @author sasiperi
+ */
+@Slf4j
+@AutoConfiguration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@Component
+public class ReactiveHttpLogFilter implements WebFilter, InitializingBean {
+
+    private final RequestMappingHandlerMapping handlerMapping;
+    private final ReactiveHttpLogFilterHelper logFilterHelper;
+    private final HandlerLogMetadataCache metadataCache;
+    private final BodyBufferPool bufferPool;
+    private final LogSampler logSampler;
+    private final LogFilterRules logRules;
+
+    private final boolean logRequest;
+    private final boolean logResponse;
+    private final int maxBodyBytes;
+
+    public ReactiveHttpLogFilter(
+            @Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping,
+            ReactiveHttpLogFilterHelper logFilterHelper,
+            HandlerLogMetadataCache metadataCache,
+            BodyBufferPool bufferPool,
+            LogSampler logSampler,
+            LogFilterRules logRules,
+            @Value("${logsafe.logger.in.log-request:true}") boolean logRequest,
+            @Value("${logsafe.logger.in.log-response:false}") boolean logResponse,
+            @Value("${logsafe.logger.max-body-bytes:1048576}") int maxBodyBytes) {
+        this.handlerMapping = handlerMapping;
+        this.logFilterHelper = logFilterHelper;
+        this.metadataCache = metadataCache;
+        this.bufferPool = bufferPool;
+        this.logSampler = logSampler;
+        this.logRules = logRules;
+        this.logRequest = logRequest;
+        this.logResponse = logResponse;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    // Resolve the request/response body types of all the mapped end-points once, ahead of the first request.
+    @Override
+    public void afterPropertiesSet() {
+
+        try
+        {
+            Map<RequestMappingInfo, HandlerMethod> handlerMethods = handlerMapping.getHandlerMethods();
+            metadataCache.prefill(handlerMethods.values());
+            handlerMethods.forEach((mappingInfo, handlerMethod) -> logSampler.register(handlerMethod,
+                    mappingInfo.getPatternsCondition().getPatterns().stream().map(PathPattern::getPatternString).toList()));
+        }
+        catch (Exception e)
+        {
+            log.warn("LG000-01: Error occured during resolving handler log metadata, will be resolved on request: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+
+        if(!logRequest && !logResponse)
+        {
+            return chain.filter(exchange);
+        }
+
+        //Find the (endpoint) method that would be handling this exchange, exchanges without one (e.g. 404) are not logged.
+        return handlerMapping.getHandler(exchange)
+                .onErrorResume(e -> {
+                    log.info("LG000: Error occured during resolving request handler {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .filter(HandlerMethod.class::isInstance)
+                // Chain is picked here and subscribed after, as the chain (Mono<Void>) itself completes empty, that would trip switchIfEmpty.
+                .map(handler -> filterWithLogging(exchange, chain, (HandlerMethod) handler))
+                .switchIfEmpty(Mono.fromSupplier(() -> chain.filter(exchange)))
+                .flatMap(filtered -> filtered);
+    }
+
+    private Mono<Void> filterWithLogging(ServerWebExchange exchange, WebFilterChain chain, HandlerMethod handlerMethod) {
+
+        ServerHttpRequest request = exchange.getRequest();
+
+        // Excluded by the rules or marked @NoLogSafe, passed on as is, not decorated, captured or sampled.
+        if(logRules.isExcluded(request.getMethod().name(), request.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE), request.getPath().pathWithinApplication())
+                || metadataCache.get(handlerMethod).isNoLogSafe())
+        {
+            return chain.filter(exchange);
+        }
+
+        // Decided before anything is decorated or captured, so an exchange not sampled costs next to nothing.
+        if(!logSampler.sample(handlerMethod))
+        {
+            return filterNotSampled(exchange, chain, handlerMethod);
+        }
+
+        ServerWebExchange.Builder logExchange = exchange.mutate();
+
+        // Request is logged once, when the body is read, or when the exchange is done (e.g. handler did not read the body).
+        DataBufferCapture requestBody = null;
+        AtomicBoolean requestLogged = new AtomicBoolean(!logRequest);
+        if(logRequest)
+        {
+            MediaType contentType = request.getHeaders().getContentType();
+            if(contentType != null && logFilterHelper.hasLoggableBody(contentType, handlerMethod, true))
+            {
+                requestBody = new DataBufferCapture(bufferPool, maxBodyBytes, request.getHeaders().getContentLength());
+                DataBufferCapture capture = requestBody;
+                logExchange.request(new CapturingServerHttpRequest(request, capture,
+                        () -> logRequestOnce(requestLogged, request, capture, handlerMethod)));
+            }
+            else
+            {
+                // Nothing to wait for, headers and params are all there is to log.
+                logRequestOnce(requestLogged, request, null, handlerMethod);
+            }
+        }
+
+        // Content type of the response is not known yet, so captured if the handler returns a body, checked when logged.
+        DataBufferCapture responseBody = logResponse && logFilterHelper.hasLoggableBody(null, handlerMethod, false)
+                ? new DataBufferCapture(bufferPool, maxBodyBytes, -1) : null;
+        if(responseBody != null)
+        {
+            logExchange.response(new CapturingServerHttpResponse(exchange.getResponse(), responseBody));
+        }
+
+        DataBufferCapture unreadRequestBody = requestBody;
+        return chain.filter(logExchange.build())
+                .doFinally(signal -> {
+                    logRequestOnce(requestLogged, request, unreadRequestBody, handlerMethod);
+                    if(logResponse)
+                    {
+                        logFilterHelper.logResponse(exchange.getResponse(), responseBody, handlerMethod);
+                    }
+                });
+    }
+
+    // Not decorated, so no body is logged, only the request/response headers, if the exchange fails or is slow.
+    private Mono<Void> filterNotSampled(ServerWebExchange exchange, WebFilterChain chain, HandlerMethod handlerMethod) {
+
+        if(!logSampler.isOutcomeLogged())
+        {
+            return chain.filter(exchange);
+        }
+
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnEach(signal -> {
+                    if(signal.isOnComplete() || signal.isOnError())
+                    {
+                        HttpStatusCode status = exchange.getResponse().getStatusCode();
+                        String reason = logSampler.alwaysLogReason(signal.isOnError(), status != null ? status.value() : 200, System.nanoTime() - start);
+                        if(reason != null)
+                        {
+                            if(logRequest)
+                            {
+                                logFilterHelper.logRequest(exchange.getRequest(), null, handlerMethod);
+                            }
+                            if(logResponse)
+                            {
+                                logFilterHelper.logResponse(exchange.getResponse(), null, handlerMethod);
+                            }
+                        }
+                    }
+                });
+    }
+
+    private void logRequestOnce(AtomicBoolean requestLogged, ServerHttpRequest request, DataBufferCapture body, HandlerMethod handlerMethod) {
+
+        if(requestLogged.compareAndSet(false, true))
+        {
+            logFilterHelper.logRequest(request, body, handlerMethod);
+        }
+    }
+}
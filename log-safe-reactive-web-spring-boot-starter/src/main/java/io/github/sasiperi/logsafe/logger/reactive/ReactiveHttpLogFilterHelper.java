@@ -0,0 +1,309 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.reactive;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.method.HandlerMethod;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+
+import io.github.sasiperi.logsafe.config.ReactiveLogConfig;
+import io.github.sasiperi.logsafe.logger.HttpLogMessage;
+import io.github.sasiperi.logsafe.logger.LogEventWriter;
+import io.github.sasiperi.logsafe.logger.LogMessageRedactor;
+import io.github.sasiperi.logsafe.logger.in.HandlerLogMetadata;
+import io.github.sasiperi.logsafe.logger.in.HandlerLogMetadataCache;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Helper component to {@link ReactiveHttpLogFilter}, the WebFlux counterpart of the servlet HttpLogFilterHelper.
+ * Only headers and params are taken on the event loop (redacted as they are read), body is redacted from the captured bytes
+ * with {@link LogMessageRedactor#redactJson}, against the declared body type, on a bounded scheduler.
+ * @implNote Same as the servlet filter, only JSON (compatible with {@link MediaType#APPLICATION_JSON}) bodies are logged,
+ * using the same {@link io.github.sasiperi.logsafe.logger.Redact} annotations and sensitive header/param configuration.
+ * @implNote Events are written by {@link LogEventWriter}, as a JSON String or as key/value pairs, see logsafe.logger.emission.
+ * @author sasiperi
+ */
+@Component
+@Slf4j
+@AutoConfiguration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveHttpLogFilterHelper implements DisposableBean {
+
+    private final LogMessageRedactor redactor;
+    private final HandlerLogMetadataCache metadataCache;
+    private final LogEventWriter logWriter;
+    private final Scheduler scheduler;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    @Autowired
+    public ReactiveHttpLogFilterHelper(LogMessageRedactor redactor, HandlerLogMetadataCache metadataCache, LogEventWriter logWriter,
+            ReactiveLogConfig reactiveLogConfig) {
+        this(redactor, metadataCache, logWriter, Schedulers.newBoundedElastic(reactiveLogConfig.getSchedulerThreads(),
+                reactiveLogConfig.getQueueCapacity(), "logsafe-log"));
+    }
+
+    ReactiveHttpLogFilterHelper(LogMessageRedactor redactor, HandlerLogMetadataCache metadataCache, LogEventWriter logWriter, Scheduler scheduler) {
+        this.redactor = redactor;
+        this.metadataCache = metadataCache;
+        this.logWriter = logWriter;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Skips capturing the body, when the handler does not declare one (e.g. no @RequestBody or void) or it's not JSON.
+     * @param contentType content type of the body, null if not (yet) known
+     * @param handlerMethod handler of the exchange
+     * @param request true for request body, false for response body
+     * @return true if the body would be logged
+     */
+    public boolean hasLoggableBody(MediaType contentType, HandlerMethod handlerMethod, boolean request) {
+
+        if(handlerMethod == null || (contentType != null && !MediaType.APPLICATION_JSON.isCompatibleWith(contentType)))
+        {
+            return false;
+        }
+        HandlerLogMetadata metadata = metadataCache.get(handlerMethod);
+        return request ? metadata.hasRequestBody() : metadata.hasResponseBody();
+    }
+
+    /**
+     * Logs the request on the log scheduler, the capture (if any) is released once logged.
+     * @param request request of the exchange
+     * @param body captured body, null if not captured
+     * @param handlerMethod handler of the exchange
+     */
+    public void logRequest(ServerHttpRequest request, DataBufferCapture body, HandlerMethod handlerMethod) {
+        try {
+
+            HttpLogMessage httpLogMessage = HttpLogMessage
+                                                .builder()
+                                                .uri(request.getPath().value())
+                                                .remoteHost(remoteHost(request.getRemoteAddress()))
+                                                .httpMethod(request.getMethod().name())
+                                                .headers(getHeadersAsMap(request.getHeaders()))
+                                                .requestParams(getQueryParamsAsMap(request.getQueryParams()))
+                                                .keysRedacted(true)
+                                                .build();
+
+            submit(() -> emitRequest(httpLogMessage, body, handlerMethod), body);
+
+        } catch (Exception e) {
+            release(body);
+            log.warn("LG002: Failed to log request with error: ", e);
+        }
+    }
+
+    private void emitRequest(HttpLogMessage httpLogMessage, DataBufferCapture body, HandlerMethod handlerMethod) {
+        try {
+
+            // Headers and params only, body is set once redacted, so it's not serialized (escaped) again as a JSON String.
+            redactor.redactLogMessage(httpLogMessage);
+
+            if(isLoggable(body, "LG002-04: Request body is larger than max-body-bytes, body is not logged"))
+            {
+                JavaType bodyType = metadataCache.get(handlerMethod).getRequestBodyType();
+                httpLogMessage.setBody(redactBody(body, bodyType, "LG002-01: Error redacting request body, not logged: {}"));
+            }
+
+            logWriter.write(log, "REQUEST DATA", httpLogMessage);
+
+        } catch (Exception e) {
+            log.warn("LG002: Failed to log request with error: ", e);
+        } finally {
+            release(body);
+        }
+    }
+
+    /**
+     * Logs the response, once written, on the log scheduler, the capture (if any) is released once logged.
+     * @param response response of the exchange
+     * @param body captured body, null if not captured
+     * @param handlerMethod handler of the exchange
+     */
+    public void logResponse(ServerHttpResponse response, DataBufferCapture body, HandlerMethod handlerMethod) {
+        try {
+
+            HttpHeaders headers = response.getHeaders();
+            HttpLogMessage httpLogMessage = HttpLogMessage
+                                                .builder()
+                                                .headers(getHeadersAsMap(headers))
+                                                .keysRedacted(true)
+                                                .build();
+
+            MediaType contentType = headers.getContentType();
+            // Body type is checked only now, as the content type is known once the response is written.
+            boolean loggableBody = body != null && contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(contentType);
+
+            submit(() -> emitResponse(httpLogMessage, body, loggableBody, handlerMethod), body);
+
+        } catch (Exception e) {
+            release(body);
+            log.warn("LG003: Failed to log response with error:", e);
+        }
+    }
+
+    private void emitResponse(HttpLogMessage httpLogMessage, DataBufferCapture body, boolean loggableBody, HandlerMethod handlerMethod) {
+        try {
+
+            redactor.redactLogMessage(httpLogMessage);
+
+            if(loggableBody && isLoggable(body, "LG003-04: Response body is larger than max-body-bytes, body is not logged"))
+            {
+                JavaType bodyType = metadataCache.get(handlerMethod).getResponseBodyType();
+                httpLogMessage.setBody(redactBody(body, bodyType, "LG003-01: Error redacting response body, not logged: {}"));
+            }
+
+            logWriter.write(log, "RESPONSE DATA", httpLogMessage);
+
+        } catch (Exception e) {
+            log.warn("LG003: Failed to log response with error:", e);
+        } finally {
+            release(body);
+        }
+    }
+
+    // Only a complete body is parsed, a partial JSON body (truncated, or the exchange cancelled) is not logged, as it's not redacted.
+    private static boolean isLoggable(DataBufferCapture body, String truncatedMessage) {
+
+        if(body == null || !body.isComplete() || body.getContentLength() == 0)
+        {
+            return false;
+        }
+        if(body.isTruncated())
+        {
+            log.info(truncatedMessage);
+            return false;
+        }
+        return true;
+    }
+
+    // Redacted JSON, redacted straight into the encoder's generator when structured (from a copy, as the capture is released after).
+    private Object redactBody(DataBufferCapture body, JavaType bodyType, String errorMessage) {
+
+        if(bodyType == null)
+        {
+            return null;
+        }
+        try {
+
+            return logWriter.isStructured()
+                    ? redactor.redactJsonBody(body.getContent(), 0, body.getContentLength(), bodyType)
+                    : redactor.redactJson(body.getContent(), 0, body.getContentLength(), bodyType);
+
+        }catch(JsonProcessingException e) {
+            // Unlike the servlet filter, body is not logged raw, e.g. an error body of a different type may hold sensitive values too.
+            log.info(errorMessage, e.getMessage());
+        }catch(Exception e) {
+            log.error(errorMessage, e.getMessage());
+        }
+        return null;
+    }
+
+    private void submit(Runnable task, DataBufferCapture body) {
+
+        // Capture is closed before handed to the scheduler, so it's read without a lock from here on.
+        if(body != null)
+        {
+            body.close();
+        }
+        try {
+            scheduler.schedule(task);
+        } catch (RejectedExecutionException e) {
+            release(body);
+            if(droppedCount.incrementAndGet() % 1000 == 1)
+            {
+                log.warn("LG004-01: Log scheduler can not keep up, log events are dropped, dropped so far: {}", droppedCount.get());
+            }
+        }
+    }
+
+    private static void release(DataBufferCapture body) {
+        if(body != null)
+        {
+            body.release();
+        }
+    }
+
+    // Single pass over the headers, sensitive values are redacted (and not read), multiple values are joined with ",".
+    private Map<String, String> getHeadersAsMap(HttpHeaders headers) {
+
+        Map<String, String> headerMap = new HashMap<>(mapCapacity(headers.size()));
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            String headerName = header.getKey();
+            headerMap.put(headerName, redactor.isSensitiveHeader(headerName) ? LogMessageRedactor.REDACTED : joinValues(header.getValue()));
+        }
+        return headerMap;
+    }
+
+    private Map<String, String> getQueryParamsAsMap(MultiValueMap<String, String> queryParams) {
+
+        Map<String, String> params = new HashMap<>(mapCapacity(queryParams.size()));
+        for (Map.Entry<String, List<String>> param : queryParams.entrySet()) {
+            String paramName = param.getKey();
+            params.put(paramName, redactor.isSensitiveQueryParam(paramName) ? LogMessageRedactor.REDACTED : joinValues(param.getValue()));
+        }
+        return params;
+    }
+
+    private static String joinValues(List<String> values) {
+
+        if(values == null || values.isEmpty())
+        {
+            return null;
+        }
+        return values.size() == 1 ? values.get(0) : String.join(",", values);
+    }
+
+    private static String remoteHost(InetSocketAddress remoteAddress) {
+        return remoteAddress != null ? remoteAddress.getHostString() : null;
+    }
+
+    // Initial capacity of a HashMap to hold the given number of entries, without re-hashing.
+    private static int mapCapacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+}
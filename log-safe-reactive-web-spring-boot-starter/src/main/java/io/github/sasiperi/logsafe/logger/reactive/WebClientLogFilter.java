@@ -0,0 +1,179 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.reactive;
+
+import java.util.Arrays;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.github.sasiperi.logsafe.logger.out.OutboundLogHelper;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Logs the outbound calls of WebClient, the reactive counterpart of OutboundHttpLogInterceptor, see {@link OutboundLogHelper}.
+ * Added to the WebClient built from the auto-configured WebClient.Builder, a client created otherwise can add this bean as a filter.
+ * @implNote Request and response bodies are teed into a {@link DataBufferCapture} as they pass through, buffers are not held on to
+ * (or aggregated), so streaming bodies keep streaming. The request is logged once its body is written, the response once its body
+ * is consumed (or released) by the caller. Redaction and writing the log is done on an outbound log worker, never on the event loop.
+ * @author sasiperi
+ */
+@Component
+@AutoConfiguration
+@ConditionalOnProperty(prefix = "logsafe.logger.out", name = "enabled", havingValue = "true")
+public class WebClientLogFilter implements ExchangeFilterFunction, WebClientCustomizer {
+
+    private final OutboundLogHelper logHelper;
+
+    @Autowired
+    public WebClientLogFilter(OutboundLogHelper logHelper) {
+        this.logHelper = logHelper;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+
+        ClientRequest loggedRequest = logHelper.isLogRequest() ? capturingRequest(request) : request;
+        Mono<ClientResponse> response = next.exchange(loggedRequest);
+
+        return logHelper.isLogResponse() ? response.map(clientResponse -> capturingResponse(request, clientResponse)) : response;
+    }
+
+    // Body inserter is wrapped, so the body is teed as it's written, and the request is logged (with the headers as sent) once it's written.
+    private ClientRequest capturingRequest(ClientRequest request) {
+
+        return ClientRequest.from(request)
+                .body((outputMessage, context) -> {
+                    CapturingClientHttpRequest capturingRequest = new CapturingClientHttpRequest(outputMessage);
+                    return request.body().insert(capturingRequest, context)
+                            .doOnSuccess(done -> capturingRequest.complete())
+                            .doFinally(signal -> capturingRequest.log(request));
+                })
+                .build();
+    }
+
+    // Body is not captured at all, if it would not be logged anyway (not JSON, or no JSON field names/paths configured).
+    // Capture buffer is leased only once the body is read, a body that's never consumed holds none.
+    private ClientResponse capturingResponse(ClientRequest request, ClientResponse response) {
+
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        DataBufferCapture capture = logHelper.hasLoggableBody(headers)
+                ? new DataBufferCapture(logHelper.getBufferPool(), logHelper.getMaxBodyBytes(), -1)
+                : null;
+
+        return response.mutate()
+                .body(body -> {
+                    Flux<DataBuffer> logged = capture != null ? body.doOnNext(capture::write).doOnComplete(capture::complete) : body;
+                    return logged.doFinally(signal -> {
+                        try {
+                            byte[] content = copyOf(capture);
+                            logHelper.logResponse(request.method(), request.url(), response.statusCode().value(), headers,
+                                    content, content != null ? content.length : 0, capture != null && capture.isTruncated());
+                        } finally {
+                            release(capture);
+                        }
+                    });
+                })
+                .build();
+    }
+
+    // Only a complete body is logged, a partial JSON body (truncated, or the exchange cancelled) is not, as it's not redacted.
+    // Copy is taken, so that the log event owns it, and the capture is released right away, on the event loop.
+    private static byte[] copyOf(DataBufferCapture capture) {
+
+        if(capture == null)
+        {
+            return null;
+        }
+        capture.close();
+        if(!capture.isComplete() || capture.isTruncated() || capture.getContentLength() == 0)
+        {
+            return null;
+        }
+        return Arrays.copyOf(capture.getContent(), capture.getContentLength());
+    }
+
+    private static void release(DataBufferCapture capture) {
+        if(capture != null)
+        {
+            capture.release();
+        }
+    }
+
+    @Override
+    public void customize(WebClient.Builder webClientBuilder) {
+        webClientBuilder.filter(this);
+    }
+
+    /**
+     * Tees the request body into a {@link DataBufferCapture}, as it's written. The capture is created only when the body is written,
+     * that's once the content type is set (by the encoder).
+     */
+    private class CapturingClientHttpRequest extends ClientHttpRequestDecorator {
+
+        private DataBufferCapture capture;
+
+        private CapturingClientHttpRequest(ClientHttpRequest delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+
+            HttpHeaders headers = getHeaders();
+            if(!logHelper.hasLoggableBody(headers))
+            {
+                return super.writeWith(body);
+            }
+            capture = new DataBufferCapture(logHelper.getBufferPool(), logHelper.getMaxBodyBytes(), headers.getContentLength());
+            if (body instanceof Mono<? extends DataBuffer> mono) {
+                return super.writeWith(mono.doOnNext(capture::write));
+            }
+            return super.writeWith(Flux.from(body).doOnNext(capture::write));
+        }
+
+        private void complete() {
+            if(capture != null)
+            {
+                capture.complete();
+            }
+        }
+
+        private void log(ClientRequest request) {
+            try {
+                byte[] content = copyOf(capture);
+                logHelper.logRequest(request.method(), request.url(), getHeaders(), content,
+                        content != null ? content.length : 0, capture != null && capture.isTruncated());
+            } finally {
+                release(capture);
+            }
+        }
+    }
+}
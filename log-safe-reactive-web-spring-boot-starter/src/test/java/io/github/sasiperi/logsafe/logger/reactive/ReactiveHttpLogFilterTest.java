@@ -0,0 +1,200 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.reactive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.WebFilterChain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.sasiperi.logsafe.config.BodyBufferPoolConfig;
+import io.github.sasiperi.logsafe.config.LogFilterRulesConfig;
+import io.github.sasiperi.logsafe.config.LogSamplingConfig;
+import io.github.sasiperi.logsafe.config.SensitiveDataConfig;
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import io.github.sasiperi.logsafe.logger.LogEmissionMode;
+import io.github.sasiperi.logsafe.logger.LogEventWriter;
+import io.github.sasiperi.logsafe.logger.LogFilterRules;
+import io.github.sasiperi.logsafe.logger.LogMessageRedactor;
+import io.github.sasiperi.logsafe.logger.LogSampler;
+import io.github.sasiperi.logsafe.logger.LogSafeJsonMapper;
+import io.github.sasiperi.logsafe.logger.NoLogSafe;
+import io.github.sasiperi.logsafe.logger.Redact;
+import io.github.sasiperi.logsafe.logger.in.HandlerLogMetadataCache;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+@ExtendWith({MockitoExtension.class, OutputCaptureExtension.class})
+class ReactiveHttpLogFilterTest {
+
+    private static final int MAX_BODY_BYTES = 1024;
+
+    private static final String REQUEST_JSON = "{\"name\":\"John\",\"ssn\":\"123-45-6789\"}";
+    private static final String RESPONSE_JSON = "{\"name\":\"John\",\"ssn\":\"987-65-4321\"}";
+
+    @Mock
+    private RequestMappingHandlerMapping handlerMapping;
+
+    private ReactiveHttpLogFilter filter;
+
+    @BeforeEach
+    void setup() {
+
+        LogSafeJsonMapper jsonMapper = new LogSafeJsonMapper(new ObjectMapper());
+        LogMessageRedactor redactor = new LogMessageRedactor("io.github.sasiperi.logsafe", new SensitiveDataConfig(), jsonMapper);
+        HandlerLogMetadataCache metadataCache = new HandlerLogMetadataCache(jsonMapper);
+        // Logged right away, on the test thread
+        ReactiveHttpLogFilterHelper helper = new ReactiveHttpLogFilterHelper(redactor, metadataCache, new LogEventWriter(LogEmissionMode.MESSAGE, jsonMapper), Schedulers.immediate());
+        BodyBufferPool bufferPool = new BodyBufferPool(new BodyBufferPoolConfig(), MAX_BODY_BYTES);
+
+        filter = new ReactiveHttpLogFilter(handlerMapping, helper, metadataCache, bufferPool, new LogSampler(new LogSamplingConfig()),
+                new LogFilterRules(new LogFilterRulesConfig()), true, true, MAX_BODY_BYTES);
+    }
+
+    @Test
+    void testFilter_RequestAndResponseRedactedAndPassedThrough(CapturedOutput output) throws Exception {
+
+        when(handlerMapping.getHandler(any())).thenReturn(Mono.just(handlerMethod()));
+
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                .post("/customers?apiKey=secretKey&page=1")
+                .header("Authorization", "Bearer blahblah")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(REQUEST_JSON));
+
+        AtomicInteger readBody = new AtomicInteger();
+        StepVerifier.create(filter.filter(exchange, echoChain(readBody))).verifyComplete();
+
+        // Handler and client see the bodies as is
+        assertEquals(REQUEST_JSON.length(), readBody.get());
+        StepVerifier.create(exchange.getResponse().getBodyAsString()).expectNext(RESPONSE_JSON).verifyComplete();
+
+        assertTrue(output.getOut().contains("REQUEST DATA"), "Expected request to be logged");
+        assertTrue(output.getOut().contains("RESPONSE DATA"), "Expected response to be logged");
+        assertTrue(output.getOut().contains("John"));
+        assertFalse(output.getOut().contains("123-45-6789"), "Request ssn is expected to be redacted");
+        assertFalse(output.getOut().contains("987-65-4321"), "Response ssn is expected to be redacted");
+        assertFalse(output.getOut().contains("Bearer blahblah"), "Authorization header is expected to be redacted");
+        assertFalse(output.getOut().contains("secretKey"), "apiKey param is expected to be redacted");
+    }
+
+    @Test
+    void testFilter_BodyLargerThanMaxNotLogged(CapturedOutput output) throws Exception {
+
+        when(handlerMapping.getHandler(any())).thenReturn(Mono.just(handlerMethod()));
+
+        String largeJson = "{\"name\":\"" + "J".repeat(MAX_BODY_BYTES) + "\",\"ssn\":\"123-45-6789\"}";
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                .post("/customers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(largeJson));
+
+        AtomicInteger readBody = new AtomicInteger();
+        StepVerifier.create(filter.filter(exchange, echoChain(readBody))).verifyComplete();
+
+        assertEquals(largeJson.length(), readBody.get());
+        assertTrue(output.getOut().contains("LG002-04"));
+        assertFalse(output.getOut().contains("123-45-6789"));
+    }
+
+    @Test
+    void testFilter_NoHandlerNotLogged(CapturedOutput output) {
+
+        when(handlerMapping.getHandler(any())).thenReturn(Mono.empty());
+
+        AtomicInteger chainCalls = new AtomicInteger();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/unknown"));
+
+        StepVerifier.create(filter.filter(exchange, ex -> Mono.fromRunnable(chainCalls::incrementAndGet))).verifyComplete();
+
+        assertEquals(1, chainCalls.get());
+        assertFalse(output.getOut().contains("REQUEST DATA"));
+    }
+
+    @Test
+    void testFilter_NoLogSafeHandlerNotLogged(CapturedOutput output) throws Exception {
+
+        when(handlerMapping.getHandler(any())).thenReturn(Mono.just(
+                new HandlerMethod(this, getClass().getDeclaredMethod("createSecret", Mono.class))));
+
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                .post("/secrets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(REQUEST_JSON));
+
+        AtomicInteger readBody = new AtomicInteger();
+        StepVerifier.create(filter.filter(exchange, echoChain(readBody))).verifyComplete();
+
+        // Passed on as is, not decorated
+        assertEquals(REQUEST_JSON.length(), readBody.get());
+        assertFalse(output.getOut().contains("REQUEST DATA"));
+        assertFalse(output.getOut().contains("RESPONSE DATA"));
+    }
+
+    // Reads the whole request body (as a decoder would) and writes the response JSON.
+    private static WebFilterChain echoChain(AtomicInteger readBody) {
+        return exchange -> DataBufferUtils.join(exchange.getRequest().getBody())
+                .flatMap(body -> {
+                    readBody.set(body.readableByteCount());
+                    DataBufferUtils.release(body);
+                    exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                    return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                            .wrap(RESPONSE_JSON.getBytes(StandardCharsets.UTF_8))));
+                });
+    }
+
+    private HandlerMethod handlerMethod() throws NoSuchMethodException {
+        return new HandlerMethod(this, getClass().getDeclaredMethod("createCustomer", Mono.class));
+    }
+
+    public Mono<Customer> createCustomer(@RequestBody Mono<Customer> customer) {
+        return customer;
+    }
+
+    @NoLogSafe
+    public Mono<Customer> createSecret(@RequestBody Mono<Customer> customer) {
+        return customer;
+    }
+
+    public static class Customer {
+        public String name;
+        @Redact
+        public String ssn;
+    }
+}
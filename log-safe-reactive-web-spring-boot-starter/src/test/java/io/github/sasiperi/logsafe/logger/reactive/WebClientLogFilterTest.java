@@ -0,0 +1,197 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.reactive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.github.sasiperi.logsafe.config.AsyncLogConfig;
+import io.github.sasiperi.logsafe.config.BodyBufferPoolConfig;
+import io.github.sasiperi.logsafe.config.OutboundLogConfig;
+import io.github.sasiperi.logsafe.config.SensitiveDataConfig;
+import io.github.sasiperi.logsafe.logger.AsyncLogEmitter;
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import io.github.sasiperi.logsafe.logger.LogEmissionMode;
+import io.github.sasiperi.logsafe.logger.LogEventWriter;
+import io.github.sasiperi.logsafe.logger.LogMessageRedactor;
+import io.github.sasiperi.logsafe.logger.LogSafeJsonMapper;
+import io.github.sasiperi.logsafe.logger.out.OutboundLogHelper;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class WebClientLogFilterTest {
+
+    private static final int MAX_BODY_BYTES = 1024;
+    private static final String RESPONSE_BODY = "{\"firstName\":\"John\",\"ssn\":\"123-45-6789\"}";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Logger log = (Logger) LoggerFactory.getLogger(OutboundLogHelper.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private BodyBufferPool bufferPool;
+    private AsyncLogEmitter logEmitter;
+    private WebClientLogFilter filter;
+
+    // Body as the (stubbed) server received it.
+    private final AtomicReference<String> sentBody = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+
+        SensitiveDataConfig sensitiveData = new SensitiveDataConfig();
+        sensitiveData.setJsonFields(List.of("password", "ssn"));
+        LogSafeJsonMapper jsonMapper = new LogSafeJsonMapper(objectMapper);
+        LogMessageRedactor redactor = new LogMessageRedactor("io.github.sasiperi.logsafe", sensitiveData, jsonMapper);
+        bufferPool = new BodyBufferPool(new BodyBufferPoolConfig(), MAX_BODY_BYTES);
+        logEmitter = new AsyncLogEmitter(new AsyncLogConfig());
+        filter = new WebClientLogFilter(new OutboundLogHelper(redactor, new LogEventWriter(LogEmissionMode.MESSAGE, jsonMapper), bufferPool, logEmitter,
+                new OutboundLogConfig(), MAX_BODY_BYTES));
+
+        appender.start();
+        log.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        log.detachAppender(appender);
+    }
+
+    // Writes the request (so the body inserter runs, as a connector would), then responds with the given body.
+    private WebClient webClient(Flux<DataBuffer> responseBody) {
+
+        ExchangeFunction exchange = request -> {
+            MockClientHttpRequest clientRequest = new MockClientHttpRequest(request.method(), request.url());
+            return request.writeTo(clientRequest, ExchangeStrategies.withDefaults())
+                    .then(Mono.defer(clientRequest::getBodyAsString))
+                    .doOnNext(sentBody::set)
+                    .then(Mono.fromSupplier(() -> ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(responseBody)
+                            .build()));
+        };
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(exchange);
+        filter.customize(builder);
+        return builder.build();
+    }
+
+    private static Flux<DataBuffer> body(String json) {
+        return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Request is logged once its body is written, that can be after the response is, so events are looked up by name.
+    private JsonNode loggedMessage(String event) throws Exception {
+
+        String message = appender.list.stream()
+                .map(ILoggingEvent::getFormattedMessage)
+                .filter(logged -> logged.startsWith(event + ": "))
+                .findFirst()
+                .orElseThrow();
+        return objectMapper.readTree(message.substring(event.length() + 2));
+    }
+
+    @Test
+    void testFilter_RequestAndResponseLoggedRedacted() throws Exception {
+
+        Mono<Map> response = webClient(body(RESPONSE_BODY)).post()
+                .uri("http://localhost/employees?token=abc&page=1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer blahblah")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("firstName", "John", "password", "secret"))
+                .retrieve()
+                .bodyToMono(Map.class);
+
+        // Server and caller still get the bodies as sent, only the logged copies are redacted.
+        StepVerifier.create(response).expectNextMatches(body -> "123-45-6789".equals(body.get("ssn"))).verifyComplete();
+        assertTrue(sentBody.get().contains("secret"), sentBody.get());
+        // Waits for the emitter workers to log the events.
+        logEmitter.destroy();
+
+        assertEquals(2, appender.list.size());
+        JsonNode request = loggedMessage("OUTBOUND REQUEST DATA");
+        assertEquals("POST", request.get("httpMethod").asText());
+        assertEquals("http://localhost/employees", request.get("uri").asText());
+        assertEquals("[REDACTED]", request.get("headers").get("Authorization").asText());
+        assertEquals("[REDACTED]", request.get("requestParams").get("token").asText());
+        JsonNode requestBody = objectMapper.readTree(request.get("body").asText());
+        assertEquals("John", requestBody.get("firstName").asText());
+        assertEquals("[REDACTED]", requestBody.get("password").asText());
+
+        JsonNode responseMessage = loggedMessage("OUTBOUND RESPONSE DATA");
+        assertEquals(200, responseMessage.get("status").asInt());
+        JsonNode responseBody = objectMapper.readTree(responseMessage.get("body").asText());
+        assertEquals("John", responseBody.get("firstName").asText());
+        assertEquals("[REDACTED]", responseBody.get("ssn").asText());
+
+        // Both capture buffers are back in the pool.
+        assertTrue(bufferPool.getMissCount() > 0);
+        assertEquals(bufferPool.getMissCount(), bufferPool.getPooledCount());
+    }
+
+    @Test
+    void testFilter_CancelledResponseLoggedWithoutBodyAndReleased() throws Exception {
+
+        // First part of the body arrives, the rest never does, the caller cancels.
+        Flux<DataBuffer> partialBody = Flux.concat(body("{\"firstName\":\"John\",\"ssn\":\"123-"), Flux.never());
+
+        Flux<DataBuffer> response = webClient(partialBody).get()
+                .uri("http://localhost/employees/1")
+                .retrieve()
+                .bodyToFlux(DataBuffer.class);
+
+        StepVerifier.create(response).expectNextCount(1).thenCancel().verify();
+        logEmitter.destroy();
+
+        // Request has no body, response is logged without the partial (not redactable) body.
+        assertEquals(2, appender.list.size());
+        JsonNode responseMessage = loggedMessage("OUTBOUND RESPONSE DATA");
+        assertEquals(200, responseMessage.get("status").asInt());
+        assertNull(responseMessage.get("body"));
+        assertFalse(appender.list.stream().anyMatch(logged -> logged.getFormattedMessage().contains("123-")));
+
+        assertEquals(1, bufferPool.getMissCount());
+        assertEquals(1, bufferPool.getPooledCount());
+    }
+}
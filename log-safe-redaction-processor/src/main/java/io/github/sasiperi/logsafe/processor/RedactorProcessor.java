@@ -0,0 +1,350 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates a reflection free <code>io.github.sasiperi.logsafe.logger.Redactor</code> for every (concrete) class or record that has
+ * <code>@Redact</code> fields, declared or inherited, and registers them in <code>META-INF/services/io.github.sasiperi.logsafe.logger.Redactor</code>.
+ * Fields are the same as the starter's RedactionPlan: non static fields (final ones included), super class fields first, a shadowed field taken from the sub class.
+ * Each field is read with a plain call, the field itself if it's accessible from the DTO package, otherwise its getter
+ * (declared, or generated by Lombok <code>@Data</code>, <code>@Value</code> or <code>@Getter</code>). Record components are read through their accessors.
+ * A class with a field that can't be read either way is skipped (with a note), it's then redacted reflectively at runtime.
+ * Add it to annotationProcessorPaths of maven-compiler-plugin (after Lombok), along with the starter dependency.
+ *
+ * @author sasiperi
+ */
+public class RedactorProcessor extends AbstractProcessor {
+
+    static final String REDACT = "io.github.sasiperi.logsafe.logger.Redact";
+    static final String REDACTOR = "io.github.sasiperi.logsafe.logger.Redactor";
+    static final String SERVICES_FILE = "META-INF/services/" + REDACTOR;
+    static final String SUFFIX = "_LogSafeRedactor";
+
+    private static final Set<String> LOMBOK_CLASS_GETTERS = Set.of("lombok.Data", "lombok.Value", "lombok.Getter");
+    private static final String LOMBOK_GETTER = "lombok.Getter";
+
+    private Elements elements;
+    private Filer filer;
+
+    // Binary names of the generated redactors, written to the services file once the processing is over.
+    private final Set<String> generated = new TreeSet<>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.filer = processingEnv.getFiler();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        // Sub classes that only inherit @Redact fields are generated too, so every class of the round is looked at.
+        return Set.of("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+        if (roundEnv.processingOver()) {
+            writeServicesFile();
+            return false;
+        }
+
+        if (elements.getTypeElement(REDACT) == null) {
+            return false; // Starter is not on the classpath, nothing to generate against.
+        }
+
+        Deque<TypeElement> types = new ArrayDeque<>(ElementFilter.typesIn(roundEnv.getRootElements()));
+        while (!types.isEmpty()) {
+            TypeElement type = types.pop();
+            types.addAll(ElementFilter.typesIn(type.getEnclosedElements()));
+            if (isCandidate(type)) {
+                generate(type);
+            }
+        }
+        return false; // Never claims, other processors see all the annotations.
+    }
+
+    private boolean isCandidate(TypeElement type) {
+
+        if ((type.getKind() != ElementKind.CLASS && type.getKind() != ElementKind.RECORD) || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false; // Lookup is by exact class at runtime, an abstract class never matches.
+        }
+        for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement()) {
+            if (current.getModifiers().contains(Modifier.PRIVATE) || ((TypeElement) current).getNestingKind() == NestingKind.LOCAL
+                    || ((TypeElement) current).getNestingKind() == NestingKind.ANONYMOUS) {
+                return false; // Not accessible from a top level class in the same package.
+            }
+        }
+        return resolveFields(type).values().stream().anyMatch(field -> hasAnnotation(field, REDACT));
+    }
+
+    // Same order and shadowing as RedactionPlan#resolveFields.
+    private Map<String, VariableElement> resolveFields(TypeElement type) {
+
+        Deque<TypeElement> hierarchy = new ArrayDeque<>();
+        for (TypeElement current = type; current != null && !current.getQualifiedName().contentEquals("java.lang.Object"); current = superclass(current)) {
+            hierarchy.push(current);
+        }
+
+        Map<String, VariableElement> resolved = new LinkedHashMap<>();
+        for (TypeElement current : hierarchy) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (field.getModifiers().contains(Modifier.STATIC)) {
+                    continue;
+                }
+                resolved.put(field.getSimpleName().toString(), field);
+            }
+        }
+        return resolved;
+    }
+
+    private static TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+    }
+
+    private void generate(TypeElement type) {
+
+        PackageElement dtoPackage = elements.getPackageOf(type);
+        String packageName = dtoPackage.isUnnamed() ? "" : dtoPackage.getQualifiedName().toString();
+        String dtoName = type.getQualifiedName().toString();
+        String simpleName = elements.getBinaryName(type).toString().substring(packageName.isEmpty() ? 0 : packageName.length() + 1)
+                .replace('$', '_') + SUFFIX;
+        String redactorName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        if (generated.contains(redactorName)) {
+            return;
+        }
+
+        Map<String, VariableElement> fields = resolveFields(type);
+        StringBuilder body = new StringBuilder();
+        for (VariableElement field : fields.values()) {
+
+            String read = readExpression(field, dtoPackage, type);
+            if (read == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                        "No accessible field or getter for " + field.getSimpleName() + ", " + dtoName + " will be redacted reflectively", type);
+                return;
+            }
+            body.append("        sink.field(\"").append(field.getSimpleName()).append("\", ").append(read).append(", ")
+                .append(hasAnnotation(field, REDACT)).append(");\n");
+        }
+
+        boolean generic = !type.getTypeParameters().isEmpty();
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"").append(RedactorProcessor.class.getName()).append("\")\n");
+        if (generic) {
+            source.append("@SuppressWarnings(\"rawtypes\")\n");
+        }
+        source.append("public final class ").append(simpleName).append(" implements ").append(REDACTOR).append('<').append(dtoName).append("> {\n\n")
+            .append("    @Override\n")
+            .append("    public Class<").append(dtoName).append("> getType() {\n")
+            .append("        return ").append(dtoName).append(".class;\n")
+            .append("    }\n\n")
+            .append("    @Override\n")
+            .append("    public int getFieldCount() {\n")
+            .append("        return ").append(fields.size()).append(";\n")
+            .append("    }\n\n")
+            .append("    @Override\n")
+            .append("    public void redact(").append(dtoName).append(" dto, ").append(REDACTOR).append(".FieldSink sink) {\n")
+            .append(body)
+            .append("    }\n")
+            .append("}\n");
+
+        try (Writer writer = filer.createSourceFile(redactorName, type).openWriter()) {
+            writer.write(source.toString());
+            generated.add(redactorName);
+        }catch(IOException e)
+        {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Redactor for " + dtoName + " could not be generated, will be redacted reflectively " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * @return expression that reads the field from <code>dto</code>, null if it can't be read from the DTO package.
+     */
+    private String readExpression(VariableElement field, PackageElement dtoPackage, TypeElement type) {
+
+        TypeElement owner = (TypeElement) field.getEnclosingElement();
+        if (owner.getKind() == ElementKind.RECORD) {
+            return "dto." + field.getSimpleName() + "()"; // Canonical accessor, same as RedactionPlan and Jackson.
+        }
+
+        Set<Modifier> modifiers = field.getModifiers();
+        boolean samePackage = elements.getPackageOf(owner).equals(dtoPackage);
+
+        if (modifiers.contains(Modifier.PUBLIC) && owner.getModifiers().contains(Modifier.PUBLIC)
+                || !modifiers.contains(Modifier.PRIVATE) && samePackage) {
+            return "dto." + field.getSimpleName();
+        }
+
+        String getter = getterName(field);
+        if (hasGetter(type, getter, dtoPackage) || hasLombokGetter(field, owner, samePackage)) {
+            return "dto." + getter + "()";
+        }
+        return null;
+    }
+
+    // Lombok naming, isX for primitive booleans (isActive stays isActive), getX otherwise.
+    private static String getterName(VariableElement field) {
+        String name = field.getSimpleName().toString();
+        if (field.asType().getKind() == TypeKind.BOOLEAN) {
+            if (name.length() > 2 && name.startsWith("is") && Character.isUpperCase(name.charAt(2))) {
+                return name;
+            }
+            return "is" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+        return "get" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private boolean hasGetter(TypeElement type, String getter, PackageElement dtoPackage) {
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (method.getSimpleName().contentEquals(getter) && method.getParameters().isEmpty() && !modifiers.contains(Modifier.STATIC)
+                    && (modifiers.contains(Modifier.PUBLIC)
+                        || !modifiers.contains(Modifier.PRIVATE) && elements.getPackageOf(method).equals(dtoPackage))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Lombok getters are not (reliably) visible to other processors of the same round, so the annotations are looked at.
+    private static boolean hasLombokGetter(VariableElement field, TypeElement owner, boolean samePackage) {
+
+        AnnotationMirror fieldGetter = annotation(field, LOMBOK_GETTER);
+        if (fieldGetter != null) {
+            return isAccessible(accessLevel(fieldGetter), samePackage);
+        }
+        for (AnnotationMirror annotation : owner.getAnnotationMirrors()) {
+            String name = ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+            if (LOMBOK_CLASS_GETTERS.contains(name)) {
+                return !LOMBOK_GETTER.equals(name) || isAccessible(accessLevel(annotation), samePackage);
+            }
+        }
+        return false;
+    }
+
+    private static String accessLevel(AnnotationMirror getter) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : getter.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                return entry.getValue().getValue().toString();
+            }
+        }
+        return "PUBLIC";
+    }
+
+    private static boolean isAccessible(String accessLevel, boolean samePackage) {
+        return switch (accessLevel) {
+            case "PUBLIC" -> true;
+            case "PROTECTED", "PACKAGE", "MODULE" -> samePackage;
+            default -> false; // NONE, PRIVATE
+        };
+    }
+
+    private static boolean hasAnnotation(Element element, String annotationName) {
+        return annotation(element, annotationName) != null;
+    }
+
+    private static AnnotationMirror annotation(Element element, String annotationName) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    // Merged with the entries of an earlier (incremental) compilation, if any.
+    private void writeServicesFile() {
+
+        if (generated.isEmpty()) {
+            return;
+        }
+
+        Set<String> entries = new TreeSet<>(generated);
+        try {
+            FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", SERVICES_FILE);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    String entry = line.trim();
+                    if (!entry.isEmpty() && !entry.startsWith("#")) {
+                        entries.add(entry);
+                    }
+                }
+            }
+        }catch(IOException | IllegalArgumentException e)
+        {
+            // No earlier index, a fresh one is written.
+        }
+
+        try (Writer writer = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES_FILE).openWriter()) {
+            for (String entry : entries) {
+                writer.write(entry);
+                writer.write('\n');
+            }
+        }catch(IOException e)
+        {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write " + SERVICES_FILE + " " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+
+import io.github.sasiperi.logsafe.config.SensitiveDataConfig;
+import io.github.sasiperi.logsafe.logger.HttpLogMessage;
+import io.github.sasiperi.logsafe.logger.LogMessageRedactor;
+import io.github.sasiperi.logsafe.logger.LogSafeJsonMapper;
+import io.github.sasiperi.logsafe.logger.Redactor;
+
+class RedactorProcessorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testGeneratesRedactor_FieldsInPlanOrderWithRedactFlags() throws Exception {
+
+        write("com/acme/Person.java", """
+                package com.acme;
+                import com.fasterxml.jackson.annotation.JsonProperty;
+                import io.github.sasiperi.logsafe.logger.Redact;
+                public class Person {
+                    private static final String TYPE = "person";
+                    protected String id;
+                    @Redact @JsonProperty("social_security") private String ssn;
+                    public String getSsn() { return ssn; }
+                    public void setSsn(String ssn) { this.ssn = ssn; }
+                }
+                """);
+        write("com/acme/Customer.java", """
+                package com.acme;
+                public class Customer extends Person {
+                    private boolean active;
+                    public boolean isActive() { return active; }
+                    public Customer(String id, String ssn, boolean active) { this.id = id; this.active = active; setSsn(ssn); }
+                }
+                """);
+
+        try (URLClassLoader loader = compile()) {
+
+            List<String> names = new ArrayList<>();
+            List<Object> values = new ArrayList<>();
+            List<Boolean> redactFlags = new ArrayList<>();
+
+            Redactor<Object> redactor = find(loader, "com.acme.Customer");
+            Object customer = loader.loadClass("com.acme.Customer").getConstructor(String.class, String.class, boolean.class).newInstance("7", "123-45-6789", true);
+            redactor.redact(customer, (name, value, redact) -> {
+                names.add(name);
+                values.add(value);
+                redactFlags.add(redact);
+            });
+
+            // Super class fields first, statics skipped, same as RedactionPlan
+            assertEquals(List.of("id", "ssn", "active"), names);
+            assertEquals(List.of("7", "123-45-6789", true), values);
+            assertEquals(List.of(false, true, false), redactFlags);
+            assertEquals(3, redactor.getFieldCount());
+        }
+    }
+
+    @Test
+    void testGeneratesRedactor_RecordsAndFinalFields() throws Exception {
+
+        write("com/acme/Card.java", """
+                package com.acme;
+                import io.github.sasiperi.logsafe.logger.Redact;
+                public record Card(String holder, @Redact String number) {}
+                """);
+        write("com/acme/Account.java", """
+                package com.acme;
+                import io.github.sasiperi.logsafe.logger.Redact;
+                public class Account {
+                    private final String owner;
+                    @Redact private final String iban;
+                    public Account(String owner, String iban) { this.owner = owner; this.iban = iban; }
+                    public String getOwner() { return owner; }
+                    public String getIban() { return iban; }
+                }
+                """);
+
+        try (URLClassLoader loader = compile()) {
+
+            List<Object> card = new ArrayList<>();
+            find(loader, "com.acme.Card").redact(loader.loadClass("com.acme.Card").getConstructor(String.class, String.class).newInstance("Jane", "4111"),
+                    (name, value, redact) -> card.add(name + "=" + value + (redact ? " (redact)" : "")));
+            assertEquals(List.of("holder=Jane", "number=4111 (redact)"), card);
+
+            List<Object> account = new ArrayList<>();
+            find(loader, "com.acme.Account").redact(loader.loadClass("com.acme.Account").getConstructor(String.class, String.class).newInstance("Jane", "DE89"),
+                    (name, value, redact) -> account.add(name + "=" + value + (redact ? " (redact)" : "")));
+            assertEquals(List.of("owner=Jane", "iban=DE89 (redact)"), account);
+        }
+    }
+
+    @Test
+    void testGeneratedRedactor_UsedByStarterWithMapperNaming() throws Exception {
+
+        write("com/acme/Address.java", """
+                package com.acme;
+                import io.github.sasiperi.logsafe.logger.Redact;
+                public class Address {
+                    public static int cityReads;
+                    private final String city;
+                    private final String zipCode;
+                    @Redact private final String phoneNumber;
+                    public Address(String city, String zipCode, String phoneNumber) { this.city = city; this.zipCode = zipCode; this.phoneNumber = phoneNumber; }
+                    public String getCity() { cityReads++; return city; }
+                    public String getZipCode() { return zipCode; }
+                    public String getPhoneNumber() { return phoneNumber; }
+                }
+                """);
+
+        ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        try (URLClassLoader loader = compile()) {
+
+            // The starter looks its generated redactors up in the context class loader, as the application's classes are.
+            Thread.currentThread().setContextClassLoader(loader);
+            ObjectMapper snakeCaseMapper = new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+            SensitiveDataConfig sensitiveData = new SensitiveDataConfig();
+            sensitiveData.setJsonPaths(List.of("$.zip_code"));
+            LogMessageRedactor redactor = new LogMessageRedactor("com.acme", sensitiveData, new LogSafeJsonMapper(snakeCaseMapper));
+
+            Class<?> addressClass = loader.loadClass("com.acme.Address");
+            Object address = addressClass.getConstructor(String.class, String.class, String.class).newInstance("New York", "10001", "555-1234");
+            HttpLogMessage httpLogMessage = redactor.redactLogMessage(HttpLogMessage.builder().body(address).build());
+
+            // Path written against the payload as the application's mapper names it, matched through the generated redactor.
+            JsonNode body = snakeCaseMapper.readTree(httpLogMessage.getBody().toString());
+            assertEquals("New York", body.get("city").asText());
+            assertEquals("[REDACTED]", body.get("zipCode").asText());
+            assertEquals("[REDACTED]", body.get("phoneNumber").asText());
+            assertEquals(1, addressClass.getField("cityReads").getInt(null), "Address is expected to be read by its generated redactor");
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextLoader);
+        }
+    }
+
+    @Test
+    void testSkipsUnreadableAndRedactFreeClasses() throws Exception {
+
+        write("com/acme/Plain.java", """
+                package com.acme;
+                public class Plain { private String name; public String getName() { return name; } }
+                """);
+        write("com/acme/NoGetter.java", """
+                package com.acme;
+                public class NoGetter { @io.github.sasiperi.logsafe.logger.Redact private String pin; }
+                """);
+        write("com/acme/Masked.java", """
+                package com.acme;
+                public class Masked { @io.github.sasiperi.logsafe.logger.Redact String pin; }
+                """);
+
+        try (URLClassLoader ignored = compile()) {
+            List<String> index = Files.readAllLines(dir.resolve("classes").resolve(RedactorProcessor.SERVICES_FILE));
+            assertEquals(List.of("com.acme.Masked" + RedactorProcessor.SUFFIX), index);
+            assertFalse(Files.exists(dir.resolve("classes/com/acme/Plain" + RedactorProcessor.SUFFIX + ".class")));
+        }
+    }
+
+    private void write(String path, String source) throws IOException {
+        Path file = dir.resolve("src").resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, source);
+    }
+
+    private URLClassLoader compile() throws IOException {
+
+        Path classes = Files.createDirectories(dir.resolve("classes"));
+        List<Path> sources;
+        try (var files = Files.walk(dir.resolve("src"))) {
+            sources = files.filter(file -> file.toString().endsWith(".java")).toList();
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromPaths(sources);
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+                    List.of("-d", classes.toString(), "-classpath", System.getProperty("java.class.path")), null, units);
+            task.setProcessors(List.of(new RedactorProcessor()));
+            assertTrue(task.call(), "sources and generated redactors compile");
+        }
+        return new URLClassLoader(new URL[] {classes.toUri().toURL()}, getClass().getClassLoader());
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static Redactor<Object> find(ClassLoader loader, String type) {
+        for (Redactor redactor : ServiceLoader.load(Redactor.class, loader)) {
+            if (redactor.getType().getName().equals(type)) {
+                return redactor;
+            }
+        }
+        throw new AssertionError("No generated redactor for " + type);
+    }
+}
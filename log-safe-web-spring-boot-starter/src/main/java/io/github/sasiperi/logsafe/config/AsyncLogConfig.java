@@ -0,0 +1,59 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import io.github.sasiperi.logsafe.logger.AsyncLogEmitter;
+import lombok.Data;
+
+/**
+ * Configuration of asynchronous log emission, see {@link AsyncLogEmitter}.
+ * When enabled, only the raw content (bytes, headers and handler) is captured on the request thread.
+ * Deserialization, redaction, formatting and writing the log is done by the emitter worker(s).
+ *
+ * @author sasiperi
+ */
+@Configuration
+@ConfigurationProperties(prefix = "logsafe.logger.async")
+@Data
+@AutoConfiguration
+public class AsyncLogConfig {
+
+    /**
+     * What to do with a log event, when the emitter can not keep up (queue is full or filling up).
+     */
+    public enum OverflowPolicy {
+        /** Drop the event, when the queue is full. */
+        DROP,
+        /** Once the queue is half full, only 1 of every sample-every events is queued, rest are dropped. */
+        SAMPLE,
+        /** Request thread waits for the space in the queue, up to block-timeout, then the event is dropped. */
+        BLOCK
+    }
+
+    private boolean enabled = false;
+    private int queueCapacity = 1024;
+    private int workers = 1;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+    private int sampleEvery = 10;
+    private Duration blockTimeout = Duration.ofSeconds(1);
+
+}
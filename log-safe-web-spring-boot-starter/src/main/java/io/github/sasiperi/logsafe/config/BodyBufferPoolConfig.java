@@ -0,0 +1,42 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.config;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import lombok.Data;
+
+/**
+ * Configuration of the pool of buffers, that bodies are cached into, see {@link BodyBufferPool}.
+ *
+ * @author sasiperi
+ */
+@Configuration
+@ConfigurationProperties(prefix = "logsafe.logger.buffer-pool")
+@Data
+@AutoConfiguration
+public class BodyBufferPoolConfig {
+
+    private boolean enabled = true;
+    // Smallest size class, each next class is 4 times the previous one, up to max-body-bytes.
+    private int minBufferBytes = 4096;
+    // Idle buffers kept per size class, rest are left to GC.
+    private int maxBuffersPerClass = 32;
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.config;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JSON field names and JSONPath patterns to redact, compiled once (when bound) into a deterministic automaton over the path
+ * of a JSON value, so that any JSON (e.g. a body with no typed @RequestBody, a Map/JsonNode, or an error body not of the declared type)
+ * is redacted in a single walk, one map lookup per field.
+ * @implNote Supported JSONPath subset: root {@code $}, child {@code .name} or {@code ['name']}, any field {@code .*},
+ * any array element {@code [*]} and descendant {@code ..name} (any depth). Array indexes and filters are not supported.
+ * Path names are matched as is (JSON names are case sensitive), field names ignoring case, at any depth, same as {@code $..name}.
+ *
+ * @author sasiperi
+ */
+public final class JsonPathAutomaton {
+
+    // Bound on the states of the automaton (subset construction), a handful of patterns need only tens of them.
+    private static final int MAX_STATES = 4096;
+
+    private static final JsonPathAutomaton NONE = new JsonPathAutomaton(List.of(), List.of());
+
+    private final List<String> fieldNames;
+    private final List<String> paths;
+    private final SensitiveKeyMatcher fieldMatcher;
+
+    // Steps of all the patterns, one after the other. NFA state id is the index of the next step to match, null at the end of a pattern.
+    private final Step[] steps;
+    private final State root;
+    private final State accept;
+
+    private JsonPathAutomaton(Collection<String> fieldNames, Collection<String> paths) {
+
+        this.fieldNames = List.copyOf(fieldNames);
+        this.paths = List.copyOf(paths);
+        this.fieldMatcher = SensitiveKeyMatcher.of(this.fieldNames);
+
+        List<Step> allSteps = new ArrayList<>();
+        BitSet starts = new BitSet();
+        for (String path : this.paths) {
+            starts.set(allSteps.size());
+            allSteps.addAll(parse(path));
+            allSteps.add(null);
+        }
+        this.steps = allSteps.toArray(new Step[0]);
+        this.accept = new State(true, true);
+        this.root = build(starts);
+    }
+
+    /**
+     * Compiles the given field names and JSONPath patterns, nulls and blanks are ignored.
+     * @param fieldNames names of fields to redact at any depth, may be null
+     * @param paths JSONPath patterns of values to redact, may be null
+     * @return automaton of the names and paths
+     * @throws IllegalArgumentException if a path is not valid (or not supported)
+     */
+    public static JsonPathAutomaton of(Collection<String> fieldNames, Collection<String> paths) {
+
+        List<String> names = nonBlank(fieldNames);
+        List<String> patterns = nonBlank(paths);
+        if (names.isEmpty() && patterns.isEmpty()) {
+            return NONE;
+        }
+        return new JsonPathAutomaton(names, patterns);
+    }
+
+    private static List<String> nonBlank(Collection<String> values) {
+        return values == null ? List.of() : values.stream().filter(value -> value != null && !value.isBlank()).map(String::trim).toList();
+    }
+
+    /**
+     * @return state of the root value
+     */
+    public State root() {
+        return root;
+    }
+
+    /**
+     * @return true if there is nothing to redact, that's no names and no paths
+     */
+    public boolean isEmpty() {
+        return fieldNames.isEmpty() && paths.isEmpty();
+    }
+
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    private State build(BitSet starts) {
+
+        Set<String> names = new LinkedHashSet<>();
+        for (Step step : steps) {
+            if (step != null && step.name != null) {
+                names.add(step.name);
+            }
+        }
+
+        Map<BitSet, State> states = new HashMap<>();
+        Deque<BitSet> pending = new ArrayDeque<>();
+        State start = stateFor(starts, states, pending);
+
+        while (!pending.isEmpty()) {
+            BitSet from = pending.poll();
+            State state = states.get(from);
+            if (state.redact) {
+                continue; // Value is redacted as a whole, nothing below it is walked.
+            }
+
+            BitSet other = move(from, null, false);
+            state.otherField = stateFor(other, states, pending);
+            state.element = stateFor(move(from, null, true), states, pending);
+
+            Map<String, State> fields = new HashMap<>();
+            for (String name : names) {
+                BitSet to = move(from, name, false);
+                if (!to.equals(other)) {
+                    fields.put(name, stateFor(to, states, pending));
+                }
+            }
+            state.fields = fields.isEmpty() ? Map.of() : Map.copyOf(fields);
+        }
+        return start;
+    }
+
+    private State stateFor(BitSet ids, Map<BitSet, State> states, Deque<BitSet> pending) {
+
+        State state = states.get(ids);
+        if (state == null) {
+            if (states.size() >= MAX_STATES) {
+                throw new IllegalArgumentException("LG00-R5: JSON paths " + paths + " are too complex, more than " + MAX_STATES + " states");
+            }
+            boolean redact = false;
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                redact |= steps[id] == null;
+            }
+            state = redact ? accept : new State(false, ids.isEmpty());
+            states.put(ids, state);
+            if (!redact) {
+                pending.add(ids);
+            }
+        }
+        return state;
+    }
+
+    // NFA states reached from the given ones, by a field (name null for a name not in any pattern) or an array element.
+    private BitSet move(BitSet from, String name, boolean element) {
+
+        BitSet to = new BitSet(steps.length);
+        for (int id = from.nextSetBit(0); id >= 0; id = from.nextSetBit(id + 1)) {
+            Step step = steps[id];
+            if (step == null) {
+                continue;
+            }
+            if (step.descendant) {
+                to.set(id);
+            }
+            if (step.matches(name, element)) {
+                to.set(id + 1);
+            }
+        }
+        return to;
+    }
+
+    private static List<Step> parse(String path) {
+
+        if (!path.startsWith("$")) {
+            throw invalid(path, "it must start with $");
+        }
+        List<Step> parsed = new ArrayList<>();
+        int i = 1;
+        while (i < path.length()) {
+
+            boolean descendant = false;
+            if (path.charAt(i) == '.') {
+                descendant = path.startsWith("..", i);
+                i += descendant ? 2 : 1;
+                if (i < path.length() && path.charAt(i) != '[') {
+                    int end = i;
+                    while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                        end++;
+                    }
+                    String name = path.substring(i, end);
+                    if (name.isEmpty()) {
+                        throw invalid(path, "field name is missing");
+                    }
+                    parsed.add(new Step("*".equals(name) ? null : name, false, descendant));
+                    i = end;
+                    continue;
+                }
+            }
+            if (i >= path.length() || path.charAt(i) != '[') {
+                throw invalid(path, "field name is missing");
+            }
+
+            int end = path.indexOf(']', i);
+            if (end < 0) {
+                throw invalid(path, "] is missing");
+            }
+            String selector = path.substring(i + 1, end).trim();
+            if ("*".equals(selector)) {
+                parsed.add(new Step(null, true, descendant));
+            }
+            else if (selector.length() >= 2 && (selector.charAt(0) == '\'' || selector.charAt(0) == '"')
+                    && selector.charAt(selector.length() - 1) == selector.charAt(0)) {
+                parsed.add(new Step(selector.substring(1, selector.length() - 1), false, descendant));
+            }
+            else {
+                throw invalid(path, "only [*] and ['name'] are supported in brackets");
+            }
+            i = end + 1;
+        }
+        return parsed;
+    }
+
+    private static IllegalArgumentException invalid(String path, String reason) {
+        return new IllegalArgumentException("LG00-R5: Invalid JSON path " + path + ", " + reason);
+    }
+
+    @Override
+    public String toString() {
+        return "fields=" + fieldNames + ", paths=" + paths;
+    }
+
+    /**
+     * A single step of a pattern: a field (name null for any field) or an array element, at the next level or (descendant) any level below.
+     */
+    private static final class Step {
+        private final String name;
+        private final boolean element;
+        private final boolean descendant;
+
+        private Step(String name, boolean element, boolean descendant) {
+            this.name = name;
+            this.element = element;
+            this.descendant = descendant;
+        }
+
+        private boolean matches(String fieldName, boolean arrayElement) {
+            if (element || arrayElement) {
+                return element && arrayElement;
+            }
+            return name == null || name.equals(fieldName);
+        }
+    }
+
+    /**
+     * State of the walk, at a JSON value. Immutable once the automaton is built, so it's shared by all the threads.
+     */
+    public final class State {
+
+        private final boolean redact;
+        private final boolean noPath;
+        private Map<String, State> fields = Map.of();
+        private State otherField;
+        private State element;
+
+        private State(boolean redact, boolean noPath) {
+            this.redact = redact;
+            this.noPath = noPath;
+            this.otherField = this;
+            this.element = this;
+        }
+
+        /**
+         * @return true if the value at this state is to be redacted
+         */
+        public boolean isRedact() {
+            return redact;
+        }
+
+        /**
+         * @return true if nothing below the value at this state can be redacted, so it can be copied as is
+         */
+        public boolean isDead() {
+            return noPath && fieldMatcher.isEmpty();
+        }
+
+        /**
+         * @param name field name
+         * @return state of the value of the field
+         */
+        public State field(String name) {
+            if (!fieldMatcher.isEmpty() && fieldMatcher.matches(name)) {
+                return accept;
+            }
+            State next = fields.get(name);
+            return next != null ? next : otherField;
+        }
+
+        /**
+         * @return state of the array elements
+         */
+        public State element() {
+            return element;
+        }
+    }
+}
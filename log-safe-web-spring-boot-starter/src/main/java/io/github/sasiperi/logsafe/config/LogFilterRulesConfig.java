@@ -0,0 +1,49 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import io.github.sasiperi.logsafe.logger.LogFilterRules;
+import lombok.Data;
+
+/**
+ * Include/exclude rules of the inbound (filter) logging, by request path pattern (e.g. /employees/**), HTTP method and
+ * request content type, see {@link LogFilterRules}. Empty includes mean everything is included, excludes win over includes.
+ *
+ * @author sasiperi
+ */
+@Configuration
+@ConfigurationProperties(prefix = "logsafe.logger.in")
+@Data
+@AutoConfiguration
+public class LogFilterRulesConfig {
+
+    private List<String> includePaths = new ArrayList<>();
+    private List<String> excludePaths = new ArrayList<>();
+
+    private List<String> includeMethods = new ArrayList<>();
+    private List<String> excludeMethods = new ArrayList<>();
+
+    // Apply only to the requests with a content type, that's with a body.
+    private List<String> includeContentTypes = new ArrayList<>();
+    private List<String> excludeContentTypes = new ArrayList<>();
+}
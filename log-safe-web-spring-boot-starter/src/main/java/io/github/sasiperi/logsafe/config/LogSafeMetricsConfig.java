@@ -0,0 +1,145 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+import io.github.sasiperi.logsafe.logger.AsyncLogEmitter;
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import io.github.sasiperi.logsafe.logger.LogMessageRedactor;
+import io.github.sasiperi.logsafe.logger.LogSafeMetrics;
+import io.github.sasiperi.logsafe.logger.LogSampler;
+import io.github.sasiperi.logsafe.logger.MicrometerLogSafeMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes logsafe metrics to Micrometer, only if Micrometer is on the class path.
+ * Binders are bound to the registry by Spring Boot Actuator.
+ * Stage timings of the filter are recorded through {@link LogSafeMetrics}, only when there is a {@link MeterRegistry}
+ * and logsafe.logger.metrics.enabled is not false, otherwise the filter keeps the no-op default.
+ *
+ * @author sasiperi
+ */
+@AutoConfiguration
+@ConditionalOnClass(MeterRegistry.class)
+public class LogSafeMetricsConfig {
+
+    @Bean
+    public MeterBinder logSafeAsyncEmitterMetrics(AsyncLogEmitter asyncLogEmitter) {
+
+        return registry -> {
+            Gauge.builder("logsafe.async.queue.depth", asyncLogEmitter, AsyncLogEmitter::getQueueDepth)
+                .description("Log events waiting in the async emitter queue")
+                .register(registry);
+
+            Gauge.builder("logsafe.async.queue.capacity", asyncLogEmitter, AsyncLogEmitter::getQueueCapacity)
+                .description("Capacity of the async emitter queue")
+                .register(registry);
+
+            FunctionCounter.builder("logsafe.async.submitted", asyncLogEmitter, AsyncLogEmitter::getSubmittedCount)
+                .description("Log events queued to the async emitter")
+                .register(registry);
+
+            FunctionCounter.builder("logsafe.async.dropped", asyncLogEmitter, AsyncLogEmitter::getDroppedCount)
+                .description("Log events dropped, as the async emitter queue is full (or the emitter is shut down)")
+                .tag("reason", "queue-full")
+                .register(registry);
+
+            FunctionCounter.builder("logsafe.async.dropped", asyncLogEmitter, AsyncLogEmitter::getSampledOutCount)
+                .description("Log events dropped by the SAMPLE overflow policy, only one in sample-every kept once the queue is half full")
+                .tag("reason", "sampled-out")
+                .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder logSafeBodyBufferPoolMetrics(BodyBufferPool bodyBufferPool) {
+
+        return registry -> {
+            FunctionCounter.builder("logsafe.buffer.pool.leases", bodyBufferPool, BodyBufferPool::getHitCount)
+                .description("Body buffers leased from the pool")
+                .tag("result", "hit")
+                .register(registry);
+
+            FunctionCounter.builder("logsafe.buffer.pool.leases", bodyBufferPool, BodyBufferPool::getMissCount)
+                .description("Body buffers leased from the pool")
+                .tag("result", "miss")
+                .register(registry);
+
+            Gauge.builder("logsafe.buffer.pool.idle", bodyBufferPool, BodyBufferPool::getPooledCount)
+                .description("Idle body buffers in the pool")
+                .register(registry);
+
+            Gauge.builder("logsafe.buffer.pool.idle.bytes", bodyBufferPool, BodyBufferPool::getPooledBytes)
+                .description("Bytes held by the idle body buffers in the pool")
+                .baseUnit("bytes")
+                .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder logSafeSamplingMetrics(LogSampler logSampler) {
+
+        return registry -> {
+            FunctionCounter.builder("logsafe.sampling.decisions", logSampler, LogSampler::getSampledCount)
+                .description("Requests of mapped handlers, by the sampling decision")
+                .tag("result", "sampled")
+                .register(registry);
+
+            FunctionCounter.builder("logsafe.sampling.decisions", logSampler, LogSampler::getSkippedCount)
+                .description("Requests of mapped handlers, by the sampling decision")
+                .tag("result", "skipped")
+                .register(registry);
+
+            FunctionCounter.builder("logsafe.sampling.forced", logSampler, LogSampler::getForcedCount)
+                .description("Requests not sampled, but logged as they failed or were slow")
+                .register(registry);
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "logsafe.logger.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public LogSafeMetrics logSafeMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        return registry != null ? new MicrometerLogSafeMetrics(registry) : LogSafeMetrics.NOOP;
+    }
+
+    @Bean
+    public MeterBinder logSafeRedactionMetrics(LogMessageRedactor logMessageRedactor) {
+
+        return registry -> {
+            FunctionCounter.builder("logsafe.redaction.fields", logMessageRedactor, LogMessageRedactor::getRedactedFieldCount)
+                .description("Body field values redacted, header and parameter values are not counted")
+                .register(registry);
+
+            FunctionCounter.builder("logsafe.redaction.errors", logMessageRedactor, LogMessageRedactor::getRedactionErrorCount)
+                .description("RedactionExceptions thrown by the redactor")
+                .register(registry);
+
+            FunctionCounter.builder("logsafe.redaction.truncated", logMessageRedactor, LogMessageRedactor::getTruncatedBodyCount)
+                .description("Bodies logged truncated, past the redaction limits or with a cycle")
+                .register(registry);
+        };
+    }
+}
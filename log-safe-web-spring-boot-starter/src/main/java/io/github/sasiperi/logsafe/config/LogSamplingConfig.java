@@ -0,0 +1,62 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import io.github.sasiperi.logsafe.logger.LogSampler;
+import lombok.Data;
+
+/**
+ * Configuration of per endpoint sampling of the logged requests, see {@link LogSampler}.
+ * Rate and rate limit apply to every endpoint, unless overridden for the endpoint in endpoints, keyed by the URI pattern of the
+ * mapping (e.g. [/employees/**]) or the handler (e.g. EmployeeController#getEmployee).
+ *
+ * @author sasiperi
+ */
+@Configuration
+@ConfigurationProperties(prefix = "logsafe.logger.sampling")
+@Data
+@AutoConfiguration
+public class LogSamplingConfig {
+
+    private boolean enabled = false;
+    // Fraction (0 to 1) of the requests logged.
+    private double rate = 1.0;
+    // Max requests logged per second, per endpoint, 0 is unlimited.
+    private int rateLimit = 0;
+    // Requests failed (exception or 5xx) are logged, even if not sampled, without the body.
+    private boolean alwaysLogErrors = true;
+    // Requests slower than this are logged, even if not sampled, without the body. Not set is off.
+    private Duration slowThreshold;
+
+    private Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+    /**
+     * Overrides of an endpoint, not set ones are taken from the defaults.
+     */
+    @Data
+    public static class Endpoint {
+        private Double rate;
+        private Integer rateLimit;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.config;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import io.github.sasiperi.logsafe.logger.out.OutboundLogHelper;
+import lombok.Data;
+
+/**
+ * Configuration of the outbound (HTTP client) logging, see {@link OutboundLogHelper}. Off by default.
+ * Only the headers (redacted as they are read) and a bounded copy of the body are taken on the calling thread,
+ * redaction and writing the log is done by the {@link io.github.sasiperi.logsafe.logger.AsyncLogEmitter} worker(s), even if async emission is not enabled.
+ * When they can not keep up (queue is full), log events are dropped.
+ *
+ * @author sasiperi
+ */
+@Configuration
+@ConfigurationProperties(prefix = "logsafe.logger.out")
+@Data
+@AutoConfiguration
+public class OutboundLogConfig {
+
+    private boolean enabled = false;
+    private boolean logRequest = true;
+    private boolean logResponse = true;
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.config;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import io.github.sasiperi.logsafe.logger.LogMessageRedactor;
+import lombok.Data;
+
+/**
+ * Limits of the body walk done by {@link LogMessageRedactor} (OBJECT redaction mode), so that the cost of redacting
+ * a deep, large or cyclic object graph is bounded. Output past the limits is truncated with a marker, e.g. <code>...(+N more)</code>.
+ *
+ * @author sasiperi
+ */
+@Configuration
+@ConfigurationProperties(prefix = "logsafe.logger.redaction")
+@Data
+@AutoConfiguration
+public class RedactionLimitsConfig {
+
+    // Nesting of objects, collections, maps and arrays, deeper values are logged as ...(max depth).
+    private int maxDepth = 64;
+    // Values walked per body, rest are logged as ...(truncated).
+    private int maxNodes = 50_000;
+    // Elements (entries) logged per collection, map or array, rest are summarized as ...(+N more).
+    private int maxCollectionElements = 1_000;
+
+}
@@ -21,8 +21,21 @@ import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Setter;
+import lombok.ToString;
 
+/**
+ * Names of the headers, query params and request attributes to redact, matched ignoring case.
+ * Each list is compiled into a {@link SensitiveKeyMatcher} when it's bound (or re-bound), so that redaction does not
+ * normalize the configured names, or the keys, on every request.
+ * JSON field names and JSONPath patterns (json-fields, json-paths) are compiled together into a {@link JsonPathAutomaton},
+ * applied to the body on top of {@link io.github.sasiperi.logsafe.logger.Redact}, e.g. to bodies with no DTO type (Map, JsonNode).
+ *
+ * @author sasiperi
+ */
 @Configuration
 @ConfigurationProperties(prefix = "logsafe.sensitive")
 @Data
@@ -30,6 +43,41 @@ import lombok.Data;
 public class SensitiveDataConfig {
     private List<String> headers = List.of("Authorization","x-api-key");
     private List<String> queryParams = List.of("password","apiKey","token");
-    private List<String> requestAttributes = List.of("csrfToken","refreshToken");;
-   
-}
\ No newline at end of file
+    private List<String> requestAttributes = List.of("csrfToken","refreshToken");
+    private List<String> jsonFields = List.of();
+    private List<String> jsonPaths = List.of();
+
+    @Setter(AccessLevel.NONE) @ToString.Exclude @EqualsAndHashCode.Exclude
+    private volatile SensitiveKeyMatcher headerMatcher = SensitiveKeyMatcher.of(headers);
+    @Setter(AccessLevel.NONE) @ToString.Exclude @EqualsAndHashCode.Exclude
+    private volatile SensitiveKeyMatcher queryParamMatcher = SensitiveKeyMatcher.of(queryParams);
+    @Setter(AccessLevel.NONE) @ToString.Exclude @EqualsAndHashCode.Exclude
+    private volatile SensitiveKeyMatcher requestAttributeMatcher = SensitiveKeyMatcher.of(requestAttributes);
+    @Setter(AccessLevel.NONE) @ToString.Exclude @EqualsAndHashCode.Exclude
+    private volatile JsonPathAutomaton jsonPathAutomaton = JsonPathAutomaton.of(jsonFields, jsonPaths);
+
+    public void setHeaders(List<String> headers) {
+        this.headers = headers;
+        this.headerMatcher = SensitiveKeyMatcher.of(headers);
+    }
+
+    public void setQueryParams(List<String> queryParams) {
+        this.queryParams = queryParams;
+        this.queryParamMatcher = SensitiveKeyMatcher.of(queryParams);
+    }
+
+    public void setRequestAttributes(List<String> requestAttributes) {
+        this.requestAttributes = requestAttributes;
+        this.requestAttributeMatcher = SensitiveKeyMatcher.of(requestAttributes);
+    }
+
+    public void setJsonFields(List<String> jsonFields) {
+        this.jsonFields = jsonFields;
+        this.jsonPathAutomaton = JsonPathAutomaton.of(jsonFields, jsonPaths);
+    }
+
+    public void setJsonPaths(List<String> jsonPaths) {
+        this.jsonPaths = jsonPaths;
+        this.jsonPathAutomaton = JsonPathAutomaton.of(jsonFields, jsonPaths);
+    }
+}
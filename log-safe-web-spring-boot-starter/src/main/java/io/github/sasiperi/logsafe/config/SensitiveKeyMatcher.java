@@ -0,0 +1,122 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.github.sasiperi.logsafe.config;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Case-insensitive set of sensitive keys (header, query param or attribute names), compiled once from the configured names.
+ * Keys are kept in an open addressing table, hashed with the case folded chars, so that a lookup neither lowercases
+ * the key nor allocates. ASCII chars are folded inline, any other char falls back to {@link Character} case mapping.
+ *
+ * @author sasiperi
+ */
+public final class SensitiveKeyMatcher {
+
+    private static final SensitiveKeyMatcher NONE = new SensitiveKeyMatcher(List.of());
+
+    private final String[] keys;
+    private final int[] hashes;
+    private final int mask;
+    private final List<String> names;
+
+    private SensitiveKeyMatcher(Collection<String> names) {
+        this.names = List.copyOf(names);
+        // Power of two, at least twice the number of keys, so that probing always ends on an empty slot.
+        int capacity = Integer.highestOneBit(Math.max(2, this.names.size() * 2) - 1) << 1;
+        this.keys = new String[capacity];
+        this.hashes = new int[capacity];
+        this.mask = capacity - 1;
+        for (String name : this.names) {
+            add(name);
+        }
+    }
+
+    /**
+     * Compiles the given names into a matcher, nulls and duplicates (ignoring case) are ignored.
+     * @param names sensitive key names, may be null
+     * @return matcher of the names
+     */
+    public static SensitiveKeyMatcher of(Collection<String> names) {
+        if (names == null || names.isEmpty()) {
+            return NONE;
+        }
+        return new SensitiveKeyMatcher(names.stream().filter(name -> name != null).toList());
+    }
+
+    /**
+     * @param key key to look up, may be null
+     * @return true if the key is one of the sensitive names, ignoring case
+     */
+    public boolean matches(String key) {
+        if (key == null) {
+            return false;
+        }
+        int hash = foldedHash(key);
+        for (int slot = hash & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && keys[slot].equalsIgnoreCase(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return names.isEmpty();
+    }
+
+    /**
+     * @return names this matcher was compiled from, as configured
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    private void add(String name) {
+        int hash = foldedHash(name);
+        int slot = hash & mask;
+        for (; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && keys[slot].equalsIgnoreCase(name)) {
+                return;
+            }
+        }
+        keys[slot] = name;
+        hashes[slot] = hash;
+    }
+
+    // Same chars equal under String.equalsIgnoreCase, hash the same.
+    private static int foldedHash(String key) {
+        int hash = 0;
+        for (int i = 0, length = key.length(); i < length; i++) {
+            hash = 31 * hash + fold(key.charAt(i));
+        }
+        // Spread the high bits, as the table is indexed by the low bits only.
+        return hash ^ (hash >>> 16);
+    }
+
+    private static char fold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    @Override
+    public String toString() {
+        return names.toString();
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.stereotype.Component;
+
+import io.github.sasiperi.logsafe.config.AsyncLogConfig;
+import io.github.sasiperi.logsafe.config.AsyncLogConfig.OverflowPolicy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Emits log events (deserialize, redact, format and log) off the request thread.
+ * Events are queued in a bounded queue, that's drained by dedicated worker thread(s).
+ * When the queue can not keep up, the configured {@link OverflowPolicy} is applied and dropped events are counted.
+ * If async is not enabled, events are run right away on the calling thread (same as before), unless they are submitted forced async
+ * (e.g. outbound client calls, see {@link #submit(Runnable, boolean)}), the workers are then started on the first of those.
+ * 
+ * @implNote Events must only hold content that's owned by the event (e.g. copied bytes), as the request/response
+ * is recycled by the container by the time the worker runs it.
+ * 
+ * @author sasiperi
+ */
+@Component
+@AutoConfiguration
+@Slf4j
+public class AsyncLogEmitter implements DisposableBean {
+
+    private static final long POLL_MILLIS = 100;
+    private static final long SHUTDOWN_MILLIS = 5000;
+
+    private final boolean enabled;
+    private final int workerCount;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleEvery;
+    private final long blockTimeoutNanos;
+
+    private final BlockingQueue<Runnable> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+    private volatile boolean started;
+    // Set once shut down, workers are gone (or leaving) then, so nothing is queued anymore.
+    private volatile boolean stopped;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    public AsyncLogEmitter(AsyncLogConfig asyncLogConfig) {
+
+        this.enabled = asyncLogConfig.isEnabled();
+        this.workerCount = Math.max(1, asyncLogConfig.getWorkers());
+        this.queueCapacity = Math.max(1, asyncLogConfig.getQueueCapacity());
+        this.overflowPolicy = asyncLogConfig.getOverflowPolicy();
+        this.sampleEvery = Math.max(1, asyncLogConfig.getSampleEvery());
+        this.blockTimeoutNanos = asyncLogConfig.getBlockTimeout().toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        if (enabled) {
+            start();
+        }
+    }
+
+    private synchronized void start() {
+
+        if (started || stopped) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::drain, "logsafe-log-emitter-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        started = true;
+    }
+
+    public boolean isAsync() {
+        return enabled;
+    }
+
+    /**
+     * Submits the log event. Runs it on the calling thread if async is not enabled.
+     * @param event log event (expected to handle its own exceptions)
+     * @return true if the event is run or queued, false if it's dropped by the overflow policy.
+     * @implNote Once shut down, the event is run on the calling thread, as there is no worker left to run it.
+     */
+    public boolean submit(Runnable event) {
+        return submit(event, false);
+    }
+
+    /**
+     * Submits the log event, same as {@link #submit(Runnable)}.
+     * @param event log event (expected to handle its own exceptions)
+     * @param forceAsync true to queue the event even if async is not enabled, for callers that must not run (or wait for) the event,
+     * e.g. an event loop. {@link OverflowPolicy#BLOCK} drops such an event right away, instead of waiting for space.
+     * Once shut down, such an event is dropped (and counted as dropped).
+     * @return true if the event is run or queued, false if it's dropped by the overflow policy or shut down.
+     */
+    public boolean submit(Runnable event, boolean forceAsync) {
+
+        if ((!enabled || stopped) && !forceAsync) {
+            event.run();
+            return true;
+        }
+        if (stopped) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (!started) {
+            start();
+        }
+
+        boolean queued;
+        switch (overflowPolicy) {
+            case BLOCK:
+                queued = forceAsync ? queue.offer(event) : offerWaiting(event);
+                break;
+            case SAMPLE:
+                if (queue.size() >= queueCapacity / 2 && sampleCounter.incrementAndGet() % sampleEvery != 0) {
+                    sampledOut.incrementAndGet();
+                    return false;
+                }
+                queued = queue.offer(event);
+                break;
+            default:
+                queued = queue.offer(event);
+        }
+
+        // Shut down meanwhile, the workers may have left already, taken back unless a worker got it.
+        if (queued && stopped && queue.remove(event)) {
+            queued = false;
+        }
+        if (queued) {
+            submitted.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+        return queued;
+    }
+
+    private boolean offerWaiting(Runnable event) {
+        try {
+            return queue.offer(event, blockTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void drain() {
+        // Keep going after shutdown, until the queue is empty, so that the events already accepted are not lost.
+        while (running || !queue.isEmpty()) {
+            try {
+                Runnable event = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (event != null) {
+                    event.run();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                log.warn("LG004: Failed to emit log event with error: ", e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+
+        stopped = true;
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(SHUTDOWN_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return enabled || started ? queueCapacity : 0;
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getSampledOutCount() {
+        return sampledOut.get();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.stereotype.Component;
+
+import io.github.sasiperi.logsafe.config.BodyBufferPoolConfig;
+
+/**
+ * Pool of heap buffers, that request/response bodies are cached into for logging.
+ * Buffers are pooled in size classes (min-buffer-bytes, 4x each next, up to max-body-bytes), leased when the body is cached
+ * and released when the request is done, so large bodies don't allocate (and churn young gen) per request.
+ * Leases larger than the largest class, or with the pool disabled, are plain allocations.
+ * 
+ * @implNote A buffer is cleared (the part that's used) when it's released, so that the next lease does not carry the previous body,
+ * yet it's the same array, so nothing must hold on to it (or a view of it) after release. Content that outlives the request
+ * (e.g. async logging) must be copied.
+ * 
+ * @author sasiperi
+ */
+@Component
+@AutoConfiguration
+public class BodyBufferPool {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final boolean enabled;
+    private final int[] sizeClasses;
+    private final List<BlockingQueue<byte[]>> pools = new ArrayList<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public BodyBufferPool(BodyBufferPoolConfig bufferPoolConfig, @Value("${logsafe.logger.max-body-bytes:1048576}") int maxBodyBytes) {
+
+        this.enabled = bufferPoolConfig.isEnabled();
+
+        List<Integer> classes = new ArrayList<>();
+        long size = Math.max(1, bufferPoolConfig.getMinBufferBytes());
+        do {
+            classes.add((int) Math.min(size, maxBodyBytes));
+            size *= 4;
+        } while (classes.get(classes.size() - 1) < maxBodyBytes);
+
+        this.sizeClasses = classes.stream().mapToInt(Integer::intValue).toArray();
+        for (int i = 0; i < sizeClasses.length; i++) {
+            pools.add(new ArrayBlockingQueue<>(Math.max(1, bufferPoolConfig.getMaxBuffersPerClass())));
+        }
+    }
+
+    /**
+     * Leases a buffer of at least the given capacity, it can be larger (size of the class).
+     * @param minCapacity min capacity of the buffer
+     * @return pooled buffer if there is one idle in the class, otherwise a new one.
+     */
+    public byte[] lease(int minCapacity) {
+
+        if (minCapacity <= 0) {
+            return EMPTY;
+        }
+
+        int sizeClass = sizeClassOf(minCapacity);
+        if (!enabled || sizeClass < 0) {
+            misses.incrementAndGet();
+            return new byte[minCapacity];
+        }
+
+        byte[] buffer = pools.get(sizeClass).poll();
+        if (buffer != null) {
+            hits.incrementAndGet();
+            return buffer;
+        }
+        misses.incrementAndGet();
+        return new byte[sizeClasses[sizeClass]];
+    }
+
+    /**
+     * Returns the buffer to its class, if it's from one (and there is room), otherwise it's left to GC. The whole buffer is cleared.
+     * @param buffer leased buffer
+     */
+    public void release(byte[] buffer) {
+        release(buffer, buffer != null ? buffer.length : 0);
+    }
+
+    /**
+     * Returns the buffer to its class, if it's from one (and there is room), otherwise it's left to GC.
+     * @param buffer leased buffer
+     * @param length number of bytes written to the buffer (from 0), they are cleared before the buffer is pooled
+     */
+    public void release(byte[] buffer, int length) {
+
+        if (!enabled || buffer == null || buffer.length == 0) {
+            return;
+        }
+        int sizeClass = sizeClassOf(buffer.length);
+        if (sizeClass >= 0 && sizeClasses[sizeClass] == buffer.length) {
+            Arrays.fill(buffer, 0, Math.min(Math.max(length, 0), buffer.length), (byte) 0);
+            pools.get(sizeClass).offer(buffer);
+        }
+    }
+
+    private int sizeClassOf(int capacity) {
+        for (int i = 0; i < sizeClasses.length; i++) {
+            if (capacity <= sizeClasses[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of idle buffers, across all the classes.
+     */
+    public int getPooledCount() {
+        int pooled = 0;
+        for (BlockingQueue<byte[]> pool : pools) {
+            pooled += pool.size();
+        }
+        return pooled;
+    }
+
+    /**
+     * @return bytes held by the idle buffers, across all the classes.
+     */
+    public long getPooledBytes() {
+        long pooledBytes = 0;
+        for (int i = 0; i < sizeClasses.length; i++) {
+            pooledBytes += (long) pools.get(i).size() * sizeClasses[i];
+        }
+        return pooledBytes;
+    }
+}
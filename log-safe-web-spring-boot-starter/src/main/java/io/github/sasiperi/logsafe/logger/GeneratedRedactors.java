@@ -0,0 +1,102 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registry of the compile time generated {@link Redactor}s, loaded once through {@link ServiceLoader}.
+ * Lookup is by exact class, cached in a {@link ClassValue}, so an unknown type costs a map lookup only once.
+ *
+ * @author sasiperi
+ */
+@Slf4j
+final class GeneratedRedactors {
+
+    private final Map<Class<?>, Redactor<?>> redactors;
+
+    private final ClassValue<Redactor<Object>> byType = new ClassValue<>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Redactor<Object> computeValue(Class<?> type) {
+            return (Redactor<Object>) redactors.get(type);
+        }
+    };
+
+    private GeneratedRedactors(Map<Class<?>, Redactor<?>> redactors) {
+        this.redactors = redactors;
+    }
+
+    /**
+     * Loads the generated redactors visible to the given class loader.
+     * A redactor that can't be loaded (e.g. stale index entry) is skipped, its type is then redacted reflectively.
+     * @param classLoader to look up <code>META-INF/services</code> index with
+     * @return registry
+     */
+    @SuppressWarnings("rawtypes")
+    static GeneratedRedactors load(ClassLoader classLoader) {
+
+        Map<Class<?>, Redactor<?>> redactors = new HashMap<>();
+        Iterator<Redactor> iterator = ServiceLoader.load(Redactor.class, classLoader).iterator();
+        try {
+            while (iterator.hasNext()) {
+                try {
+                    Redactor<?> redactor = iterator.next();
+                    redactors.put(redactor.getType(), redactor);
+                }catch(ServiceConfigurationError | LinkageError e)
+                {
+                    log.warn("LG00-R6: Generated redactor could not be loaded, type will be redacted reflectively {}", e.getMessage());
+                }
+            }
+        }catch(ServiceConfigurationError e)
+        {
+            log.warn("LG00-R6: Generated redactors index could not be read, types will be redacted reflectively {}", e.getMessage());
+        }
+
+        log.debug("LG00-R-TR3: {} generated redactor(s) loaded", redactors.size());
+        return new GeneratedRedactors(Map.copyOf(redactors));
+    }
+
+    /**
+     * @param redactors redactors to use, e.g. in tests
+     * @return registry
+     */
+    static GeneratedRedactors of(Redactor<?>... redactors) {
+        Map<Class<?>, Redactor<?>> byClass = new HashMap<>();
+        for (Redactor<?> redactor : redactors) {
+            byClass.put(redactor.getType(), redactor);
+        }
+        return new GeneratedRedactors(Map.copyOf(byClass));
+    }
+
+    /**
+     * @param type DTO class
+     * @return generated redactor of the exact type, null if there is none
+     */
+    Redactor<Object> find(Class<?> type) {
+        return byType.get(type);
+    }
+
+    int size() {
+        return redactors.size();
+    }
+}
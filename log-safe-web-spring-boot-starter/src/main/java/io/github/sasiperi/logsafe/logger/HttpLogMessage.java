@@ -16,10 +16,10 @@
 package io.github.sasiperi.logsafe.logger;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.Builder;
 import lombok.Data;
@@ -33,21 +33,19 @@ public class HttpLogMessage
    String httpMethod;
    String uri;
    String remoteHost;
+   // Status of an outbound (client) response, not set for inbound messages.
+   Integer status;
    Map<String,String> headers;
    Map<String,String> requestParams;
    Map<String,Object> requestAttributes;
    
    Object body;
    
-   @Override
-   public String toString() {
-       try {
-           return new ObjectMapper().writeValueAsString(this);
-       }catch(Exception e) {
-           return "Could not serialize HttpLogMessage: "+ e.getMessage();
-       }
-       
-   }
+   // Headers, params and attributes were redacted while extracted, so the redactor does not walk them again.
+   @JsonIgnore
+   boolean keysRedacted;
+   
+   // toString() is the plain field dump of @Data, for debugging only. Log events are written as JSON by LogEventWriter, with the application mapper.
    
 }
 
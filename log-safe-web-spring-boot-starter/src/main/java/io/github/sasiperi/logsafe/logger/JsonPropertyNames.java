@@ -0,0 +1,74 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Names of the DTO fields in JSON payloads, as the application's {@link ObjectMapper} writes and reads them.
+ * Names are taken from Jackson's own introspection, so the mapper's PropertyNamingStrategy (e.g. SNAKE_CASE),
+ * <code>@JsonNaming</code>, and <code>@JsonProperty</code> on fields, getters or record components all apply.
+ * Resolved once per class, cached in a {@link ClassValue}.
+ *
+ * @author sasiperi
+ */
+@Slf4j
+final class JsonPropertyNames {
+
+    private final SerializationConfig config;
+
+    // Field (internal) name to JSON (external) name, per class.
+    private final ClassValue<Map<String, String>> names = new ClassValue<>() {
+        @Override
+        protected Map<String, String> computeValue(Class<?> type) {
+            return resolve(type);
+        }
+    };
+
+    JsonPropertyNames(ObjectMapper objectMapper) {
+        this.config = objectMapper.getSerializationConfig();
+    }
+
+    /**
+     * @param type DTO class
+     * @param fieldName name of the field (or record component)
+     * @return name of the field in JSON payloads, the field name itself if Jackson does not see it as a property (e.g. not visible)
+     */
+    String jsonName(Class<?> type, String fieldName) {
+        return names.get(type).getOrDefault(fieldName, fieldName);
+    }
+
+    private Map<String, String> resolve(Class<?> type) {
+
+        Map<String, String> resolved = new HashMap<>();
+        try {
+            for (BeanPropertyDefinition property : config.introspect(config.constructType(type)).findProperties()) {
+                resolved.put(property.getInternalName(), property.getName());
+            }
+        }catch(RuntimeException e)
+        {
+            log.warn("LG00-R7: JSON property names of {} could not be resolved, field names are used {}", type.getName(), e.getMessage());
+        }
+        return Map.copyOf(resolved);
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+/**
+ * How a request/response log event is handed to the logging backend.
+ * - MESSAGE: {@link HttpLogMessage} is serialized to a JSON String and logged as the argument of "REQUEST DATA: {}".
+ * - STRUCTURED: Fields of the {@link HttpLogMessage} are logged as SLF4J key/value pairs of the event, body as the (redacted) JSON tree,
+ *   so a structured encoder (e.g. Logstash/ECS JSON encoder) writes them once, straight to its output, not as an escaped JSON String.
+ *   See {@link LogEventWriter}.
+ *
+ * @author sasiperi
+ */
+public enum LogEmissionMode
+{
+    MESSAGE,
+    STRUCTURED
+}
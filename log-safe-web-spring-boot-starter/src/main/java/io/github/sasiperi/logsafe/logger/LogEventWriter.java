@@ -0,0 +1,121 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import org.slf4j.Logger;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Writes the request/response log events, as configured by logsafe.logger.emission, see {@link LogEmissionMode}.
+ * Events are logged to the logger of the caller (e.g. HttpLogFilterHelper), so the logger names and levels stay as they are.
+ * @implNote With {@link LogEmissionMode#STRUCTURED} the message is just the event name (e.g. "REQUEST DATA"), httpMethod, uri,
+ * remoteHost, headers, requestParams, requestAttributes and body (a {@link RedactedJsonBody}) are key/value pairs of the event,
+ * null ones are left out, same as in the JSON of {@link HttpLogMessage}. With {@link LogEmissionMode#MESSAGE} the message is written
+ * as JSON by the writer of {@link LogSafeJsonMapper}, only when info is enabled.
+ *
+ * @author sasiperi
+ */
+@Component
+@AutoConfiguration
+public class LogEventWriter {
+
+    private final LogEmissionMode emission;
+    private final ObjectWriter messageWriter;
+
+    @Autowired
+    public LogEventWriter(@Value("${logsafe.logger.emission:MESSAGE}") LogEmissionMode emission, LogSafeJsonMapper jsonMapper) {
+        this.emission = emission;
+        this.messageWriter = jsonMapper.getLogMessageWriter();
+    }
+
+    /**
+     * @return true if the body is to be kept as a {@link RedactedJsonBody}, and fields logged as key/value pairs
+     */
+    public boolean isStructured() {
+        return emission == LogEmissionMode.STRUCTURED;
+    }
+
+    /**
+     * Logs the (redacted) message at info level.
+     * @param log logger of the caller
+     * @param event event name, e.g. REQUEST DATA
+     * @param httpLogMessage redacted message
+     */
+    public void write(Logger log, String event, HttpLogMessage httpLogMessage) {
+
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        if (!isStructured()) {
+            log.info("{}: {}", event, toJson(httpLogMessage));
+            return;
+        }
+        addFields(log.atInfo().setMessage(event), httpLogMessage).log();
+    }
+
+    /**
+     * Same as {@link #write(Logger, String, HttpLogMessage)}, with why it's logged, e.g. a request not sampled that failed.
+     * @param log logger of the caller
+     * @param event event name, e.g. REQUEST DATA
+     * @param reason why it's logged, e.g. error or slow
+     * @param status response status
+     * @param httpLogMessage redacted message
+     */
+    public void write(Logger log, String event, String reason, int status, HttpLogMessage httpLogMessage) {
+
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        if (!isStructured()) {
+            log.info("{} ({}, status {}): {}", event, reason, status, toJson(httpLogMessage));
+            return;
+        }
+        addFields(log.atInfo().setMessage(event).addKeyValue("reason", reason).addKeyValue("status", status), httpLogMessage).log();
+    }
+
+    private String toJson(HttpLogMessage httpLogMessage) {
+        try {
+            return messageWriter.writeValueAsString(httpLogMessage);
+        } catch (Exception e) {
+            return "Could not serialize HttpLogMessage: " + e.getMessage();
+        }
+    }
+
+    private static LoggingEventBuilder addFields(LoggingEventBuilder event, HttpLogMessage httpLogMessage) {
+
+        addField(event, "httpMethod", httpLogMessage.getHttpMethod());
+        addField(event, "uri", httpLogMessage.getUri());
+        addField(event, "remoteHost", httpLogMessage.getRemoteHost());
+        addField(event, "status", httpLogMessage.getStatus());
+        addField(event, "headers", httpLogMessage.getHeaders());
+        addField(event, "requestParams", httpLogMessage.getRequestParams());
+        addField(event, "requestAttributes", httpLogMessage.getRequestAttributes());
+        addField(event, "body", httpLogMessage.getBody());
+        return event;
+    }
+
+    private static void addField(LoggingEventBuilder event, String key, Object value) {
+        if (value != null) {
+            event.addKeyValue(key, value);
+        }
+    }
+}
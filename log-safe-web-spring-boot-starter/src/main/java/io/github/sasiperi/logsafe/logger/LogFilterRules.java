@@ -0,0 +1,159 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import io.github.sasiperi.logsafe.config.LogFilterRulesConfig;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Include/exclude rules of {@link LogFilterRulesConfig}, compiled once (path patterns parsed, methods upper cased, media types parsed),
+ * so a request is matched without any parsing of the rules. Evaluated by the filters right after the handler is resolved,
+ * before the request/response is wrapped, a request excluded is passed on as is.
+ *
+ * @author sasiperi
+ */
+@Component
+@AutoConfiguration
+@Slf4j
+public class LogFilterRules {
+
+    private final List<PathPattern> includePaths;
+    private final List<PathPattern> excludePaths;
+    private final Set<String> includeMethods;
+    private final Set<String> excludeMethods;
+    private final List<MediaType> includeContentTypes;
+    private final List<MediaType> excludeContentTypes;
+
+    private final boolean active;
+
+    public LogFilterRules(LogFilterRulesConfig rulesConfig) {
+
+        this.includePaths = parsePaths(rulesConfig.getIncludePaths());
+        this.excludePaths = parsePaths(rulesConfig.getExcludePaths());
+        this.includeMethods = upperCase(rulesConfig.getIncludeMethods());
+        this.excludeMethods = upperCase(rulesConfig.getExcludeMethods());
+        this.includeContentTypes = MediaType.parseMediaTypes(rulesConfig.getIncludeContentTypes());
+        this.excludeContentTypes = MediaType.parseMediaTypes(rulesConfig.getExcludeContentTypes());
+
+        this.active = hasPathRules() || !includeMethods.isEmpty() || !excludeMethods.isEmpty()
+                || !includeContentTypes.isEmpty() || !excludeContentTypes.isEmpty();
+    }
+
+    private static List<PathPattern> parsePaths(List<String> patterns) {
+        return patterns.stream().filter(StringUtils::hasText).map(PathPatternParser.defaultInstance::parse).toList();
+    }
+
+    private static Set<String> upperCase(List<String> methods) {
+        return methods.stream().filter(StringUtils::hasText).map(method -> method.trim().toUpperCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * @return true if any rule is configured, if not, every request is included and there is no need to evaluate.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @return true if there are path rules, that's the request path is needed to evaluate.
+     */
+    public boolean hasPathRules() {
+        return !includePaths.isEmpty() || !excludePaths.isEmpty();
+    }
+
+    /**
+     * @param method HTTP method of the request
+     * @param contentType content type header of the request, null if none
+     * @param path path of the request, within the application, may be null if there are no path rules
+     * @return true if the request is excluded from logging
+     */
+    public boolean isExcluded(String method, String contentType, PathContainer path) {
+
+        if (!active) {
+            return false;
+        }
+
+        if (!includeMethods.isEmpty() && !includeMethods.contains(method)) {
+            return true;
+        }
+        if (excludeMethods.contains(method)) {
+            return true;
+        }
+
+        if (path != null) {
+            if (!includePaths.isEmpty() && !matchesAny(includePaths, path)) {
+                return true;
+            }
+            if (matchesAny(excludePaths, path)) {
+                return true;
+            }
+        }
+
+        if (StringUtils.hasText(contentType) && (!includeContentTypes.isEmpty() || !excludeContentTypes.isEmpty())) {
+            MediaType mediaType = parseMediaType(contentType);
+            if (mediaType != null) {
+                if (!includeContentTypes.isEmpty() && !includesAny(includeContentTypes, mediaType)) {
+                    return true;
+                }
+                return includesAny(excludeContentTypes, mediaType);
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean matchesAny(List<PathPattern> patterns, PathContainer path) {
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean includesAny(List<MediaType> mediaTypes, MediaType mediaType) {
+        for (MediaType candidate : mediaTypes) {
+            if (candidate.includes(mediaType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Parsed media types are cached by Spring (MimeTypeUtils), so the same content type is not parsed over and over.
+    private static MediaType parseMediaType(String contentType) {
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            log.debug("Invalid content type {}, content type rules are not applied", contentType);
+            return null;
+        }
+    }
+}
@@ -15,30 +15,45 @@
  */
 package io.github.sasiperi.logsafe.logger;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 
+import io.github.sasiperi.logsafe.config.JsonPathAutomaton;
+import io.github.sasiperi.logsafe.config.RedactionLimitsConfig;
 import io.github.sasiperi.logsafe.config.SensitiveDataConfig;
+import io.github.sasiperi.logsafe.config.SensitiveKeyMatcher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 /**
  * This class redacts any HttpRequest and/or HttpResponses are being logged.
  * This takes {@link HttpLogMessage} as input.
  * Redacts any fields in HttpHeaders, HttpParams and HttpRequestAttributes based on the configuration via application properties.
- * Redacts body based on the fields marked as {@link @Redact}
+ * Redacts body based on the fields marked as {@link @Redact}, and the configured JSON field names/paths ({@link JsonPathAutomaton}),
+ * the latter apply to untyped bodies too (e.g. Map or JsonNode).
+ * DTOs with a compile time generated {@link Redactor} are read through it, others reflectively through their {@link RedactionPlan}.
+ * With {@link RedactionMode#SERIALIZER} the body is not walked, it's redacted while serialized, see {@link RedactionModule}.
+ * The walk is bounded by {@link RedactionLimitsConfig} (depth, values, elements per container) and cuts cycles, see {@link TraversalBudget}.
  * 
  * @author sasiperi
  * @since 11.20.2023
@@ -50,51 +65,218 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class LogMessageRedactor {
     
-    private static final ObjectMapper objectMapper = new ObjectMapper();
-    private static final String REDACTED = "[REDACTED]";
+    public static final String REDACTED = "[REDACTED]";
 
     private final String packageNameToScan;
     private final SensitiveDataConfig sensitiveData;
+    private final ObjectWriter writer;
+    private final StreamingJsonRedactor streamingRedactor;
+    // JSON names of the DTO fields, as the application's mapper names them, to match the configured JSON paths.
+    private final JsonPropertyNames propertyNames;
+    private final GeneratedRedactors generatedRedactors;
+    // Writer with RedactionModule, only with RedactionMode.SERIALIZER, otherwise null.
+    private final ObjectWriter redactingWriter;
+
+    private final LongAdder redactedFieldCount = new LongAdder();
+    private final LongAdder redactionErrorCount = new LongAdder();
+    private final LongAdder truncatedBodyCount = new LongAdder();
+
+    private RedactionLimitsConfig redactionLimits = new RedactionLimitsConfig();
 
     // Constructor for dependency injection
+	@Autowired
 	public LogMessageRedactor(@Value("${logsafe.logger.base-package-name}") String packageNameToScan,
-			SensitiveDataConfig sensitiveData) {
+			SensitiveDataConfig sensitiveData, LogSafeJsonMapper jsonMapper,
+			@Value("${logsafe.logger.redaction-mode:OBJECT}") RedactionMode redactionMode) {
+		// Application classes (and their generated redactors) may be in a child class loader, e.g. devtools restart loader.
+		this(packageNameToScan, sensitiveData, jsonMapper, redactionMode, GeneratedRedactors.load(ClassUtils.getDefaultClassLoader()));
+	}
+
+	LogMessageRedactor(String packageNameToScan, SensitiveDataConfig sensitiveData, LogSafeJsonMapper jsonMapper,
+			RedactionMode redactionMode, GeneratedRedactors generatedRedactors) {
 
 		this.packageNameToScan = packageNameToScan;
 		this.sensitiveData = sensitiveData;
+		this.writer = jsonMapper.getWriter();
+		this.propertyNames = new JsonPropertyNames(jsonMapper.getObjectMapper());
+		this.streamingRedactor = new StreamingJsonRedactor(packageNameToScan, jsonMapper.getObjectMapper(), propertyNames);
+		this.generatedRedactors = generatedRedactors;
+		this.redactingWriter = redactionMode == RedactionMode.SERIALIZER ? redactingWriter(jsonMapper.getObjectMapper()) : null;
 	}
 
+	public LogMessageRedactor(String packageNameToScan, SensitiveDataConfig sensitiveData, LogSafeJsonMapper jsonMapper) {
+		this(packageNameToScan, sensitiveData, jsonMapper, RedactionMode.OBJECT);
+	}
+
+	// On a copy, the application's mapper (and its serializer cache) is left as is.
+	private ObjectWriter redactingWriter(ObjectMapper objectMapper) {
+		try {
+			return objectMapper.copy().registerModule(new RedactionModule(redactedFieldCount)).writer()
+					.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		}catch(IllegalStateException e)
+		{
+			log.warn("LG005-R3: ObjectMapper {} can't be copied, bodies will be redacted as OBJECT {}", objectMapper.getClass().getName(), e.getMessage());
+			return null;
+		}
+	}
+
+    /**
+     * @param redactionLimits limits of the body walk, defaults apply when not set
+     */
+    @Autowired(required = false)
+    public void setRedactionLimits(RedactionLimitsConfig redactionLimits) {
+        this.redactionLimits = redactionLimits;
+    }
+
     public HttpLogMessage redactLogMessage(HttpLogMessage httpLogMessage) throws RedactionException {
+        return redactLogMessage(httpLogMessage, false);
+    }
+
+    /**
+     * Same as {@link #redactLogMessage(HttpLogMessage)}, but the body is left as the redacted tree (a {@link RedactedJsonBody}),
+     * not serialized to a JSON String, so that a structured encoder writes it once. See {@link LogEmissionMode#STRUCTURED}.
+     * @param httpLogMessage message to redact
+     * @return redacted message
+     * @throws RedactionException if the message could not be redacted
+     */
+    public HttpLogMessage redactLogMessageToTree(HttpLogMessage httpLogMessage) throws RedactionException {
+        return redactLogMessage(httpLogMessage, true);
+    }
+
+    private HttpLogMessage redactLogMessage(HttpLogMessage httpLogMessage, boolean bodyAsTree) throws RedactionException {
        
-        //redact headers
-        if(httpLogMessage.getHeaders() != null)
+        // Skipped, when already redacted while extracted from the request/response, see isSensitiveHeader.
+        if(!httpLogMessage.isKeysRedacted())
         {
-            Map<String, String> headers = redactSensitiveFields(httpLogMessage.getHeaders(), sensitiveData.getHeaders());
-            httpLogMessage.setHeaders(headers);
-        }
+            //redact headers
+            if(httpLogMessage.getHeaders() != null)
+            {
+                Map<String, String> headers = redactSensitiveFields(httpLogMessage.getHeaders(), sensitiveData.getHeaderMatcher());
+                httpLogMessage.setHeaders(headers);
+            }
         
-        //redact request params
-        if(httpLogMessage.getRequestParams() != null )
-        {
-            Map<String, String> reqParams = redactSensitiveFields(httpLogMessage.getRequestParams(), sensitiveData.getQueryParams());
-            httpLogMessage.setRequestParams(reqParams);
-        }
+            //redact request params
+            if(httpLogMessage.getRequestParams() != null )
+            {
+                Map<String, String> reqParams = redactSensitiveFields(httpLogMessage.getRequestParams(), sensitiveData.getQueryParamMatcher());
+                httpLogMessage.setRequestParams(reqParams);
+            }
         
         
-        //redact request attributes
-        if(httpLogMessage.getRequestAttributes() != null)
-        {
-            Map<String, Object> reqAttribs = redactSensitiveFields(httpLogMessage.getRequestAttributes(), sensitiveData.getRequestAttributes());
-            httpLogMessage.setRequestAttributes(reqAttribs);
+            //redact request attributes
+            if(httpLogMessage.getRequestAttributes() != null)
+            {
+                Map<String, Object> reqAttribs = redactSensitiveFields(httpLogMessage.getRequestAttributes(), sensitiveData.getRequestAttributeMatcher());
+                httpLogMessage.setRequestAttributes(reqAttribs);
+            }
         }
-       
         
-        redactBody(httpLogMessage);
+        redactBody(httpLogMessage, bodyAsTree);
         
         return httpLogMessage;
     }
 
-    private void redactBody(HttpLogMessage httpLogMessage) throws RedactionException{
+    /**
+     * @param name header name
+     * @return true if the value of the header is to be logged as {@link #REDACTED}, name is matched ignoring case.
+     */
+    public boolean isSensitiveHeader(String name) {
+        return sensitiveData.getHeaderMatcher().matches(name);
+    }
+    
+    /**
+     * @param name query (request) param name
+     * @return true if the value of the param is to be logged as {@link #REDACTED}, name is matched ignoring case.
+     */
+    public boolean isSensitiveQueryParam(String name) {
+        return sensitiveData.getQueryParamMatcher().matches(name);
+    }
+    
+    /**
+     * @param name request attribute name
+     * @return true if the value of the attribute is to be logged as {@link #REDACTED}, name is matched ignoring case.
+     */
+    public boolean isSensitiveRequestAttribute(String name) {
+        return sensitiveData.getRequestAttributeMatcher().matches(name);
+    }
+
+    /**
+     * @return number of body field values redacted so far, by either redaction mode
+     */
+    public long getRedactedFieldCount() {
+        return redactedFieldCount.sum() + streamingRedactor.getRedactedFieldCount();
+    }
+
+    /**
+     * @return number of bodies logged truncated so far, as they were past the walk limits (depth, nodes, elements) or had a cycle
+     */
+    public long getTruncatedBodyCount() {
+        return truncatedBodyCount.sum();
+    }
+
+    /**
+     * @return number of {@link RedactionException}s thrown so far
+     */
+    public long getRedactionErrorCount() {
+        return redactionErrorCount.sum();
+    }
+
+    /**
+     * Redacts raw JSON body (e.g. cached request/response bytes) in a single streaming pass, without binding it to the DTO type.
+     * Used with {@link RedactionMode#STREAMING}.
+     * @param content JSON bytes
+     * @param offset offset of the content in the array
+     * @param length length of the content
+     * @param type declared type of the body (e.g. {@link org.springframework.web.bind.annotation.RequestBody} type)
+     * @return redacted JSON body
+     * @throws IOException if the content is not a valid JSON
+     */
+    public String redactJson(byte[] content, int offset, int length, JavaType type) throws IOException {
+        return streamingRedactor.redact(content, offset, length, type, sensitiveData.getJsonPathAutomaton());
+    }
+
+    /**
+     * Same as {@link #redactJson}, for {@link LogEmissionMode#STRUCTURED} events: the content is only checked to be well formed here,
+     * it's redacted when the encoder writes the event, straight into the encoder's generator, see {@link RedactedJsonBody}.
+     * The content is copied, so the caller's buffer can be released (or reused) right after.
+     * @param content JSON bytes
+     * @param offset offset of the content in the array
+     * @param length length of the content
+     * @param type declared type of the body, unknown type (Object) to redact by the JSON field names/paths only
+     * @return body that's redacted while it's written
+     * @throws IOException if the content is not a valid JSON
+     */
+    public RedactedJsonBody redactJsonBody(byte[] content, int offset, int length, JavaType type) throws IOException {
+        streamingRedactor.checkJson(content, offset, length);
+        return RedactedJsonBody.ofJson(Arrays.copyOfRange(content, offset, offset + length), type, this);
+    }
+
+    // Writes the redacted content of a RedactedJsonBody into the encoder's generator.
+    void redactJson(byte[] content, JavaType type, JsonGenerator generator) throws IOException {
+        streamingRedactor.redactInto(content, 0, content.length, type, sensitiveData.getJsonPathAutomaton(), generator);
+    }
+
+    /**
+     * Same as {@link #redactJson}, for JSON with no declared type, e.g. an error body that's not of the handler's return type.
+     * Only the configured JSON field names/paths are redacted.
+     * @param content JSON bytes
+     * @param offset offset of the content in the array
+     * @param length length of the content
+     * @return redacted JSON
+     * @throws IOException if the content is not a valid JSON
+     */
+    public String redactUntypedJson(byte[] content, int offset, int length) throws IOException {
+        return redactJson(content, offset, length, TypeFactory.unknownType());
+    }
+
+    /**
+     * @return true if JSON field names or paths are configured, see logsafe.sensitive.json-fields/json-paths
+     */
+    public boolean hasJsonPathRules() {
+        return !sensitiveData.getJsonPathAutomaton().isEmpty();
+    }
+
+    private void redactBody(HttpLogMessage httpLogMessage, boolean bodyAsTree) throws RedactionException{
         try 
         {
             Object body = httpLogMessage.getBody();
@@ -102,79 +284,129 @@ public class LogMessageRedactor {
             if(body == null)//this means either the body is not supported content type (!JSON) OR body has nothing.
                 return;
             
-            // Recursively process the object
-            Object redactedObject = processObject(body);
+            // Redacted while serialized, straight from the original object. JSON paths need the walk below, to know where a value is.
+            if(redactingWriter != null && !hasJsonPathRules())
+            {
+                httpLogMessage.setBody(bodyAsTree ? RedactedJsonBody.ofValue(body, redactingWriter) : redactingWriter.writeValueAsString(body));
+                return;
+            }
+            
+            // Recursively process the object, within the limits of the budget
+            JsonPathAutomaton.State path = sensitiveData.getJsonPathAutomaton().root();
+            TraversalBudget budget = new TraversalBudget(redactionLimits);
+            Object redactedObject = path.isRedact() ? REDACTED : processObject(body, path, budget);
+            if(budget.isTruncated())
+            {
+                truncatedBodyCount.increment();
+                log.debug("LG005-R4: Body of {} is logged truncated, past the redaction limits or has a cycle", body.getClass().getName());
+            }
+            
+            if(bodyAsTree)
+            {
+                httpLogMessage.setBody(RedactedJsonBody.ofTree(redactedObject, writer));
+                return;
+            }
             
-            String sanitizedBody  = objectMapper.writeValueAsString(redactedObject);
+            String sanitizedBody  = writer.writeValueAsString(redactedObject);
             httpLogMessage.setBody(sanitizedBody);
             
         } catch (Exception e) {
+            redactionErrorCount.increment();
             throw new RedactionException("LG005-R2: Error redacting sensitive fields", e);
         }
     }
     
-    private Object processObject(Object object) throws IllegalAccessException {
+    // Path is the state of the configured JSON field names/paths at this object, see JsonPathAutomaton.
+    private Object processObject(Object object, JsonPathAutomaton.State path, TraversalBudget budget) throws IllegalAccessException {
         if (object == null)
             return null;
         
+        if (!budget.visit())
+            return TraversalBudget.TRUNCATED;
+        
+        // Handle all others such as primitive types, enums or generic objects etc..
+        // That's still application/json compatable (as we filtered allowed mimes in the begining) 
+        if (!isWalked(object, path))
+            return object;
+        
+        // Cycles and too deep nesting are cut here, with a marker in place of the container.
+        String marker = budget.enter(object);
+        if (marker != null)
+            return marker;
+        
+        try {
+            return processContainer(object, path, budget);
+        } finally {
+            budget.exit(object);
+        }
+    }
+    
+    private boolean isWalked(Object object, JsonPathAutomaton.State path) {
+        return isDTO(object) || object instanceof Collection<?> || object instanceof Map<?, ?>
+                || (object instanceof JsonNode && ((JsonNode) object).isContainerNode() && !path.isDead())
+                || object.getClass().isArray();
+    }
+    
+    private boolean isDTO(Object object) {
+        return object.getClass().getName().startsWith(packageNameToScan) && !(object instanceof Enum);
+    }
+    
+    private Object processContainer(Object object, JsonPathAutomaton.State path, TraversalBudget budget) throws IllegalAccessException {
+        
         // ResponseEntity Type a DTO
-        if (object.getClass().getName().startsWith(packageNameToScan) && !(object instanceof Enum) ) {
+        if (isDTO(object)) {
          // Handle regular objects (POJOs)
-            return processDTO(object);
+            return processDTO(object, path, budget);
         }
 
         // Handle collections (2nd more likely)
         if (object instanceof Collection<?>) {
-            return processCollection((Collection<?>) object);
+            return processCollection((Collection<?>) object, path, budget);
         }
 
         // Handle maps
         if (object instanceof Map<?, ?>) {
-            return processMap((Map<?, ?>) object);
+            return processMap((Map<?, ?>) object, path, budget);
         }
         
-        // Handle arrays (adding at the end, chances of reaching here is very less likely or zero.)
-        if (object.getClass().isArray()) {
-            return processArray(object);
+        // Untyped body (e.g. @RequestBody JsonNode), walked only if a configured path can match in it.
+        if (object instanceof JsonNode) {
+            return processJsonNode((JsonNode) object, path, budget);
         }
         
-        // Handle all others such as primitive types, enums or generic objects etc..
-        // That's still application/json compatable (as we filtered allowed mimes in the begining) 
-        return object;
-        
+        // Handle arrays (adding at the end, chances of reaching here is very less likely or zero.)
+        return processArray(object, path, budget);
     }
 
    
     
-    private  Map<String, Object> processDTO(Object object) throws SecurityException{
-        Map<String, Object> redactedMap = new HashMap<>();
+    private  Map<String, Object> processDTO(Object object, JsonPathAutomaton.State path, TraversalBudget budget) throws SecurityException{
         
         log.trace(" LG00-R-TR1: CLASS Name IS: {} ", object.getClass().getName());
+        
+        // Compile time generated redactor (see Redactor), if there is one for the exact class. Reads the fields with plain calls.
+        Class<?> type = object.getClass();
+        Redactor<Object> generated = generatedRedactors.find(type);
+        if (generated != null) {
+            DtoFieldSink sink = new DtoFieldSink(type, path, budget, new HashMap<>(mapCapacity(generated.getFieldCount())));
+            try {
+                generated.redact(object, sink);
+                return sink.redactedMap;
+            } catch (RuntimeException e) {
+                // A getter threw, the reflective loop below skips only the field that fails (LG00-R3), not the whole object.
+                log.warn("LG00-R6: Generated redactor of {} failed, object will be redacted reflectively {}", type.getName(), e.getMessage());
+            }
+        }
+        
+        // Fields, accessibility and @Redact flags are resolved once per class, only the values are read here.
+        RedactionPlan.RedactableField[] fields = RedactionPlan.of(type).fieldArray();
+        Map<String, Object> redactedMap = new HashMap<>(mapCapacity(fields.length));
 
-        for (Field field : object.getClass().getDeclaredFields()) {
+        for (RedactionPlan.RedactableField field : fields) {
            
             try {
                 
-                if (field == null || Modifier.isFinal(field.getModifiers())) {
-                    continue; // Skip nulls and final fields, to protect immutability.
-                }
-                
-                field.setAccessible(true);
-                Object fieldValue = field.get(object);
-                
-                if(fieldValue != null)
-                {
-                    if (field.isAnnotationPresent(Redact.class)) {
-                        // Redact sensitive fields
-                        redactedMap.put(field.getName(), REDACTED);
-                    } else {
-
-                        log.trace("LG00-R-TR2: Field  Name: {}", fieldValue.getClass().getName());
-                        // Recursively process nested objects
-                        redactedMap.put(field.getName(), processObject(fieldValue));
-                    } 
-                }
-                
+                redactField(redactedMap, field.getName(), propertyNames.jsonName(type, field.getName()), field.read(object), field.isRedact(), path, budget);
                 
             }catch(Exception e)
             {
@@ -186,53 +418,173 @@ public class LogMessageRedactor {
         return redactedMap;
     }
     
-    private static <V> Map<String, V> redactSensitiveFields(Map<String, V> data, List<String> sensitiveFields) 
+    private void redactField(Map<String, Object> redactedMap, String name, String jsonName, Object fieldValue, boolean redact,
+            JsonPathAutomaton.State path, TraversalBudget budget) throws IllegalAccessException {
+        
+        if(fieldValue != null)
+        {
+            JsonPathAutomaton.State valuePath = path.field(jsonName);
+            if (redact || valuePath.isRedact()) {
+                // Redact sensitive fields
+                redactedMap.put(name, REDACTED);
+                redactedFieldCount.increment();
+            } else {
+
+                log.trace("LG00-R-TR2: Field  Name: {}", fieldValue.getClass().getName());
+                // Recursively process nested objects
+                redactedMap.put(name, processObject(fieldValue, valuePath, budget));
+            } 
+        }
+    }
+    
+    /**
+     * Collects the fields handed by a generated {@link Redactor}, same as the reflective loop of processDTO.
+     */
+    private final class DtoFieldSink implements Redactor.FieldSink {
+        
+        private final Class<?> type;
+        private final JsonPathAutomaton.State path;
+        private final TraversalBudget budget;
+        private final Map<String, Object> redactedMap;
+        
+        private DtoFieldSink(Class<?> type, JsonPathAutomaton.State path, TraversalBudget budget, Map<String, Object> redactedMap) {
+            this.type = type;
+            this.path = path;
+            this.budget = budget;
+            this.redactedMap = redactedMap;
+        }
+        
+        @Override
+        public void field(String name, Object value, boolean redact) {
+            try {
+                redactField(redactedMap, name, propertyNames.jsonName(type, name), value, redact, path, budget);
+            }catch(Exception e)
+            {
+                log.warn("LG00-R3:  Error during redaction of the field {} {}" , name, e.getMessage());
+            }
+        }
+    }
+    
+    // Initial capacity of a HashMap to hold the given number of entries, without re-hashing.
+    private static int mapCapacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+    
+    /**
+     * Copies the map with the values of sensitive keys redacted, in a single pass (same as the filter builds its header map).
+     * The caller's map is never modified, it may be unmodifiable or still in use.
+     */
+    @SuppressWarnings("unchecked")
+    private <V> Map<String, V> redactSensitiveFields(Map<String, V> data, SensitiveKeyMatcher sensitiveKeys)
             throws RedactionException{
-            
-        try 
+
+        if(sensitiveKeys.isEmpty())
         {
-          // Normalize sensitive fields to lowercase once
-          Set<String> normalizedSensitiveFields = sensitiveFields.stream()
-                                                    .map(String::toLowerCase)
-                                                    .collect(Collectors.toSet()); 
-            
-            return data.entrySet().stream()
-                    .collect(Collectors.toMap(
-                            Map.Entry::getKey,
-                            entry -> normalizedSensitiveFields.contains(entry.getKey().toLowerCase()) 
-                                    ? (V) REDACTED : entry.getValue()
-                    ));
+            return data;
+        }
+
+        try
+        {
+            Map<String, V> redacted = new HashMap<>(mapCapacity(data.size()));
+            for (Map.Entry<String, V> entry : data.entrySet()) {
+                redacted.put(entry.getKey(), sensitiveKeys.matches(entry.getKey()) ? (V) REDACTED : entry.getValue());
+            }
+            return redacted;
         }catch(Exception e)
         {
+            redactionErrorCount.increment();
             throw new RedactionException("LG005-R1: Error redacting sensitive fields", e);
         }
-       
+
     }
     
-    private Object processArray(Object array) throws IllegalAccessException {
+    // Elements past max-collection-elements (or the node budget) are summarized with a single ...(+N more) element.
+    private Object processArray(Object array, JsonPathAutomaton.State path, TraversalBudget budget) throws IllegalAccessException {
         int length = java.lang.reflect.Array.getLength(array);
-        Object[] redactedArray = new Object[length];
+        JsonPathAutomaton.State elementPath = path.element();
+        List<Object> redactedArray = new ArrayList<>(Math.min(length, budget.getMaxElements()) + 1);
         for (int i = 0; i < length; i++) {
+            if (!budget.hasRoomFor(i)) {
+                redactedArray.add(budget.more(length - i));
+                break;
+            }
             Object element = java.lang.reflect.Array.get(array, i);
-            redactedArray[i] = processObject(element);
+            redactedArray.add(redactedOrProcessed(element, elementPath, budget));
         }
         return redactedArray;
     }
 
-    private Collection<?> processCollection(Collection<?> collection) throws IllegalAccessException {
-        Collection<Object> redactedCollection = new ArrayList<>();
+    private Collection<?> processCollection(Collection<?> collection, JsonPathAutomaton.State path, TraversalBudget budget) throws IllegalAccessException {
+        JsonPathAutomaton.State elementPath = path.element();
+        int size = collection.size();
+        Collection<Object> redactedCollection = new ArrayList<>(Math.min(size, budget.getMaxElements()) + 1);
+        int index = 0;
         for (Object item : collection) {
-            redactedCollection.add(processObject(item));
+            if (!budget.hasRoomFor(index)) {
+                redactedCollection.add(budget.more(size - index));
+                break;
+            }
+            redactedCollection.add(redactedOrProcessed(item, elementPath, budget));
+            index++;
         }
         return redactedCollection;
     }
 
-    private Map<?, ?> processMap(Map<?, ?> map) throws IllegalAccessException {
-        Map<Object, Object> redactedMap = new HashMap<>();
+    private Map<?, ?> processMap(Map<?, ?> map, JsonPathAutomaton.State path, TraversalBudget budget) throws IllegalAccessException {
+        int size = map.size();
+        Map<Object, Object> redactedMap = new HashMap<>(mapCapacity(Math.min(size, budget.getMaxElements()) + 1));
+        int index = 0;
         for (Map.Entry<?, ?> entry : map.entrySet()) {
-            redactedMap.put(entry.getKey(), processObject(entry.getValue()));
+            if (!budget.hasRoomFor(index)) {
+                redactedMap.put(TraversalBudget.MORE_KEY, budget.more(size - index));
+                break;
+            }
+            redactedMap.put(entry.getKey(), redactedOrProcessed(entry.getValue(), path.field(String.valueOf(entry.getKey())), budget));
+            index++;
+        }
+        return redactedMap;
+    }
+
+    private Object processJsonNode(JsonNode node, JsonPathAutomaton.State path, TraversalBudget budget) throws IllegalAccessException {
+        if (path.isDead() || node.isValueNode()) {
+            return node;
+        }
+        int size = node.size();
+        if (node.isArray()) {
+            JsonPathAutomaton.State elementPath = path.element();
+            List<Object> redactedList = new ArrayList<>(Math.min(size, budget.getMaxElements()) + 1);
+            int index = 0;
+            for (JsonNode element : node) {
+                if (!budget.hasRoomFor(index)) {
+                    redactedList.add(budget.more(size - index));
+                    break;
+                }
+                redactedList.add(element.isNull() ? element : redactedOrProcessed(element, elementPath, budget));
+                index++;
+            }
+            return redactedList;
+        }
+        Map<String, Object> redactedMap = new LinkedHashMap<>(mapCapacity(Math.min(size, budget.getMaxElements()) + 1));
+        int index = 0;
+        for (Map.Entry<String, JsonNode> field : node.properties()) {
+            if (!budget.hasRoomFor(index)) {
+                redactedMap.put(TraversalBudget.MORE_KEY, budget.more(size - index));
+                break;
+            }
+            JsonNode value = field.getValue();
+            redactedMap.put(field.getKey(), value.isNull() ? value : redactedOrProcessed(value, path.field(field.getKey()), budget));
+            index++;
         }
         return redactedMap;
     }
+
+    // Value matching a configured JSON field name/path is redacted as a whole.
+    private Object redactedOrProcessed(Object value, JsonPathAutomaton.State path, TraversalBudget budget) throws IllegalAccessException {
+        if (value != null && path.isRedact()) {
+            redactedFieldCount.increment();
+            return REDACTED;
+        }
+        return processObject(value, path, budget);
+    }
     
 }
\ No newline at end of file
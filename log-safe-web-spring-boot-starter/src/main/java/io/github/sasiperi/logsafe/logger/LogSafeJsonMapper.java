@@ -0,0 +1,88 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+/**
+ * Single source of (thread safe, immutable) Jackson readers/writers used by log-safe.
+ * Built on the application's {@link ObjectMapper} when there is one (so the configured modules, e.g. java time, are honored),
+ * otherwise on a dedicated mapper. Readers are created once per DTO type, and the writer of {@link HttpLogMessage} once,
+ * for {@link LogEventWriter}, so no mapper is created (and no serializer cache is thrown away) per log line.
+ *
+ * @author sasiperi
+ */
+@Component
+@AutoConfiguration
+public class LogSafeJsonMapper {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final ObjectWriter logMessageWriter;
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LogSafeJsonMapper(ObjectProvider<ObjectMapper> objectMapperProvider) {
+        this(objectMapperProvider.getIfAvailable(ObjectMapper::new));
+    }
+
+    public LogSafeJsonMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writer();
+        this.logMessageWriter = objectMapper.writerFor(HttpLogMessage.class);
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    public TypeFactory getTypeFactory() {
+        return objectMapper.getTypeFactory();
+    }
+
+    /**
+     * @return shared writer, to serialize (redacted) bodies.
+     */
+    public ObjectWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * @return shared writer of {@link HttpLogMessage}, to write the log line as JSON.
+     */
+    public ObjectWriter getLogMessageWriter() {
+        return logMessageWriter;
+    }
+
+    /**
+     * @param type DTO type to read
+     * @return shared reader of the given type, created on the first call for the type.
+     */
+    public ObjectReader readerFor(Class<?> type) {
+        return readers.computeIfAbsent(type, objectMapper::readerFor);
+    }
+}
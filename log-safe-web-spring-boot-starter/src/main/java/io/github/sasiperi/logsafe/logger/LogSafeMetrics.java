@@ -0,0 +1,102 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * Instrumentation surface of the logging overhead, that's where the time goes (per {@link Stage}, per handler), bytes captured
+ * and the LG00x error paths taken. {@link #NOOP} (the default) does nothing, {@link #start()} does not even read the clock,
+ * so it costs next to nothing when metrics are not published. See {@link MicrometerLogSafeMetrics}.
+ *
+ * @author sasiperi
+ */
+public interface LogSafeMetrics {
+
+    LogSafeMetrics NOOP = new LogSafeMetrics() {};
+
+    /**
+     * Stages of logging a request/response, each timed separately.
+     */
+    enum Stage {
+        // Time the filter adds to the request, that's all of the below done on the request thread, without the rest of the chain.
+        FILTER("filter"),
+        // Reading (caching) the request body up front.
+        CAPTURE("capture"),
+        // Binding the body to the handler's DTO type.
+        DESERIALIZE("deserialize"),
+        // Redacting the log message, see LogMessageRedactor.
+        REDACT("redact"),
+        // Writing the log.
+        EMIT("emit");
+
+        private final String tagValue;
+
+        Stage(String tagValue) {
+            this.tagValue = tagValue;
+        }
+
+        public String getTagValue() {
+            return tagValue;
+        }
+    }
+
+    /**
+     * @return true if metrics are recorded
+     */
+    default boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * @return start time of a stage, to be passed on to {@link #stop}
+     */
+    default long start() {
+        return 0L;
+    }
+
+    /**
+     * Records the time taken by the stage, since start.
+     * @param stage stage timed
+     * @param handlerMethod handler of the request
+     * @param start as returned by {@link #start()}
+     */
+    default void stop(Stage stage, HandlerMethod handlerMethod, long start) {
+    }
+
+    /**
+     * Same as {@link #stop}, with the time already measured, e.g. less the time of the filter chain.
+     * @param stage stage timed
+     * @param handlerMethod handler of the request
+     * @param nanos time taken
+     */
+    default void record(Stage stage, HandlerMethod handlerMethod, long nanos) {
+    }
+
+    /**
+     * @param handlerMethod handler of the request
+     * @param request true for the request body, false for the response body
+     * @param bytes body bytes captured to log
+     */
+    default void recordBytesCaptured(HandlerMethod handlerMethod, boolean request, long bytes) {
+    }
+
+    /**
+     * @param code error code of the path taken, e.g. LG002-01
+     */
+    default void recordError(String code) {
+    }
+}
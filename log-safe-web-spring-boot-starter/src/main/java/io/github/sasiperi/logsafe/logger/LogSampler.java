@@ -0,0 +1,206 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.method.HandlerMethod;
+
+import io.github.sasiperi.logsafe.config.LogSamplingConfig;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides, per handler method (endpoint), whether a request is logged at all. The decision is made right after the handler is
+ * resolved, before the request/response is wrapped or any body is buffered, so a request that's not sampled costs a map lookup.
+ * An endpoint is sampled at a fixed rate, then (if set) rate limited by a token bucket of rate-limit tokens per second.
+ * Requests not sampled can still be logged (without body) if they fail or are slow, see {@link #alwaysLogReason}.
+ *
+ * @author sasiperi
+ */
+@Component
+@AutoConfiguration
+@Slf4j
+public class LogSampler {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final LogSamplingConfig samplingConfig;
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    // Keyed by the method, as HandlerMethod instances are re-created (e.g. bean resolved) per request.
+    private final Map<Method, EndpointSampler> samplers = new ConcurrentHashMap<>();
+
+    private final AtomicLong sampledCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong forcedCount = new AtomicLong();
+
+    public LogSampler(LogSamplingConfig samplingConfig) {
+        this.samplingConfig = samplingConfig;
+        this.enabled = samplingConfig.isEnabled();
+        this.slowThresholdNanos = samplingConfig.getSlowThreshold() != null ? samplingConfig.getSlowThreshold().toNanos() : -1;
+    }
+
+    /**
+     * Resolves the sampling rule of the handler method ahead, from the URI patterns it's mapped to.
+     * Handler methods not registered are resolved on first use, by handler name only.
+     * @param handlerMethod mapped handler method
+     * @param patterns URI patterns of the mapping
+     */
+    public void register(HandlerMethod handlerMethod, Collection<String> patterns) {
+        if (enabled) {
+            samplers.computeIfAbsent(handlerMethod.getMethod(), method -> newSampler(handlerMethod, patterns));
+        }
+    }
+
+    /**
+     * @param handlerMethod handler of the request
+     * @return true if the request is to be logged
+     */
+    public boolean sample(HandlerMethod handlerMethod) {
+
+        if (!enabled) {
+            return true;
+        }
+        EndpointSampler sampler = samplers.computeIfAbsent(handlerMethod.getMethod(), method -> newSampler(handlerMethod, List.of()));
+        if (sampler.sample()) {
+            sampledCount.incrementAndGet();
+            return true;
+        }
+        skippedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @return true if a request that's not sampled, may still be logged once done, that's the outcome is worth tracking.
+     */
+    public boolean isOutcomeLogged() {
+        return enabled && (samplingConfig.isAlwaysLogErrors() || slowThresholdNanos >= 0);
+    }
+
+    /**
+     * Decides, once a request (not sampled) is done, whether it's still logged.
+     * @param failed true if the request failed with an exception
+     * @param status HTTP status of the response
+     * @param elapsedNanos time taken by the request
+     * @return reason to log (error or slow), null if not to be logged
+     */
+    public String alwaysLogReason(boolean failed, int status, long elapsedNanos) {
+
+        String reason = null;
+        if (samplingConfig.isAlwaysLogErrors() && (failed || status >= 500)) {
+            reason = "error";
+        } else if (slowThresholdNanos >= 0 && elapsedNanos > slowThresholdNanos) {
+            reason = "slow";
+        }
+        if (reason != null) {
+            forcedCount.incrementAndGet();
+        }
+        return reason;
+    }
+
+    private EndpointSampler newSampler(HandlerMethod handlerMethod, Collection<String> patterns) {
+
+        String handlerName = handlerMethod.getBeanType().getSimpleName() + "#" + handlerMethod.getMethod().getName();
+        LogSamplingConfig.Endpoint endpoint = findEndpoint(handlerName, patterns);
+
+        double rate = endpoint != null && endpoint.getRate() != null ? endpoint.getRate() : samplingConfig.getRate();
+        int rateLimit = endpoint != null && endpoint.getRateLimit() != null ? endpoint.getRateLimit() : samplingConfig.getRateLimit();
+        log.debug("Sampling {} at rate {}, rate limit {}/s", handlerName, rate, rateLimit);
+        return new EndpointSampler(rate, rateLimit);
+    }
+
+    // First endpoint (in the configured order) that names the handler, or matches one of its URI patterns.
+    private LogSamplingConfig.Endpoint findEndpoint(String handlerName, Collection<String> patterns) {
+
+        for (Map.Entry<String, LogSamplingConfig.Endpoint> endpoint : samplingConfig.getEndpoints().entrySet()) {
+            String key = endpoint.getKey();
+            if (key.equals(handlerName)) {
+                return endpoint.getValue();
+            }
+            for (String pattern : patterns) {
+                if (key.equals(pattern) || pathMatcher.match(key, pattern)) {
+                    return endpoint.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    public long getSampledCount() {
+        return sampledCount.get();
+    }
+
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    public long getForcedCount() {
+        return forcedCount.get();
+    }
+
+    /**
+     * Fixed rate sampler, with an optional token bucket (GCRA style, a single CAS per request, no lock and no refill thread).
+     */
+    static final class EndpointSampler {
+
+        private final double rate;
+        private final long nanosPerToken;
+        private final long burstNanos;
+        // Time at which the bucket would be full (empty of debt) again, the bucket is empty while now is behind it by burstNanos.
+        private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+        EndpointSampler(double rate, int rateLimit) {
+            this.rate = rate;
+            this.nanosPerToken = rateLimit > 0 ? NANOS_PER_SECOND / rateLimit : 0;
+            // Burst of up to a second worth of tokens.
+            this.burstNanos = NANOS_PER_SECOND - nanosPerToken;
+        }
+
+        boolean sample() {
+
+            if (rate < 1.0 && (rate <= 0.0 || ThreadLocalRandom.current().nextDouble() >= rate)) {
+                return false;
+            }
+            return nanosPerToken == 0 || tryAcquire(System.nanoTime());
+        }
+
+        boolean tryAcquire(long now) {
+
+            while (true) {
+                long arrival = theoreticalArrival.get();
+                long start = arrival == Long.MIN_VALUE || arrival - now < 0 ? now : arrival;
+                if (start - now > burstNanos) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(arrival, start + nanosPerToken)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
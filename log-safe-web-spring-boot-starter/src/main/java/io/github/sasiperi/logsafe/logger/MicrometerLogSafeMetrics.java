@@ -0,0 +1,122 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.web.method.HandlerMethod;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * {@link LogSafeMetrics} published to Micrometer, created only when Micrometer is on the class path and there is a {@link MeterRegistry}.
+ * Stage timers (logsafe.filter.stage) and body bytes (logsafe.body.captured) are tagged by handler (e.g. EmployeeController#getEmployee),
+ * errors (logsafe.errors) by code. Meters are looked up once per handler method, and then kept, so recording is a map lookup and an array index.
+ *
+ * @author sasiperi
+ */
+public final class MicrometerLogSafeMetrics implements LogSafeMetrics {
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final MeterRegistry registry;
+
+    // Keyed by the method, as HandlerMethod instances are re-created (e.g. bean resolved) per request.
+    private final Map<Method, HandlerMeters> handlerMeters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+
+    public MicrometerLogSafeMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public long start() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void stop(Stage stage, HandlerMethod handlerMethod, long start) {
+        record(stage, handlerMethod, System.nanoTime() - start);
+    }
+
+    @Override
+    public void record(Stage stage, HandlerMethod handlerMethod, long nanos) {
+        if (handlerMethod != null) {
+            metersOf(handlerMethod).timers[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void recordBytesCaptured(HandlerMethod handlerMethod, boolean request, long bytes) {
+        if (handlerMethod != null) {
+            HandlerMeters meters = metersOf(handlerMethod);
+            (request ? meters.requestBytes : meters.responseBytes).record(bytes);
+        }
+    }
+
+    @Override
+    public void recordError(String code) {
+        errors.computeIfAbsent(code, key -> Counter.builder("logsafe.errors")
+                .description("LG00x error paths taken while logging")
+                .tag("code", key)
+                .register(registry))
+            .increment();
+    }
+
+    private HandlerMeters metersOf(HandlerMethod handlerMethod) {
+        return handlerMeters.computeIfAbsent(handlerMethod.getMethod(),
+                method -> new HandlerMeters(handlerMethod.getBeanType().getSimpleName() + "#" + method.getName()));
+    }
+
+    private final class HandlerMeters {
+
+        private final Timer[] timers = new Timer[STAGES.length];
+        private final DistributionSummary requestBytes;
+        private final DistributionSummary responseBytes;
+
+        private HandlerMeters(String handler) {
+            for (Stage stage : STAGES) {
+                timers[stage.ordinal()] = Timer.builder("logsafe.filter.stage")
+                        .description("Time taken by logsafe to log requests/responses, by stage")
+                        .tag("stage", stage.getTagValue())
+                        .tag("handler", handler)
+                        .register(registry);
+            }
+            this.requestBytes = bodyBytes(handler, "request");
+            this.responseBytes = bodyBytes(handler, "response");
+        }
+
+        private DistributionSummary bodyBytes(String handler, String direction) {
+            return DistributionSummary.builder("logsafe.body.captured")
+                    .description("Body bytes captured to log")
+                    .baseUnit("bytes")
+                    .tag("direction", direction)
+                    .tag("handler", handler)
+                    .register(registry);
+        }
+    }
+}
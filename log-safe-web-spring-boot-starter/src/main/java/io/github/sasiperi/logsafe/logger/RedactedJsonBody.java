@@ -0,0 +1,105 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * Redacted body of a structured log event (see {@link LogEmissionMode#STRUCTURED}), that's either the redacted tree
+ * (maps, collections and values, as walked by {@link LogMessageRedactor}), the original body redacted while it's serialized
+ * (see {@link RedactionModule}) or the captured JSON bytes, redacted by {@link StreamingJsonRedactor} while they're written.
+ * A JSON encoder writes it through {@link #serialize}, into its own generator, always as nested JSON,
+ * so the body is neither turned into an intermediate String nor escaped again. {@link #toString()} is only for plain text layouts.
+ *
+ * @author sasiperi
+ */
+public final class RedactedJsonBody extends JsonSerializable.Base {
+
+    private final Object tree;
+    private final ObjectWriter writer;
+    private final boolean redactingWriter;
+
+    private final byte[] json;
+    private final JavaType jsonType;
+    private final LogMessageRedactor jsonRedactor;
+
+    private RedactedJsonBody(Object tree, ObjectWriter writer, boolean redactingWriter, byte[] json, JavaType jsonType, LogMessageRedactor jsonRedactor) {
+        this.tree = tree;
+        this.writer = writer;
+        this.redactingWriter = redactingWriter;
+        this.json = json;
+        this.jsonType = jsonType;
+        this.jsonRedactor = jsonRedactor;
+    }
+
+    /**
+     * @param tree redacted body
+     * @param writer writer, to render the body for a plain text layout
+     * @return body written as nested JSON
+     */
+    public static RedactedJsonBody ofTree(Object tree, ObjectWriter writer) {
+        return new RedactedJsonBody(tree, writer, false, null, null, null);
+    }
+
+    /**
+     * @param body original (not redacted) body
+     * @param redactingWriter writer with {@link RedactionModule}, the body is always written through it, also into the encoder's generator
+     * @return body written as nested JSON, redacted while it's written
+     */
+    public static RedactedJsonBody ofValue(Object body, ObjectWriter redactingWriter) {
+        return new RedactedJsonBody(body, redactingWriter, true, null, null, null);
+    }
+
+    // Created by LogMessageRedactor#redactJsonBody, with a well formed copy of the captured body.
+    static RedactedJsonBody ofJson(byte[] json, JavaType type, LogMessageRedactor redactor) {
+        return new RedactedJsonBody(null, null, false, json, type, redactor);
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+        if (json != null) {
+            jsonRedactor.redactJson(json, jsonType, generator);
+        } else if (redactingWriter) {
+            writer.writeValue(generator, tree);
+        } else {
+            serializers.defaultSerializeValue(tree, generator);
+        }
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+        serialize(generator, serializers);
+    }
+
+    @Override
+    public String toString() {
+        try {
+            if (json != null) {
+                return jsonRedactor.redactJson(json, 0, json.length, jsonType);
+            }
+            return writer.writeValueAsString(tree);
+        } catch (Exception e) {
+            return "Could not serialize body: " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+/**
+ * How the request/response body is redacted before it's logged.
+ * - OBJECT: Body is deserialized into the handler's {@link org.springframework.web.bind.annotation.RequestBody} / return type,
+ *   walked into maps with {@link Redact} fields masked and serialized back to JSON.
+ * - STREAMING: Body is never bound to a DTO. JSON tokens are copied from the cached body bytes to the output in a single pass,
+ *   values at the {@link Redact} paths of the declared type are replaced while copying. See {@link StreamingJsonRedactor}.
+ * - SERIALIZER: Body is deserialized as with OBJECT, but not walked into maps. It's serialized as is, with a writer that replaces
+ *   {@link Redact} values while writing, see {@link RedactionModule}. Logged as Jackson serializes it (property names, order and inclusion).
+ *   With JSON field names/paths configured, the body is redacted as with OBJECT.
+ *
+ * @author sasiperi
+ */
+public enum RedactionMode
+{
+    OBJECT,
+    STREAMING,
+    SERIALIZER
+}
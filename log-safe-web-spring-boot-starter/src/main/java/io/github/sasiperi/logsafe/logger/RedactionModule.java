@@ -0,0 +1,156 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Jackson module that writes {@link LogMessageRedactor#REDACTED} in place of the value of every (non null) {@link Redact} property,
+ * so that a DTO is redacted while it's serialized, in a single {@link com.fasterxml.jackson.databind.ObjectWriter#writeValue} over the original object.
+ * The property writers are swapped once per class, when Jackson builds (and caches) the bean serializer, a redacted value is never read into JSON.
+ * Used with {@link RedactionMode#SERIALIZER}, registered on a copy of the application's mapper, never on the application's mapper itself.
+ *
+ * @author sasiperi
+ */
+public class RedactionModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient LongAdder redactedFieldCount;
+
+    /**
+     * @param redactedFieldCount incremented for every value redacted
+     */
+    public RedactionModule(LongAdder redactedFieldCount) {
+        super(RedactionModule.class.getSimpleName());
+        this.redactedFieldCount = redactedFieldCount;
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        super.setupModule(context);
+        context.addBeanSerializerModifier(new RedactingSerializerModifier(new RedactedValueSerializer(redactedFieldCount)));
+    }
+
+    private static final class RedactingSerializerModifier extends BeanSerializerModifier {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RedactedValueSerializer redactedValueSerializer;
+
+        private RedactingSerializerModifier(RedactedValueSerializer redactedValueSerializer) {
+            this.redactedValueSerializer = redactedValueSerializer;
+        }
+
+        @Override
+        public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+            for (int i = 0; i < beanProperties.size(); i++) {
+                BeanPropertyWriter writer = beanProperties.get(i);
+                if (isRedact(writer, beanDesc)) {
+                    beanProperties.set(i, new RedactedPropertyWriter(writer, redactedValueSerializer));
+                }
+            }
+            return beanProperties;
+        }
+
+        // @Redact is on the field, while the property is usually written through its getter.
+        private static boolean isRedact(BeanPropertyWriter writer, BeanDescription beanDesc) {
+            if (writer.getAnnotation(Redact.class) != null) {
+                return true;
+            }
+            for (BeanPropertyDefinition property : beanDesc.findProperties()) {
+                if (property.getName().equals(writer.getName())) {
+                    if (property.getField() != null) {
+                        return property.getField().hasAnnotation(Redact.class);
+                    }
+                    return beanDesc.getBeanClass().isRecord() && isRedactRecordComponent(beanDesc.getBeanClass(), property.getInternalName());
+                }
+            }
+            return false;
+        }
+
+        // Jackson does not take the (private) field of a record component as a property, @Redact is only on that field.
+        private static boolean isRedactRecordComponent(Class<?> recordType, String componentName) {
+            try {
+                return recordType.getDeclaredField(componentName).isAnnotationPresent(Redact.class);
+            }catch(NoSuchFieldException | SecurityException e)
+            {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Property writer with the constant serializer, replacing any serializer the property had (e.g. <code>@JsonSerialize(using)</code>).
+     * Inclusion rules (e.g. NON_NULL), views and the property name are kept.
+     */
+    private static final class RedactedPropertyWriter extends BeanPropertyWriter {
+
+        private static final long serialVersionUID = 1L;
+
+        private RedactedPropertyWriter(BeanPropertyWriter base, RedactedValueSerializer serializer) {
+            super(base);
+            this._serializer = serializer;
+        }
+
+        private RedactedPropertyWriter(RedactedPropertyWriter base, PropertyName name) {
+            super(base, name);
+        }
+
+        @Override
+        protected BeanPropertyWriter _new(PropertyName newName) {
+            return new RedactedPropertyWriter(this, newName);
+        }
+    }
+
+    private static final class RedactedValueSerializer extends StdSerializer<Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient LongAdder redactedFieldCount;
+
+        private RedactedValueSerializer(LongAdder redactedFieldCount) {
+            super(Object.class);
+            this.redactedFieldCount = redactedFieldCount;
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeString(LogMessageRedactor.REDACTED);
+            redactedFieldCount.increment();
+        }
+
+        @Override
+        public void serializeWithType(Object value, JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+            // No type id, the value is replaced as a whole.
+            serialize(value, generator, provider);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pre-resolved redaction metadata of a DTO class, that's the fields to log and whether each of them is marked {@link Redact}.
+ * A plan is built once per class (cached in a {@link ClassValue}), so the reflective work
+ * (getDeclaredFields, setAccessible, modifiers and annotation lookups) is not repeated for every request.
+ * Fields declared in super classes are included, super class fields first. A field that's shadowed by a sub class is taken from the sub class.
+ * Each field is read through a {@link MethodHandle} getter created once with the plan, instead of {@link Field#get(Object)}.
+ * The getters are instance fields, not static final constants, so the JIT does not inline them into the traversal;
+ * for that, use the redactors generated by log-safe-redaction-processor, see {@link Redactor}.
+ * Final fields (e.g. Lombok <code>@Value</code> DTOs) are included, they are only read. Components of a record are read through
+ * their canonical accessors, in declaration order, same as Jackson serializes them.
+ *
+ * @author sasiperi
+ * @since 11.20.2023
+ */
+@Slf4j
+public final class RedactionPlan {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<RedactionPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected RedactionPlan computeValue(Class<?> type) {
+            return new RedactionPlan(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final List<RedactableField> fields;
+    // Same as fields, kept as an array, so that the hot path can iterate without an iterator.
+    private final RedactableField[] fieldArray;
+
+    private RedactionPlan(Class<?> type) {
+        this.type = type;
+        this.fields = resolveFields(type);
+        this.fieldArray = fields.toArray(new RedactableField[0]);
+    }
+
+    /**
+     * Returns the (cached) plan of the given class. Plan is resolved only on the first call for a given class.
+     * @param type DTO class
+     * @return redaction plan of the type
+     */
+    public static RedactionPlan of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public List<RedactableField> getFields() {
+        return fields;
+    }
+
+    RedactableField[] fieldArray() {
+        return fieldArray;
+    }
+
+    private static List<RedactableField> resolveFields(Class<?> type) {
+
+        if (type.isRecord()) {
+            return resolveRecordComponents(type);
+        }
+
+        // Walk up the hierarchy first, so that super class fields come first and sub class fields override (shadow) them by name.
+        Deque<Class<?>> hierarchy = new ArrayDeque<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.push(current);
+        }
+
+        Map<String, RedactableField> resolved = new LinkedHashMap<>();
+        for (Class<?> current : hierarchy) {
+            for (Field field : current.getDeclaredFields()) {
+
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || field.isSynthetic()) {
+                    continue; // Skip statics and synthetics. Final fields are logged too, the getter never writes them.
+                }
+
+                try {
+                    field.setAccessible(true);
+                    // As the field is made accessible, un-reflecting does not need a private lookup in the DTO class.
+                    MethodHandle getter = MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+                    resolved.put(field.getName(), new RedactableField(field, getter, field.isAnnotationPresent(Redact.class)));
+                }catch(RuntimeException | IllegalAccessException e)
+                {
+                    log.warn("LG00-R4: Field {} of {} is not accessible, will not be logged {}", field.getName(), type.getName(), e.getMessage());
+                }
+            }
+        }
+
+        return List.copyOf(resolved.values());
+    }
+
+    // Records have no super class fields, their state is the components, each backed by a private final field of the same name.
+    private static List<RedactableField> resolveRecordComponents(Class<?> type) {
+
+        Map<String, RedactableField> resolved = new LinkedHashMap<>();
+        for (RecordComponent component : type.getRecordComponents()) {
+            try {
+                // @Redact and @JsonProperty on a component are propagated to its field.
+                Field field = type.getDeclaredField(component.getName());
+                Method accessor = component.getAccessor();
+                accessor.setAccessible(true);
+                MethodHandle getter = MethodHandles.lookup().unreflect(accessor).asType(GETTER_TYPE);
+                resolved.put(component.getName(), new RedactableField(field, getter, field.isAnnotationPresent(Redact.class)));
+            }catch(RuntimeException | ReflectiveOperationException e)
+            {
+                log.warn("LG00-R4: Record component {} of {} is not accessible, will not be logged {}", component.getName(), type.getName(), e.getMessage());
+            }
+        }
+
+        return List.copyOf(resolved.values());
+    }
+
+    /**
+     * A single (accessible) field of the plan, with redact decision resolved.
+     */
+    public static final class RedactableField {
+
+        private final Field field;
+        private final MethodHandle getter;
+        private final String name;
+        private final boolean redact;
+
+        private RedactableField(Field field, MethodHandle getter, boolean redact) {
+            this.field = field;
+            this.getter = getter;
+            this.name = field.getName();
+            this.redact = redact;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isRedact() {
+            return redact;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        /**
+         * Reads the value of this field from the given target, primitives are returned boxed.
+         * @param target instance of the plan type
+         * @return value of the field
+         * @throws IllegalAccessException if the value could not be read
+         */
+        public Object read(Object target) throws IllegalAccessException {
+            try {
+                return (Object) getter.invokeExact(target);
+            }catch(RuntimeException | Error e) {
+                throw e;
+            }catch(Throwable e) {
+                IllegalAccessException wrapped = new IllegalAccessException(e.getMessage());
+                wrapped.initCause(e);
+                throw wrapped;
+            }
+        }
+    }
+}
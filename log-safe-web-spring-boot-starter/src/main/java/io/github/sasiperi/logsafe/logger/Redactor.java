@@ -0,0 +1,61 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.util.ServiceLoader;
+
+/**
+ * Reflection free redaction of a DTO class. Implementations are generated at compile time by <code>log-safe-redaction-processor</code>
+ * (for every class with {@link Redact} fields, declared or inherited) and registered through a {@link ServiceLoader} index,
+ * that's <code>META-INF/services/io.github.sasiperi.logsafe.logger.Redactor</code>.
+ * A generated redactor reads the fields with plain getter (or field) calls, in the same order as {@link RedactionPlan},
+ * types with no generated redactor are walked reflectively through their {@link RedactionPlan}.
+ *
+ * @param <T> DTO type
+ * @author sasiperi
+ */
+public interface Redactor<T> {
+
+    /**
+     * @return the exact DTO class this redactor reads, sub classes are not covered.
+     */
+    Class<T> getType();
+
+    /**
+     * @return number of fields handed to the sink per DTO
+     */
+    int getFieldCount();
+
+    /**
+     * Hands every field of the given DTO (null values included) to the sink, along with its {@link Redact} flag.
+     * @param dto instance of {@link #getType()}
+     * @param sink receives the fields
+     */
+    void redact(T dto, FieldSink sink);
+
+    /**
+     * Receives the fields of a DTO, decides whether to redact or walk into the value.
+     */
+    interface FieldSink {
+
+        /**
+         * @param name field name, its name in JSON payloads is resolved by the starter, as the application's mapper names it
+         * @param value field value, primitives are boxed
+         * @param redact true if the field is marked {@link Redact}
+         */
+        void field(String name, Object value, boolean redact);
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeBindings;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import io.github.sasiperi.logsafe.config.JsonPathAutomaton;
+
+/**
+ * Redacts a JSON payload in a single streaming pass, without binding it to a DTO.
+ * Tokens are copied from the parser to the generator as they are read, and values of the fields marked {@link Redact}
+ * in the declared (expected) type are replaced with [REDACTED], skipping their content.
+ * Only the parser/generator buffers are held, that's memory does not grow with the payload (apart from the output itself).
+ * 
+ * @implNote The paths to redact are derived from the declared type (e.g. {@code List<Employee>}), the same way
+ * {@link LogMessageRedactor} walks only the DTO types of the configured base package. Fields typed as Object (or unresolved generics)
+ * are copied as is, as there is no runtime type to look at.
+ * @implNote Field names are matched as the application's mapper names them ({@link JsonPropertyNames}), e.g. with SNAKE_CASE
+ * naming <code>socialSecurityNumber</code> is matched as <code>social_security_number</code>.
+ * @implNote Values matching the configured JSON field names/paths ({@link JsonPathAutomaton}) are redacted too, the automaton state is
+ * carried along with the type, so untyped parts (Map, Object, JsonNode or the whole body) are walked only if a path can still match below them.
+ * 
+ * @author sasiperi
+ */
+public final class StreamingJsonRedactor {
+
+    private static final String REDACTED = "[REDACTED]";
+
+    private final String packageNameToScan;
+    private final JsonFactory jsonFactory;
+    private final TypeFactory typeFactory;
+    private final JsonPropertyNames propertyNames;
+
+    // Compiled navigation nodes, one per declared type, up to MAX_CACHED_NODES. Past that, nodes are compiled per use (names and plans stay cached).
+    private static final int MAX_CACHED_NODES = 4096;
+    private final Map<JavaType, Node> nodes = new ConcurrentHashMap<>();
+
+    private final LongAdder redactedFieldCount = new LongAdder();
+
+    public StreamingJsonRedactor(String packageNameToScan, ObjectMapper objectMapper) {
+        this(packageNameToScan, objectMapper, new JsonPropertyNames(objectMapper));
+    }
+
+    StreamingJsonRedactor(String packageNameToScan, ObjectMapper objectMapper, JsonPropertyNames propertyNames) {
+        this.packageNameToScan = packageNameToScan;
+        this.jsonFactory = objectMapper.getFactory();
+        this.typeFactory = objectMapper.getTypeFactory();
+        this.propertyNames = propertyNames;
+    }
+
+    /**
+     * Redacts the JSON content (e.g. cached request body bytes) expected to be of the given type.
+     * @param content JSON bytes (UTF-8/16/32, auto-detected)
+     * @param offset offset of the content in the array
+     * @param length length of the content
+     * @param type declared type of the content
+     * @return redacted JSON
+     * @throws IOException if content is not a valid JSON
+     */
+    public String redact(byte[] content, int offset, int length, JavaType type) throws IOException {
+        return redact(content, offset, length, type, JsonPathAutomaton.of(null, null));
+    }
+
+    /**
+     * Same as {@link #redact(byte[], int, int, JavaType)}, also redacting the values matching the given field names/paths.
+     * @param content JSON bytes (UTF-8/16/32, auto-detected)
+     * @param offset offset of the content in the array
+     * @param length length of the content
+     * @param type declared type of the content, unknown type (Object) to redact by the paths only
+     * @param paths compiled field names/paths
+     * @return redacted JSON
+     * @throws IOException if content is not a valid JSON
+     */
+    public String redact(byte[] content, int offset, int length, JavaType type, JsonPathAutomaton paths) throws IOException {
+
+        StringWriter out = new StringWriter(length);
+        try (JsonParser parser = jsonFactory.createParser(content, offset, length);
+             JsonGenerator generator = jsonFactory.createGenerator(out)) {
+
+            redact(parser, generator, type, paths);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Copies all the values from the parser to the generator, redacting values of fields marked {@link Redact} in the type.
+     * @param parser source
+     * @param generator target
+     * @param type declared type of the source values
+     * @throws IOException if source is not a valid JSON or target could not be written
+     */
+    public void redact(JsonParser parser, JsonGenerator generator, JavaType type) throws IOException {
+        redact(parser, generator, type, JsonPathAutomaton.of(null, null));
+    }
+
+    /**
+     * Same as {@link #redact(JsonParser, JsonGenerator, JavaType)}, also redacting the values matching the given field names/paths.
+     * @param parser source
+     * @param generator target
+     * @param type declared type of the source values
+     * @param paths compiled field names/paths
+     * @throws IOException if source is not a valid JSON or target could not be written
+     */
+    public void redact(JsonParser parser, JsonGenerator generator, JavaType type, JsonPathAutomaton paths) throws IOException {
+
+        Node root = nodeFor(type);
+        JsonPathAutomaton.State path = paths.root();
+        while (parser.nextToken() != null) {
+            copyRoot(parser, generator, root, path);
+        }
+        generator.flush();
+    }
+
+    /**
+     * Writes the redacted content as a single value into a generator that's already in use, e.g. of a JSON log encoder.
+     * The generator is not flushed, it's left to its owner.
+     * @param content JSON bytes, a single well formed value, see {@link #checkJson}
+     * @param offset offset of the content in the array
+     * @param length length of the content
+     * @param type declared type of the content, unknown type (Object) to redact by the paths only
+     * @param paths compiled field names/paths
+     * @param generator target
+     * @throws IOException if content is not a valid JSON or target could not be written
+     */
+    public void redactInto(byte[] content, int offset, int length, JavaType type, JsonPathAutomaton paths, JsonGenerator generator) throws IOException {
+
+        try (JsonParser parser = jsonFactory.createParser(content, offset, length)) {
+            if (parser.nextToken() != null) {
+                copyRoot(parser, generator, nodeFor(type), paths.root());
+            }
+        }
+    }
+
+    /**
+     * Checks the content is a single well formed JSON value, without writing anything, see {@link #redactInto}.
+     * @param content JSON bytes (UTF-8/16/32, auto-detected)
+     * @param offset offset of the content in the array
+     * @param length length of the content
+     * @throws IOException if content is not a valid JSON, or holds more than one value
+     */
+    public void checkJson(byte[] content, int offset, int length) throws IOException {
+
+        try (JsonParser parser = jsonFactory.createParser(content, offset, length)) {
+            if (parser.nextToken() == null) {
+                throw new JsonParseException(parser, "No JSON content");
+            }
+            parser.skipChildren();
+            if (parser.nextToken() != null) {
+                throw new JsonParseException(parser, "More than one JSON value");
+            }
+        }
+    }
+
+    private void copyRoot(JsonParser parser, JsonGenerator generator, Node root, JsonPathAutomaton.State path) throws IOException {
+        if (path.isRedact()) {
+            redactValue(parser, generator);
+        }
+        else {
+            copy(parser, generator, root, path);
+        }
+    }
+
+    // Copies the value the parser is currently at (scalar or whole structure).
+    private void copy(JsonParser parser, JsonGenerator generator, Node node, JsonPathAutomaton.State path) throws IOException {
+
+        JsonToken token = parser.currentToken();
+
+        if (node.kind == Kind.REFERENCE) {
+            copy(parser, generator, nodeFor(node.contentType), path);
+        }
+        else if (token == JsonToken.START_OBJECT && node.kind == Kind.BEAN) {
+            copyBean(parser, generator, node, path);
+        }
+        else if (token == JsonToken.START_OBJECT && node.kind == Kind.MAP) {
+            Node valueNode = nodeFor(node.contentType);
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                generator.writeFieldName(name);
+                JsonToken value = parser.nextToken();
+                JsonPathAutomaton.State valuePath = path.field(name);
+                if (valuePath.isRedact() && value != JsonToken.VALUE_NULL) {
+                    redactValue(parser, generator);
+                }
+                else {
+                    copy(parser, generator, valueNode, valuePath);
+                }
+            }
+            generator.writeEndObject();
+        }
+        else if (token == JsonToken.START_ARRAY && node.kind == Kind.COLLECTION) {
+            Node elementNode = nodeFor(node.contentType);
+            JsonPathAutomaton.State elementPath = path.element();
+            generator.writeStartArray();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (elementPath.isRedact() && parser.currentToken() != JsonToken.VALUE_NULL) {
+                    redactValue(parser, generator);
+                }
+                else {
+                    copy(parser, generator, elementNode, elementPath);
+                }
+            }
+            generator.writeEndArray();
+        }
+        else {
+            // Scalars, types that are not walked (outside base package) or shape not matching the type: copied as is, unless a path can match below.
+            copyUntyped(parser, generator, path);
+        }
+    }
+
+    private void copyBean(JsonParser parser, JsonGenerator generator, Node node, JsonPathAutomaton.State path) throws IOException {
+
+        generator.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+            String name = parser.currentName();
+            Member member = node.members.get(name);
+            JsonPathAutomaton.State valuePath = path.field(name);
+
+            generator.writeFieldName(name);
+            JsonToken value = parser.nextToken();
+
+            if ((valuePath.isRedact() || (member != null && member.redact)) && value != JsonToken.VALUE_NULL) {
+                redactValue(parser, generator);
+            }
+            else if (member == null) {
+                copyUntyped(parser, generator, valuePath);
+            }
+            else {
+                copy(parser, generator, nodeFor(member.type), valuePath);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    // No declared type to go by, only the field names/paths are looked at.
+    private void copyUntyped(JsonParser parser, JsonGenerator generator, JsonPathAutomaton.State path) throws IOException {
+
+        JsonToken token = parser.currentToken();
+
+        if (path.isDead() || token.isScalarValue()) {
+            generator.copyCurrentStructure(parser);
+        }
+        else if (token == JsonToken.START_OBJECT) {
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                generator.writeFieldName(name);
+                JsonToken value = parser.nextToken();
+                JsonPathAutomaton.State valuePath = path.field(name);
+                if (valuePath.isRedact() && value != JsonToken.VALUE_NULL) {
+                    redactValue(parser, generator);
+                }
+                else {
+                    copyUntyped(parser, generator, valuePath);
+                }
+            }
+            generator.writeEndObject();
+        }
+        else if (token == JsonToken.START_ARRAY) {
+            JsonPathAutomaton.State elementPath = path.element();
+            generator.writeStartArray();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (elementPath.isRedact() && parser.currentToken() != JsonToken.VALUE_NULL) {
+                    redactValue(parser, generator);
+                }
+                else {
+                    copyUntyped(parser, generator, elementPath);
+                }
+            }
+            generator.writeEndArray();
+        }
+        else {
+            generator.copyCurrentStructure(parser);
+        }
+    }
+
+    private void redactValue(JsonParser parser, JsonGenerator generator) throws IOException {
+
+        // skip the whole value, in case the redacted field is an object or an array.
+        parser.skipChildren();
+        generator.writeString(REDACTED);
+        redactedFieldCount.increment();
+    }
+
+    /**
+     * @return number of field values redacted so far
+     */
+    public long getRedactedFieldCount() {
+        return redactedFieldCount.sum();
+    }
+
+    private Node nodeFor(JavaType type) {
+        // members only hold the (resolved) types, child nodes are looked up on demand, so self referencing types are fine.
+        Node node = nodes.get(type);
+        if (node != null) {
+            return node;
+        }
+        return nodes.size() < MAX_CACHED_NODES ? nodes.computeIfAbsent(type, this::compile) : compile(type);
+    }
+
+    private Node compile(JavaType type) {
+
+        if (type.isReferenceType()) {
+            return new Node(Kind.REFERENCE, type.getContentType(), null);
+        }
+        if (type.isMapLikeType()) {
+            return new Node(Kind.MAP, type.getContentType(), null);
+        }
+        if (type.isCollectionLikeType() || type.isArrayType()) {
+            return new Node(Kind.COLLECTION, type.getContentType(), null);
+        }
+
+        Class<?> rawClass = type.getRawClass();
+        if (!rawClass.getName().startsWith(packageNameToScan) || rawClass.isEnum()) {
+            return new Node(Kind.OPAQUE, null, null);
+        }
+
+        Map<String, Member> members = new HashMap<>();
+        Map<String, Member> byFieldName = new HashMap<>();
+        for (RedactionPlan.RedactableField field : RedactionPlan.of(rawClass).getFields()) {
+
+            // Resolve generic field types (e.g. Page<T>) against the bindings of the class that declares the field.
+            JavaType declaringType = type.findSuperType(field.getField().getDeclaringClass());
+            TypeBindings bindings = declaringType != null ? declaringType.getBindings() : type.getBindings();
+            JavaType fieldType = typeFactory.resolveMemberType(field.getField().getGenericType(), bindings);
+
+            Member member = new Member(field.isRedact(), fieldType);
+            members.put(propertyNames.jsonName(rawClass, field.getName()), member);
+            byFieldName.put(field.getName(), member);
+        }
+        // A payload keyed by the plain field names (e.g. written by another mapper) is still matched, unless the name is taken by a property.
+        byFieldName.forEach(members::putIfAbsent);
+        return new Node(Kind.BEAN, null, members);
+    }
+
+    private enum Kind {
+        BEAN, MAP, COLLECTION, REFERENCE, OPAQUE
+    }
+
+    private static final class Node {
+        private final Kind kind;
+        private final JavaType contentType;
+        private final Map<String, Member> members;
+
+        private Node(Kind kind, JavaType contentType, Map<String, Member> members) {
+            this.kind = kind;
+            this.contentType = contentType;
+            this.members = members;
+        }
+    }
+
+    private static final class Member {
+        private final boolean redact;
+        private final JavaType type;
+
+        private Member(boolean redact, JavaType type) {
+            this.redact = redact;
+            this.type = type;
+        }
+    }
+}
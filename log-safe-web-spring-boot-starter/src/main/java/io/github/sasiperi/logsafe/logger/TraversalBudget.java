@@ -0,0 +1,126 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import io.github.sasiperi.logsafe.config.RedactionLimitsConfig;
+
+/**
+ * Budget of a single body walk of {@link LogMessageRedactor}: depth, number of values and elements per container,
+ * and the containers on the current path (by identity), to cut cycles (e.g. bi-directional DTO relationships).
+ * Not thread safe, a new one is used per body.
+ *
+ * @author sasiperi
+ */
+final class TraversalBudget {
+
+    static final String CYCLE = "[CYCLE]";
+    static final String MAX_DEPTH = "...(max depth)";
+    static final String TRUNCATED = "...(truncated)";
+    static final String MORE_KEY = "...";
+
+    private final int maxDepth;
+    private final int maxNodes;
+    private final int maxElements;
+
+    private int depth;
+    private int nodes;
+    private boolean truncated;
+    // Containers on the current path, created on the first container entered.
+    private Map<Object, Boolean> ancestors;
+
+    TraversalBudget(RedactionLimitsConfig limits) {
+        this.maxDepth = limits.getMaxDepth();
+        this.maxNodes = limits.getMaxNodes();
+        this.maxElements = limits.getMaxCollectionElements();
+    }
+
+    /**
+     * Counts a value walked.
+     * @return false if the node budget is used up, the value is then logged as {@link #TRUNCATED}.
+     */
+    boolean visit() {
+        if (nodes >= maxNodes) {
+            truncated = true;
+            return false;
+        }
+        nodes++;
+        return true;
+    }
+
+    /**
+     * @return true if no more values can be walked, remaining elements of a container are then summarized.
+     */
+    boolean isExhausted() {
+        return nodes >= maxNodes;
+    }
+
+    /**
+     * @param container object, collection, map or array to walk into
+     * @return marker to log instead of the container ({@link #CYCLE}, {@link #MAX_DEPTH}), null if it can be walked,
+     * in which case {@link #exit(Object)} must follow.
+     */
+    String enter(Object container) {
+        if (depth >= maxDepth) {
+            truncated = true;
+            return MAX_DEPTH;
+        }
+        if (ancestors == null) {
+            ancestors = new IdentityHashMap<>();
+        }
+        if (ancestors.putIfAbsent(container, Boolean.TRUE) != null) {
+            truncated = true;
+            return CYCLE;
+        }
+        depth++;
+        return null;
+    }
+
+    void exit(Object container) {
+        depth--;
+        ancestors.remove(container);
+    }
+
+    /**
+     * @param index index of the element (entry) about to be walked
+     * @return true if the element is within max-collection-elements and the node budget
+     */
+    boolean hasRoomFor(int index) {
+        return index < maxElements && !isExhausted();
+    }
+
+    int getMaxElements() {
+        return maxElements;
+    }
+
+    /**
+     * @param remaining number of elements (entries) not logged
+     * @return marker that stands for the elements not logged
+     */
+    String more(int remaining) {
+        truncated = true;
+        return "...(+" + remaining + " more)";
+    }
+
+    /**
+     * @return true if any part of the body was cut by the budget
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.in;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+import org.springframework.web.util.WebUtils;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Keeps the <code>@RequestBody</code> object the handler bound, as a request attribute, for a request that's captured lazily
+ * (see {@link RequestCaptureMode#LAZY}). The request is then logged (OBJECT redaction mode) from that object, the captured bytes
+ * are not deserialized a second time. Nothing is kept for requests not wrapped by {@link ContentCapturingRequestWrapper}.
+ *
+ * @author sasiperi
+ */
+@ControllerAdvice
+@AutoConfiguration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class BoundRequestBodyAdvice extends RequestBodyAdviceAdapter {
+
+    /**
+     * Request attribute the bound body is kept in.
+     */
+    public static final String BODY_ATTRIBUTE = BoundRequestBodyAdvice.class.getName() + ".BODY";
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, java.lang.reflect.Type targetType,
+            Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, java.lang.reflect.Type targetType,
+            Class<? extends HttpMessageConverter<?>> converterType) {
+
+        if (inputMessage instanceof ServletServerHttpRequest servletRequest) {
+            HttpServletRequest request = servletRequest.getServletRequest();
+            if (WebUtils.getNativeRequest(request, ContentCapturingRequestWrapper.class) != null) {
+                request.setAttribute(BODY_ATTRIBUTE, body);
+            }
+        }
+        return body;
+    }
+}
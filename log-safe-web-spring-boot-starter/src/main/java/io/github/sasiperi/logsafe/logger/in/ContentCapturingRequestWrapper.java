@@ -0,0 +1,222 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.in;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * Tee style request wrapper, to log the request body once the handler is done with it. Unlike {@link RepeatableContentCachingRequestWrapper}
+ * the body is not drained up front, the filter chain starts right away and the body is read from the client as the handler
+ * (e.g. Jackson) reads it, while a copy of the first max-body-bytes is kept for logging, in a buffer leased from {@link BodyBufferPool}.
+ * @implNote Only what the handler has read is captured, e.g. nothing if it does not read the body.
+ * Call {@link #release()} when the request is logged.
+ * @author sasiperi
+ */
+public class ContentCapturingRequestWrapper extends HttpServletRequestWrapper {
+
+  private static final int DEFAULT_BUFFER_SIZE = 1024;
+  private static final byte[] EMPTY = new byte[0];
+
+  private final int maxBodyBytes;
+  private final BodyBufferPool bufferPool;
+
+  private byte[] content = EMPTY;
+  private int contentLength;
+  private boolean truncated;
+  // Set once the buffer is back in the pool, reads after that (e.g. by a late reader) are not captured.
+  private boolean released;
+
+  private TeeServletInputStream inputStream;
+  private BufferedReader reader;
+
+  public ContentCapturingRequestWrapper(HttpServletRequest request, int maxBodyBytes, BodyBufferPool bufferPool) {
+    super(request);
+    this.maxBodyBytes = Math.max(0, maxBodyBytes);
+    this.bufferPool = bufferPool;
+  }
+
+  @Override
+  public ServletInputStream getInputStream() throws IOException {
+    if (reader != null) {
+      throw new IllegalStateException("getReader() has already been called for this request.");
+    }
+    if (inputStream == null) {
+      inputStream = new TeeServletInputStream(getRequest().getInputStream());
+    }
+    return inputStream;
+  }
+
+  @Override
+  public BufferedReader getReader() throws IOException {
+    if (reader == null) {
+      if (inputStream != null) {
+        throw new IllegalStateException("getInputStream() has already been called for this request.");
+      }
+      inputStream = new TeeServletInputStream(getRequest().getInputStream());
+      reader = new BufferedReader(new InputStreamReader(inputStream, getCharset()));
+    }
+    return reader;
+  }
+
+  private Charset getCharset() {
+    String encoding = getCharacterEncoding();
+    return encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+  }
+
+  private void capture(int b) {
+    if (released) {
+      return;
+    }
+    if (contentLength >= maxBodyBytes) {
+      truncated = true;
+      return;
+    }
+    ensureCapacity(contentLength + 1);
+    content[contentLength++] = (byte) b;
+  }
+
+  private void capture(byte[] b, int off, int len) {
+    if (released) {
+      return;
+    }
+    int count = Math.min(len, maxBodyBytes - contentLength);
+    if (count < len) {
+      truncated = true;
+    }
+    if (count <= 0) {
+      return;
+    }
+    ensureCapacity(contentLength + count);
+    System.arraycopy(b, off, content, contentLength, count);
+    contentLength += count;
+  }
+
+  // Sized right away to the declared length (capped) on the first read, grown otherwise.
+  private void ensureCapacity(int capacity) {
+    if (capacity <= content.length) {
+      return;
+    }
+    int declaredLength = getContentLength();
+    long grownSize = content.length == 0 && declaredLength > 0
+        ? Math.max(declaredLength, capacity)
+        : Math.max((long) Math.max(content.length, DEFAULT_BUFFER_SIZE) * 2, capacity);
+    byte[] grown = bufferPool.lease((int) Math.min(grownSize, maxBodyBytes));
+    System.arraycopy(content, 0, grown, 0, contentLength);
+    bufferPool.release(content, contentLength);
+    content = grown;
+  }
+
+  /**
+   * @return copy of the captured body, e.g. to be handed to another thread.
+   */
+  public byte[] getContentAsByteArray() {
+    return Arrays.copyOf(content, contentLength);
+  }
+
+  /**
+   * @return captured body buffer itself (not a copy), only the first {@link #getCachedContentLength()} bytes are the body. Must not be modified,
+   * nor used after {@link #release()}, that's for the (synchronous) logging of the request only.
+   */
+  byte[] getCachedContent() {
+    return content;
+  }
+
+  public int getCachedContentLength() {
+    return contentLength;
+  }
+
+  /**
+   * @return true if the body read is larger than max-body-bytes, that's only the first part of the body is captured.
+   */
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  /**
+   * Returns the capture buffer to the pool, once the request is logged.
+   */
+  public void release() {
+    released = true;
+    byte[] buffer = content;
+    int length = contentLength;
+    content = EMPTY;
+    contentLength = 0;
+    bufferPool.release(buffer, length);
+  }
+
+  private class TeeServletInputStream extends ServletInputStream {
+
+    private final ServletInputStream delegate;
+
+    private TeeServletInputStream(ServletInputStream delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = delegate.read();
+      if (b != -1) {
+        capture(b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = delegate.read(b, off, len);
+      if (read > 0) {
+        capture(b, off, read);
+      }
+      return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return delegate.available();
+    }
+
+    @Override
+    public boolean isFinished() {
+      return delegate.isFinished();
+    }
+
+    @Override
+    public boolean isReady() {
+      return delegate.isReady();
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+      delegate.setReadListener(readListener);
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
+}
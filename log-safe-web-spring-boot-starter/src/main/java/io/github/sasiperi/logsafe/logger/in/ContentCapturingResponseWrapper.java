@@ -0,0 +1,201 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.in;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Tee style response wrapper, to log the response body. Unlike {@link org.springframework.web.util.ContentCachingResponseWrapper}
+ * the body is written through to the client right away (no delay to the first byte, streaming/chunked responses keep streaming),
+ * and only a copy of the first max-body-bytes is kept for logging, in a buffer leased from {@link BodyBufferPool}.
+ * @implNote Call {@link #flushCapture()} once the chain is done (so the content written through {@link #getWriter()} is captured),
+ * and {@link #release()} when the response is logged.
+ * @author sasiperi
+ */
+public class ContentCapturingResponseWrapper extends HttpServletResponseWrapper {
+
+  private static final int DEFAULT_BUFFER_SIZE = 1024;
+  private static final byte[] EMPTY = new byte[0];
+
+  private final int maxBodyBytes;
+  private final BodyBufferPool bufferPool;
+
+  private byte[] content = EMPTY;
+  private int contentLength;
+  private boolean truncated;
+
+  private TeeServletOutputStream outputStream;
+  private PrintWriter writer;
+
+  public ContentCapturingResponseWrapper(HttpServletResponse response, int maxBodyBytes, BodyBufferPool bufferPool) {
+    super(response);
+    this.maxBodyBytes = Math.max(0, maxBodyBytes);
+    this.bufferPool = bufferPool;
+  }
+
+  @Override
+  public ServletOutputStream getOutputStream() throws IOException {
+    if (writer != null) {
+      throw new IllegalStateException("getWriter() has already been called on this response.");
+    }
+    if (outputStream == null) {
+      outputStream = new TeeServletOutputStream(getResponse().getOutputStream());
+    }
+    return outputStream;
+  }
+
+  @Override
+  public PrintWriter getWriter() throws IOException {
+    if (writer == null) {
+      if (outputStream != null) {
+        throw new IllegalStateException("getOutputStream() has already been called on this response.");
+      }
+      String characterEncoding = getCharacterEncoding();
+      outputStream = new TeeServletOutputStream(getResponse().getOutputStream());
+      writer = new PrintWriter(new OutputStreamWriter(outputStream, characterEncoding));
+    }
+    return writer;
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+    if (writer != null) {
+      writer.flush();
+    }
+    super.flushBuffer();
+  }
+
+  /**
+   * Flushes the content buffered by the writer (if used) through to the response, and thus to the capture.
+   */
+  public void flushCapture() {
+    if (writer != null) {
+      writer.flush();
+    }
+  }
+
+  private void capture(int b) {
+    if (contentLength >= maxBodyBytes) {
+      truncated = true;
+      return;
+    }
+    ensureCapacity(contentLength + 1);
+    content[contentLength++] = (byte) b;
+  }
+
+  private void capture(byte[] b, int off, int len) {
+    int count = Math.min(len, maxBodyBytes - contentLength);
+    if (count < len) {
+      truncated = true;
+    }
+    if (count <= 0) {
+      return;
+    }
+    ensureCapacity(contentLength + count);
+    System.arraycopy(b, off, content, contentLength, count);
+    contentLength += count;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= content.length) {
+      return;
+    }
+    long grownSize = Math.max((long) Math.max(content.length, DEFAULT_BUFFER_SIZE) * 2, capacity);
+    byte[] grown = bufferPool.lease((int) Math.min(grownSize, maxBodyBytes));
+    System.arraycopy(content, 0, grown, 0, contentLength);
+    bufferPool.release(content, contentLength);
+    content = grown;
+  }
+
+  /**
+   * @return copy of the captured body, e.g. to be handed to another thread.
+   */
+  public byte[] getContentAsByteArray() {
+    return Arrays.copyOf(content, contentLength);
+  }
+
+  public int getCapturedContentLength() {
+    return contentLength;
+  }
+
+  /**
+   * @return true if the body is larger than max-body-bytes, that's only the first part of the body is captured.
+   */
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  /**
+   * Returns the capture buffer to the pool, once the response is logged.
+   */
+  public void release() {
+    byte[] buffer = content;
+    int length = contentLength;
+    content = EMPTY;
+    contentLength = 0;
+    bufferPool.release(buffer, length);
+  }
+
+  private class TeeServletOutputStream extends ServletOutputStream {
+
+    private final ServletOutputStream delegate;
+
+    private TeeServletOutputStream(ServletOutputStream delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      delegate.write(b);
+      capture(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      delegate.write(b, off, len);
+      capture(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      delegate.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+
+    @Override
+    public boolean isReady() {
+      return delegate.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      delegate.setWriteListener(writeListener);
+    }
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.in;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import io.github.sasiperi.logsafe.logger.NoLogSafe;
+
+/**
+ * Logging metadata of a controller (handler) method, resolved once per controller type and method, see {@link HandlerLogMetadataCache}.
+ * Holds the declared request ({@link RequestBody}) and response body types, raw and with generics,
+ * whether there is a body to log at all, and whether the method is logged at all ({@link NoLogSafe}, on the method or the controller,
+ * that's the bean type, so a controller inheriting its mappings from a base controller can opt out too).
+ * Reactive wrappers (e.g. Mono, Flux) of the bodies are unwrapped, so the same metadata serves WebFlux handlers.
+ *
+ * @author sasiperi
+ */
+public final class HandlerLogMetadata {
+
+    private final Method method;
+    private final boolean noLogSafe;
+
+    private final Class<?> requestBodyClass;
+    private final JavaType requestBodyType;
+
+    private final Class<?> responseBodyClass;
+    private final JavaType responseBodyType;
+
+    HandlerLogMetadata(Method method, Class<?> beanType, TypeFactory typeFactory) {
+
+        this.method = method;
+        this.noLogSafe = AnnotatedElementUtils.hasAnnotation(method, NoLogSafe.class)
+                || AnnotatedElementUtils.hasAnnotation(beanType, NoLogSafe.class);
+
+        Parameter requestBody = findRequestBodyParameter(method);
+        Type requestBodyGenericType = requestBody != null ? unwrapReactive(requestBody.getParameterizedType()) : Void.class;
+        this.requestBodyClass = requestBodyGenericType != Void.class ? ResolvableType.forType(requestBodyGenericType).resolve() : null;
+        this.requestBodyType = requestBodyClass != null ? typeFactory.constructType(requestBodyGenericType) : null;
+
+        Type returnType = unwrapReactive(new MethodParameter(method, -1).getGenericParameterType());
+        Class<?> returnTypeClass = ResolvableType.forType(returnType).resolve(Object.class);
+        this.responseBodyClass = resolveResponseBodyClass(returnTypeClass, returnType);
+        this.responseBodyType = resolveResponseBodyType(returnTypeClass, returnType, typeFactory);
+    }
+
+    private static Parameter findRequestBodyParameter(Method method) {
+
+        // Find the parameter annotated with @RequestBody in the controller
+        for (Parameter parameter : method.getParameters()) {
+            if (parameter.isAnnotationPresent(RequestBody.class)) {
+                return parameter;
+            }
+        }
+
+        return null; // No @RequestBody parameter found
+    }
+
+    /*
+     * Reactive types (e.g. Mono<T>, Flux<T> of WebFlux, or async returns of MVC) are unwrapped to the type actually read/written,
+     * multi value types as List<T>, that's a JSON array. No value types (e.g. Mono<Void>) are resolved as Void.
+     */
+    private static Type unwrapReactive(Type type) {
+
+        ResolvableType resolvableType = ResolvableType.forType(type);
+        Class<?> rawClass = resolvableType.resolve();
+        ReactiveAdapter adapter = rawClass != null ? ReactiveAdapterRegistry.getSharedInstance().getAdapter(rawClass) : null;
+        if (adapter == null) {
+            return type;
+        }
+        if (adapter.isNoValue()) {
+            return Void.class;
+        }
+
+        ResolvableType element = resolvableType.getGeneric(0);
+        Type elementType = element.resolve() != null ? unwrapReactive(element.getType()) : Object.class;
+        return adapter.isMultiValue() ? ResolvableType.forClassWithGenerics(List.class, ResolvableType.forType(elementType)).getType() : elementType;
+    }
+
+    private static Class<?> resolveResponseBodyClass(Class<?> returnTypeClass, Type genericType) {
+
+        if (returnTypeClass == Void.TYPE || returnTypeClass == Void.class) {
+            // Method returns void
+            return null;
+        }
+
+        if (ResponseEntity.class.isAssignableFrom(returnTypeClass)) {
+            // Extract the generic type from ResponseEntity<T>
+            if (genericType instanceof ParameterizedType parameterizedType) {
+                Type[] typeArguments = parameterizedType.getActualTypeArguments();
+                if (typeArguments.length > 0 && typeArguments[0] instanceof Class<?>) {
+                    return (Class<?>) typeArguments[0];
+                }
+            }
+            return null;
+        }
+
+        // For other return types, directly return the class
+        return returnTypeClass;
+    }
+
+    // Same as resolveResponseBodyClass, but keeps generics e.g. List<Employee> or ResponseEntity<List<Employee>>.
+    private static JavaType resolveResponseBodyType(Class<?> returnTypeClass, Type genericType, TypeFactory typeFactory) {
+
+        if (returnTypeClass == Void.TYPE || returnTypeClass == Void.class) {
+            return null;
+        }
+
+        if (ResponseEntity.class.isAssignableFrom(returnTypeClass)) {
+            if (genericType instanceof ParameterizedType parameterizedType) {
+                Type[] typeArguments = parameterizedType.getActualTypeArguments();
+                if (typeArguments.length > 0) {
+                    return typeFactory.constructType(typeArguments[0]);
+                }
+            }
+            return null;
+        }
+
+        return typeFactory.constructType(genericType);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return true if the handler (method or its controller) is marked {@link NoLogSafe}, that's its requests are not logged.
+     */
+    public boolean isNoLogSafe() {
+        return noLogSafe;
+    }
+
+    /**
+     * @return true if the handler has a {@link RequestBody}, that's there is a request body worth logging.
+     */
+    public boolean hasRequestBody() {
+        return requestBodyType != null;
+    }
+
+    /**
+     * @return true if the handler returns a body (i.e. not void), that's there is a response body worth logging.
+     */
+    public boolean hasResponseBody() {
+        return responseBodyType != null;
+    }
+
+    public Class<?> getRequestBodyClass() {
+        return requestBodyClass;
+    }
+
+    public JavaType getRequestBodyType() {
+        return requestBodyType;
+    }
+
+    public Class<?> getResponseBodyClass() {
+        return responseBodyClass;
+    }
+
+    public JavaType getResponseBodyType() {
+        return responseBodyType;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.in;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import io.github.sasiperi.logsafe.logger.LogSafeJsonMapper;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per handler (controller method) cache of {@link HandlerLogMetadata}.
+ * Filled at startup by {@link HttpRequestResponseLogFilter} with all the mapped handler methods,
+ * so resolving the body types on a request is a single map lookup. Handlers not known at startup are resolved on first use.
+ *
+ * @author sasiperi
+ */
+@Component
+@AutoConfiguration
+@Slf4j
+public class HandlerLogMetadataCache {
+
+    private final TypeFactory typeFactory;
+
+    // Keyed by the controller type and method, as HandlerMethod instances are re-created (e.g. bean resolved) per request,
+    // and controllers inheriting the same (base controller) method may differ, e.g. one of them marked NoLogSafe.
+    private final Map<HandlerKey, HandlerLogMetadata> metadata = new ConcurrentHashMap<>();
+
+    public HandlerLogMetadataCache(LogSafeJsonMapper jsonMapper) {
+        this.typeFactory = jsonMapper.getTypeFactory();
+    }
+
+    /**
+     * Resolves the metadata of all the given handler methods, ahead of the first request.
+     * @param handlerMethods mapped handler methods
+     */
+    public void prefill(Collection<HandlerMethod> handlerMethods) {
+
+        for (HandlerMethod handlerMethod : handlerMethods) {
+            try {
+                get(handlerMethod);
+            } catch (RuntimeException e) {
+                log.warn("LG000-01: Failed to resolve log metadata of {}, will retry on request: {}", handlerMethod, e.getMessage());
+            }
+        }
+        log.debug("Resolved log metadata of {} handler methods", metadata.size());
+    }
+
+    public HandlerLogMetadata get(HandlerMethod handlerMethod) {
+        return metadata.computeIfAbsent(new HandlerKey(handlerMethod.getBeanType(), handlerMethod.getMethod()),
+                key -> new HandlerLogMetadata(key.method(), key.beanType(), typeFactory));
+    }
+
+    public int size() {
+        return metadata.size();
+    }
+
+    private record HandlerKey(Class<?> beanType, Method method) {
+    }
+}
@@ -15,31 +15,41 @@
  */
 package io.github.sasiperi.logsafe.logger.in;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.lang.reflect.Parameter;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
-import org.springframework.core.MethodParameter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.method.HandlerMethod;
-import org.springframework.web.util.ContentCachingResponseWrapper;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 
+import io.github.sasiperi.logsafe.logger.AsyncLogEmitter;
 import io.github.sasiperi.logsafe.logger.HttpLogMessage;
+import io.github.sasiperi.logsafe.logger.LogEmissionMode;
+import io.github.sasiperi.logsafe.logger.LogEventWriter;
 import io.github.sasiperi.logsafe.logger.LogMessageRedactor;
+import io.github.sasiperi.logsafe.logger.LogSafeMetrics;
+import io.github.sasiperi.logsafe.logger.LogSafeMetrics.Stage;
+import io.github.sasiperi.logsafe.logger.LogSampler;
+import io.github.sasiperi.logsafe.logger.LogSafeJsonMapper;
+import io.github.sasiperi.logsafe.logger.RedactedJsonBody;
+import io.github.sasiperi.logsafe.logger.RedactionException;
+import io.github.sasiperi.logsafe.logger.RedactionMode;
 import jakarta.servlet.http.HttpServletRequest;
-import lombok.RequiredArgsConstructor;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 
 
@@ -50,6 +60,11 @@ import lombok.extern.slf4j.Slf4j;
  * - Retrieves the body of the {@link @HttpServletRequest}, for relevant HTTP Method Handlers, sets's the type to original request type based on {@link @RequestBody}
  * - Retrieves the body of the {link @HttpServletResponse} to the actual type T (POJO) returned by ResponseEntity<T>
  * @implNote This currently supports only mime type application/json mime-type compatable with {@link MediaType.APPLICATION_JSON}.
+ * @implNote With {@link RedactionMode#STREAMING} the body is not deserialized, cached body bytes are redacted in a single pass
+ * against the declared request/response type, see {@link LogMessageRedactor#redactJson}.
+ * @implNote With async enabled ({@link AsyncLogEmitter}), only headers, params and the raw body bytes are captured on the request thread.
+ * @implNote With {@link LogEmissionMode#STRUCTURED} the body is kept as a {@link RedactedJsonBody} and the message is logged
+ * as key/value pairs by {@link LogEventWriter}, instead of a JSON String.
  * @Todo : Extend the impl to plan/text, text/html etc.. and exclude binary (e.g. pdf, multi-part)
  * @author sasiperi
  * @since 11.20.2023
@@ -58,73 +73,293 @@ import lombok.extern.slf4j.Slf4j;
 
 @Component
 @Slf4j
-@RequiredArgsConstructor
 @AutoConfiguration
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class HttpLogFilterHelper
 {
     
     private final LogMessageRedactor redactor;
+    private final AsyncLogEmitter logEmitter;
+    private final HandlerLogMetadataCache metadataCache;
+    private final RedactionMode redactionMode;
     
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private final LogSafeJsonMapper jsonMapper;
+    private final LogEventWriter logWriter;
+    
+    // No-op unless Micrometer is on the classpath, see LogSafeMetricsConfig.
+    private LogSafeMetrics metrics = LogSafeMetrics.NOOP;
+    
+    // Enough for the headers of a typical browser/API request, without re-hashing.
+    private static final int HEADERS_INITIAL_CAPACITY = 32;
+    
+    public HttpLogFilterHelper(LogMessageRedactor redactor, AsyncLogEmitter logEmitter, HandlerLogMetadataCache metadataCache,
+            LogSafeJsonMapper jsonMapper, LogEventWriter logWriter, @Value("${logsafe.logger.redaction-mode:OBJECT}") RedactionMode redactionMode) {
+        this.redactor = redactor;
+        this.jsonMapper = jsonMapper;
+        this.logWriter = logWriter;
+        this.logEmitter = logEmitter;
+        this.metadataCache = metadataCache;
+        this.redactionMode = redactionMode;
+    }
+    
+    @Autowired(required = false)
+    public void setLogSafeMetrics(LogSafeMetrics metrics) {
+        this.metrics = metrics;
+    }
     
     public void logRequest(RepeatableContentCachingRequestWrapper request, HandlerMethod handlerMethod) {
         try {
             
-            HttpLogMessage httpLogMessage = HttpLogMessage
-                                                .builder()
-                                                .uri(request.getRequestURI())
-                                                .remoteHost(request.getRemoteHost())
-                                                .httpMethod(request.getMethod())
-                                                .headers(getRequestHeadersAsMap(request))
-                                                .requestParams(getRequestParametersAsMap(request))
-                                                //commenting below for now. As below prints too much, once we learn (feedback) and 
-                                                //understand the fields that can be filtered out, we can uncomment or remove permanently
-                                                //.requestAttributes(getRequestAttributesAsMap(request))
-                                                .body(getRequestBody(request, handlerMethod))
-                                                .build();
+            HttpLogMessage httpLogMessage = buildRequestLogMessage(request);
+            metrics.recordBytesCaptured(handlerMethod, true, request.getCachedContentLength());
+            
+            if(logEmitter.isAsync())
+            {
+                // Capture only the raw body (a copy of the cached bytes) on the request thread, emitter worker does the rest.
+                byte[] body = hasLoggableBody(request.getContentType(), handlerMethod, true) && !isTruncated(request) ? request.getContentAsByteArray() : null;
+                logEmitter.submit(() -> emitRequest(httpLogMessage, null, body, body != null ? body.length : 0, handlerMethod));
+                return;
+            }
+            
+            boolean streaming = redactionMode == RedactionMode.STREAMING;
+            
+            if(!streaming)
+            {
+                httpLogMessage.setBody(getRequestBody(request, handlerMethod));
+            }
         
-           redactor.redactLogMessage(httpLogMessage);
+            long redactStart = metrics.start();
+            redact(httpLogMessage);
+           
+            if(streaming)
+            {
+                // Already redacted JSON, so set after the redactor is done with headers/params.
+                httpLogMessage.setBody(redactRequestBody(request, handlerMethod));
+            }
+            metrics.stop(Stage.REDACT, handlerMethod, redactStart);
           
-           log.info("REQUEST DATA: {}",httpLogMessage);
+            long emitStart = metrics.start();
+            logWriter.write(log, "REQUEST DATA", httpLogMessage);
+            metrics.stop(Stage.EMIT, handlerMethod, emitStart);
           
         } catch (Exception e) {
+          metrics.recordError("LG002");
           log.warn("LG002: Failed to log request with error: ", e);
         }
       }
+    
+    /**
+     * Logs a request that was not sampled (see {@link LogSampler}), but failed or was slow. The request was not wrapped,
+     * so only the headers and params (already redacted while read) are logged, without the body.
+     * @param request request
+     * @param response response, once done
+     * @param handlerMethod handler of the request
+     * @param reason why it's logged, e.g. error or slow
+     * @param logRequest true to log the request
+     * @param logResponse true to log the response
+     */
+    public void logOutcome(HttpServletRequest request, HttpServletResponse response, HandlerMethod handlerMethod, String reason,
+            boolean logRequest, boolean logResponse) {
+        try {
+            
+            int status = response.getStatus();
+            if(logRequest)
+            {
+                HttpLogMessage requestLogMessage = buildRequestLogMessage(request);
+                logEmitter.submit(() -> logWriter.write(log, "REQUEST DATA", reason, status, requestLogMessage));
+            }
+            if(logResponse)
+            {
+                HttpLogMessage responseLogMessage = HttpLogMessage
+                                                    .builder()
+                                                    .headers(getResponseHeadersAsMap(response))
+                                                    .keysRedacted(true)
+                                                    .build();
+                logEmitter.submit(() -> logWriter.write(log, "RESPONSE DATA", reason, status, responseLogMessage));
+            }
+            
+        } catch (Exception e) {
+            metrics.recordError("LG002");
+            log.warn("LG002: Failed to log request with error: ", e);
+        }
+    }
+    
+    /**
+     * Logs a request captured lazily, that's once the handler is done with it, see {@link RequestCaptureMode#LAZY}.
+     * Body is the part captured while the handler read it, so it's redacted from the captured bytes, the stream is not read again.
+     * With OBJECT redaction, it's the <code>@RequestBody</code> object the handler bound (see {@link BoundRequestBodyAdvice}), if there is one,
+     * so the captured bytes are not deserialized a second time.
+     * @param request request, handled
+     * @param handlerMethod handler of the request
+     */
+    public void logCapturedRequest(ContentCapturingRequestWrapper request, HandlerMethod handlerMethod) {
+        try {
+            
+            HttpLogMessage httpLogMessage = buildRequestLogMessage(request);
+            boolean loggableBody = hasLoggableBody(request.getContentType(), handlerMethod, true) && !isTruncated(request);
+            metrics.recordBytesCaptured(handlerMethod, true, request.getCachedContentLength());
+            Object boundBody = loggableBody && redactionMode != RedactionMode.STREAMING ? request.getAttribute(BoundRequestBodyAdvice.BODY_ATTRIBUTE) : null;
+            
+            if(logEmitter.isAsync())
+            {
+                byte[] body = loggableBody && boundBody == null ? request.getContentAsByteArray() : null;
+                logEmitter.submit(() -> emitRequest(httpLogMessage, boundBody, body, body != null ? body.length : 0, handlerMethod));
+                return;
+            }
+            
+            // Captured buffer itself, no copy, as it's logged right here on the request thread.
+            emitRequest(httpLogMessage, boundBody, loggableBody ? request.getCachedContent() : null, loggableBody ? request.getCachedContentLength() : 0, handlerMethod);
+            
+        } catch (Exception e) {
+            metrics.recordError("LG002");
+            log.warn("LG002: Failed to log request with error: ", e);
+        }
+    }
+    
+    private HttpLogMessage buildRequestLogMessage(HttpServletRequest request) {
+        
+        return HttpLogMessage
+                .builder()
+                .uri(request.getRequestURI())
+                .remoteHost(request.getRemoteHost())
+                .httpMethod(request.getMethod())
+                .headers(getRequestHeadersAsMap(request))
+                .requestParams(getRequestParametersAsMap(request))
+                .keysRedacted(true)
+                //commenting below for now. As below prints too much, once we learn (feedback) and 
+                //understand the fields that can be filtered out, we can uncomment or remove permanently
+                //.requestAttributes(getRequestAttributesAsMap(request))
+                .build();
+    }
+    
+    // Runs on the emitter worker (or the request thread, for a lazily captured request), only with the content captured from the request.
+    // Body object the handler bound, if it's known, is logged as is, otherwise the body is read from the captured bytes.
+    private void emitRequest(HttpLogMessage httpLogMessage, Object boundBody, byte[] body, int length, HandlerMethod handlerMethod) {
+        try {
+            
+            boolean streaming = redactionMode == RedactionMode.STREAMING;
+            
+            if(!streaming)
+            {
+                httpLogMessage.setBody(boundBody != null ? boundBody : readRequestBody(body, length, handlerMethod));
+            }
+            
+            long redactStart = metrics.start();
+            redact(httpLogMessage);
+            
+            if(streaming)
+            {
+                httpLogMessage.setBody(redactRequestBody(body, length, handlerMethod));
+            }
+            metrics.stop(Stage.REDACT, handlerMethod, redactStart);
+            
+            long emitStart = metrics.start();
+            logWriter.write(log, "REQUEST DATA", httpLogMessage);
+            metrics.stop(Stage.EMIT, handlerMethod, emitStart);
+            
+        } catch (Exception e) {
+            metrics.recordError("LG002");
+            log.warn("LG002: Failed to log request with error: ", e);
+        }
+    }
 
     
+    // Body is kept as the redacted tree, when the message is logged as key/value pairs, see LogEmissionMode.
+    private void redact(HttpLogMessage httpLogMessage) throws RedactionException {
+        
+        if(logWriter.isStructured())
+        {
+            redactor.redactLogMessageToTree(httpLogMessage);
+            return;
+        }
+        redactor.redactLogMessage(httpLogMessage);
+    }
+    
+    // Redacted JSON. When structured, the body bytes are kept and redacted straight into the encoder's generator, see RedactedJsonBody.
+    private Object redactJson(byte[] body, int length, JavaType bodyType) throws IOException {
+        
+        return logWriter.isStructured() ? redactor.redactJsonBody(body, 0, length, bodyType) : redactor.redactJson(body, 0, length, bodyType);
+    }
+    
+    /*
+     * Header, param and attribute maps below are built in a single pass over the names, sensitive values are redacted right
+     * there (and not even read), so the message is marked keysRedacted and the redactor does not copy them again.
+     * Multi-valued headers and params are kept, values are joined with ",", as in a folded HTTP header.
+     */
+    
     private Map<String, String> getRequestHeadersAsMap(HttpServletRequest request) {
         
-        return Collections.list(request.getHeaderNames())
-                .stream()
-                .collect(Collectors.toMap(
-                        headerName -> headerName, 
-                        request::getHeader,
-                        (existingValue, newValue) ->  newValue
-                        ));
+        Map<String, String> headers = new HashMap<>(HEADERS_INITIAL_CAPACITY);
+        Enumeration<String> headerNames = request.getHeaderNames();
+        while (headerNames != null && headerNames.hasMoreElements()) {
+            String headerName = headerNames.nextElement();
+            headers.put(headerName, redactor.isSensitiveHeader(headerName) ? LogMessageRedactor.REDACTED : joinValues(request.getHeaders(headerName)));
+        }
+        return headers;
     }
     
     
     private Map<String, String> getRequestParametersAsMap(HttpServletRequest request) {
         
-        return Collections.list(request.getParameterNames())
-                .stream()
-                .collect(Collectors.toMap(
-                        headerName -> headerName, 
-                        request::getParameter,
-                        (existingValue, newValue) ->  newValue
-                        ));
+        Map<String, String[]> parameterMap = request.getParameterMap();
+        Map<String, String> params = new HashMap<>(mapCapacity(parameterMap.size()));
+        for (Map.Entry<String, String[]> param : parameterMap.entrySet()) {
+            String paramName = param.getKey();
+            params.put(paramName, redactor.isSensitiveQueryParam(paramName) ? LogMessageRedactor.REDACTED : joinValues(param.getValue()));
+        }
+        return params;
     }
     
     private Map<String, Object> getRequestAttributesAsMap(HttpServletRequest request) {
         
-        return Collections.list(request.getAttributeNames())
-                .stream()
-                .collect(Collectors.toMap(
-                        attribName -> attribName, 
-                        request::getAttribute,
-                        (existingValue, newValue) ->  newValue
-                        ));
+        Map<String, Object> attributes = new HashMap<>();
+        Enumeration<String> attributeNames = request.getAttributeNames();
+        while (attributeNames.hasMoreElements()) {
+            String attribName = attributeNames.nextElement();
+            attributes.put(attribName, redactor.isSensitiveRequestAttribute(attribName) ? LogMessageRedactor.REDACTED : request.getAttribute(attribName));
+        }
+        return attributes;
+    }
+    
+    private static String joinValues(Enumeration<String> values) {
+        
+        if(values == null || !values.hasMoreElements())
+        {
+            return null;
+        }
+        String first = values.nextElement();
+        if(!values.hasMoreElements())
+        {
+            return first;
+        }
+        StringBuilder joined = new StringBuilder(first);
+        while (values.hasMoreElements()) {
+            joined.append(',').append(values.nextElement());
+        }
+        return joined.toString();
+    }
+    
+    private static String joinValues(String[] values) {
+        
+        if(values == null || values.length == 0)
+        {
+            return null;
+        }
+        return values.length == 1 ? values[0] : String.join(",", values);
+    }
+    
+    private static String joinValues(Collection<String> values) {
+        
+        if(values == null || values.isEmpty())
+        {
+            return null;
+        }
+        return values.size() == 1 ? values.iterator().next() : String.join(",", values);
+    }
+    
+    // Initial capacity of a HashMap to hold the given number of entries, without re-hashing.
+    private static int mapCapacity(int size) {
+        return (int) (size / 0.75f) + 1;
     }
     
     
@@ -139,37 +374,12 @@ public class HttpLogFilterHelper
      */
     public Object getRequestBody(RepeatableContentCachingRequestWrapper request, HandlerMethod handlerMethod) {
       
-      // Read the request JSON body
-      if(handlerMethod != null && isSupportedMediaType(request.getContentType()))
+      // Parsed straight from the cached body bytes with Jackson's byte based parser (it detects the UTF-8/16/32 encoding of JSON),
+      // not read line by line and re-built into a String first.
+      if(handlerMethod != null && isSupportedMediaType(request.getContentType()) && !isTruncated(request))
       {
-          StringBuilder body = new StringBuilder();
-          try (BufferedReader reader = request.getReader()) {
-
-              String line;
-              while ((line = reader.readLine()) != null) {
-                body.append(line.trim());
-              }
-          
-              // Get the DTO class dynamically
-              Class<?> dtoClass = getRequestTypeFromHandlerMethod(handlerMethod);
-    
-              // If DTO class is found, deserialize into the object
-              if (dtoClass != null) {
-
-                 return objectMapper.readValue(body.toString(), dtoClass);
-              }
-
-          }catch(JsonProcessingException e) {
-             log.error("LG002-01: Error deserializing request body to DTO: {}", e.getMessage());
-          }
-          catch (IOException e) {
-              log.error("LG002-02: error while extracting body from the incoming request: {} ", e.getMessage());
-         }
-          catch (Exception e) {
-              log.error("LG002-03 error while extracting and processing request body: {}", e.getMessage());
-         }
-
-       }
+          return readRequestBody(request.getCachedContent(), request.getCachedContentLength(), handlerMethod);
+      }
       
       // Return null. So that subsequent processors (e.g. Redactor will ignore nulls)
       // This helps in excluding non-supported content-types and/or verbs (e.g. GET) excluded 
@@ -179,86 +389,178 @@ public class HttpLogFilterHelper
       
     }
     
-    private Class<?> getRequestTypeFromHandlerMethod(HandlerMethod handlerMethod) {
-       
-        // Find the parameter annotated with @RequestBody in the controller
-        for (Parameter parameter : handlerMethod.getMethod().getParameters()) {
-            if (parameter.isAnnotationPresent(RequestBody.class)) {
+    // Same as getRequestBody, from the captured body bytes.
+    private Object readRequestBody(byte[] body, int length, HandlerMethod handlerMethod) {
+        
+        if(body == null || length == 0)
+        {
+            return null;
+        }
+        
+        try {
+            
+            Class<?> dtoClass = getRequestTypeFromHandlerMethod(handlerMethod);
+            if (dtoClass != null) {
                 
-                return parameter.getType(); // Return the DTO class type
+                long start = metrics.start();
+                Object dto = jsonMapper.readerFor(dtoClass).readValue(body, 0, length);
+                metrics.stop(Stage.DESERIALIZE, handlerMethod, start);
+                return dto;
             }
+            
+        }catch(JsonProcessingException e) {
+            metrics.recordError("LG002-01");
+            log.error("LG002-01: Error deserializing request body to DTO: {}", e.getMessage());
         }
-
-        return null; // No @RequestBody parameter found
+        catch (IOException e) {
+            metrics.recordError("LG002-02");
+            log.error("LG002-02: error while extracting body from the incoming request: {} ", e.getMessage());
+        }
+        catch (Exception e) {
+            metrics.recordError("LG002-03");
+            log.error("LG002-03 error while extracting and processing request body: {}", e.getMessage());
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Streaming counterpart of {@link #getRequestBody}. Redacts the cached request body bytes against the declared
+     * {@link RequestBody} type, without deserializing it.
+     * Same as getRequestBody, this method will NOT throw any exception up the stack.
+     * @param request
+     * @param handlerMethod
+     * @return redacted JSON body, or null if body is not supported/present.
+     */
+    public String getRedactedRequestBody(RepeatableContentCachingRequestWrapper request, HandlerMethod handlerMethod) {
+        
+        return Objects.toString(redactRequestBody(request, handlerMethod), null);
+    }
+    
+    // Redacted JSON (a RedactedJsonBody when structured), or null.
+    private Object redactRequestBody(RepeatableContentCachingRequestWrapper request, HandlerMethod handlerMethod) {
+        
+        if(handlerMethod != null && isSupportedMediaType(request.getContentType()) && !isTruncated(request))
+        {
+            // Cached buffer itself, no copy, as it's redacted (or copied, when structured) right here on the request thread.
+            return redactRequestBody(request.getCachedContent(), request.getCachedContentLength(), handlerMethod);
+        }
+        
+        return null;
+    }
+    
+    private Object redactRequestBody(byte[] body, int length, HandlerMethod handlerMethod) {
+        
+        if(body == null || length == 0)
+        {
+            return null;
+        }
+        
+        try {
+            
+            JavaType bodyType = getRequestJavaTypeFromHandlerMethod(handlerMethod);
+            if (bodyType != null) {
+                
+                return redactJson(body, length, bodyType);
+            }
+            
+        }catch(JsonProcessingException e) {
+            metrics.recordError("LG002-01");
+            log.error("LG002-01: Error redacting request body: {}", e.getMessage());
+        }
+        catch (Exception e) {
+            metrics.recordError("LG002-03");
+            log.error("LG002-03 error while extracting and processing request body: {}", e.getMessage());
+        }
+        
+        return null;
+    }
+    
+    private Class<?> getRequestTypeFromHandlerMethod(HandlerMethod handlerMethod) {
+       
+        return metadataCache.get(handlerMethod).getRequestBodyClass();
+    }
+    
+    // Same as getRequestTypeFromHandlerMethod, but keeps generics e.g. List<Employee>, that's needed to walk the JSON without the object.
+    private JavaType getRequestJavaTypeFromHandlerMethod(HandlerMethod handlerMethod) {
+        
+        return metadataCache.get(handlerMethod).getRequestBodyType();
     }
    
     
-    public void logResponse(ContentCachingResponseWrapper responseWrapper, HandlerMethod handlerMethod) {
+    public void logResponse(ContentCapturingResponseWrapper responseWrapper, HandlerMethod handlerMethod) {
         try 
         {
                
             HttpLogMessage httpLogMessage = HttpLogMessage
                     .builder()
                     .headers(getResponseHeadersAsMap(responseWrapper))
-                    .body(getResponseBody(responseWrapper, handlerMethod))
+                    .keysRedacted(true)
                     .build();  
-          
-
-            redactor.redactLogMessage(httpLogMessage);
-           
-            log.info("RESPONSE DATA: {}",httpLogMessage);
-        
+            
+            // Content is a copy, so the response can be written back (and recycled), while the event is emitted.
+            byte[] body = hasLoggableBody(responseWrapper.getContentType(), handlerMethod, false) && !isTruncated(responseWrapper) ? responseWrapper.getContentAsByteArray() : null;
+            String charset = responseWrapper.getCharacterEncoding();
+            metrics.recordBytesCaptured(handlerMethod, false, responseWrapper.getCapturedContentLength());
+            
+            // Runs right away, on this thread, if async is not enabled.
+            logEmitter.submit(() -> emitResponse(httpLogMessage, body, charset, handlerMethod));
           
         } catch (Exception e) {
+            metrics.recordError("LG003");
             log.warn("LG003: Failed to log response with error:", e);
         }
       }
+    
+    private void emitResponse(HttpLogMessage httpLogMessage, byte[] body, String charset, HandlerMethod handlerMethod) {
+        try 
+        {
+            
+            boolean streaming = redactionMode == RedactionMode.STREAMING;
+            
+            if(!streaming)
+            {
+                httpLogMessage.setBody(readResponseBody(body, charset, handlerMethod));
+            }
+            
+            long redactStart = metrics.start();
+            redact(httpLogMessage);
+            
+            if(streaming)
+            {
+                httpLogMessage.setBody(redactResponseBody(body, charset, handlerMethod));
+            }
+            metrics.stop(Stage.REDACT, handlerMethod, redactStart);
+            
+            long emitStart = metrics.start();
+            logWriter.write(log, "RESPONSE DATA", httpLogMessage);
+            metrics.stop(Stage.EMIT, handlerMethod, emitStart);
+            
+        } catch (Exception e) {
+            metrics.recordError("LG003");
+            log.warn("LG003: Failed to log response with error:", e);
+        }
+    }
      
-     private Map<String, String> getResponseHeadersAsMap(ContentCachingResponseWrapper responseWrapper) {
-         return responseWrapper.getHeaderNames()
-                 .stream()
-                 .collect(Collectors.toMap(
-                         headerName -> headerName,
-                         responseWrapper::getHeader,
-                         (existingValue, newValue) ->  newValue // Handle duplicates
-                 ));
+     private Map<String, String> getResponseHeadersAsMap(HttpServletResponse response) {
          
+         Collection<String> headerNames = response.getHeaderNames();
+         Map<String, String> headers = new HashMap<>(mapCapacity(headerNames.size()));
+         for (String headerName : headerNames) {
+             // Names may repeat (one per added value), getHeaders already returns all values of it.
+             if(!headers.containsKey(headerName))
+             {
+                 headers.put(headerName, redactor.isSensitiveHeader(headerName) ? LogMessageRedactor.REDACTED : joinValues(response.getHeaders(headerName)));
+             }
+         }
+         return headers;
      }
      
-     public Object getResponseBody(ContentCachingResponseWrapper responseWrapper, HandlerMethod handlerMethod) throws IOException {
+     public Object getResponseBody(ContentCapturingResponseWrapper responseWrapper, HandlerMethod handlerMethod) throws IOException {
          
-         if(handlerMethod != null && isSupportedMediaType(responseWrapper.getContentType()))
+         if(handlerMethod != null && isSupportedMediaType(responseWrapper.getContentType()) && !isTruncated(responseWrapper))
          {
-             try {
-                 
-                 String body = new String(responseWrapper.getContentAsByteArray(), responseWrapper.getCharacterEncoding());
-                 Class<?> dtoClass = determineReturnTypeOfHandlerMethod(handlerMethod);
-                 // If DTO class is found, deserialize into the object
-                 if (dtoClass != null) {
-                     
-                     try {
-                         
-                         return objectMapper.readValue(body, dtoClass);
-                         
-                     }catch(JsonProcessingException e) {
-                         
-                         log.info("LG003-01: Error deserializing response body to response DTO, doing raw: {}", e.getMessage());
-                         
-                         // This means mostly this reached A Global Exception Handler (e.g. ControllerAdvise), 
-                         // thus can not parse it to be the Controller Response ReturnType.
-                         return body; 
-                     }
-                    
-                 }
-                 
-             }catch (IOException e) {
-                 log.error("LG003-02: error while extracting processing response body: {}", e.getMessage());
-            }
-             catch (Exception e) {
-                 log.error("LG003-03: error while extracting reponse body: {}", e.getMessage());
-            }
-             
-             
+             return readResponseBody(responseWrapper.getContentAsByteArray(), responseWrapper.getCharacterEncoding(), handlerMethod);
          }
          // Return null. So that subsequent processors (e.g. Redactor will ignore nulls)
          // This helps in excluding non-supported content-types and/or verbs (e.g. GET) excluded 
@@ -268,33 +570,185 @@ public class HttpLogFilterHelper
          
        }
      
-     public Class<?> determineReturnTypeOfHandlerMethod(HandlerMethod handlerMethod) {
+     private Object readResponseBody(byte[] content, String charset, HandlerMethod handlerMethod) {
          
-         MethodParameter returnType = handlerMethod.getReturnType();
-         Class<?> returnTypeClass = returnType.getParameterType();
-
-         if (returnTypeClass == Void.TYPE || returnTypeClass == Void.class) {
-             // Method returns void
+         if(content == null)
+         {
              return null;
          }
-
-         if (ResponseEntity.class.isAssignableFrom(returnTypeClass)) {
-             // Extract the generic type from ResponseEntity<T>
-             Type genericType = returnType.getGenericParameterType();
-             if (genericType instanceof ParameterizedType parameterizedType) {
-                 Type[] typeArguments = parameterizedType.getActualTypeArguments();
-                 if (typeArguments.length > 0 && typeArguments[0] instanceof Class<?>) {
-                     return (Class<?>) typeArguments[0];
+         
+         try {
+             
+             Class<?> dtoClass = determineReturnTypeOfHandlerMethod(handlerMethod);
+             // If DTO class is found, deserialize into the object
+             if (dtoClass != null) {
+                 
+                 try {
+                     
+                     long start = metrics.start();
+                     Object dto = jsonMapper.readerFor(dtoClass).readValue(content);
+                     metrics.stop(Stage.DESERIALIZE, handlerMethod, start);
+                     return dto;
+                     
+                 }catch(JsonProcessingException e) {
+                     
+                     metrics.recordError("LG003-01");
+                     log.info("LG003-01: Error deserializing response body to response DTO, doing raw: {}", e.getMessage());
+                     
+                     // This means mostly this reached A Global Exception Handler (e.g. ControllerAdvise), 
+                     // thus can not parse it to be the Controller Response ReturnType.
+                     // Decoded to a String only here, as it's logged raw (redacted by the configured JSON field names/paths, if any).
+                     Object redacted = redactUntypedBody(content, false);
+                     return redacted != null ? redacted : new String(content, charset); 
+                 }
+                
+             }
+             
+         }catch (IOException e) {
+             metrics.recordError("LG003-02");
+             log.error("LG003-02: error while extracting processing response body: {}", e.getMessage());
+        }
+         catch (Exception e) {
+             metrics.recordError("LG003-03");
+             log.error("LG003-03: error while extracting reponse body: {}", e.getMessage());
+        }
+         
+         return null;
+     }
+     
+     /**
+      * Streaming counterpart of {@link #getResponseBody}. Redacts the cached response body bytes against the declared
+      * return type, without deserializing it. If body does not match the return type (e.g. from a ControllerAdvice), it's returned raw.
+      * @param responseWrapper
+      * @param handlerMethod
+      * @return redacted JSON body, raw body, or null if body is not supported.
+      */
+     public String getRedactedResponseBody(ContentCapturingResponseWrapper responseWrapper, HandlerMethod handlerMethod) {
+         
+         if(handlerMethod != null && isSupportedMediaType(responseWrapper.getContentType()) && !isTruncated(responseWrapper))
+         {
+             return Objects.toString(redactResponseBody(responseWrapper.getContentAsByteArray(), responseWrapper.getCharacterEncoding(), handlerMethod), null);
+         }
+         
+         return null;
+     }
+     
+     // Redacted JSON (a RedactedJsonBody when structured), raw body if it's not of the declared type, or null.
+     private Object redactResponseBody(byte[] body, String charset, HandlerMethod handlerMethod) {
+         
+         if(body == null || body.length == 0)
+         {
+             return null;
+         }
+         
+         try {
+             
+             JavaType bodyType = determineReturnJavaTypeOfHandlerMethod(handlerMethod);
+             if (bodyType != null) {
+                 
+                 try {
+                     
+                     return redactJson(body, body.length, bodyType);
+                     
+                 }catch(JsonProcessingException e) {
+                     
+                     metrics.recordError("LG003-01");
+                     log.info("LG003-01: Error redacting response body, doing raw: {}", e.getMessage());
+                     Object redacted = redactUntypedBody(body, true);
+                     return redacted != null ? redacted : new String(body, charset);
                  }
              }
-             return null; 
+             
+         }catch (IOException e) {
+             metrics.recordError("LG003-02");
+             log.error("LG003-02: error while extracting processing response body: {}", e.getMessage());
          }
-
-         // For other return types, directly return the class
-         return returnTypeClass;
+         catch (Exception e) {
+             metrics.recordError("LG003-03");
+             log.error("LG003-03: error while extracting reponse body: {}", e.getMessage());
+         }
+         
+         return null;
+     }
+     
+     public Class<?> determineReturnTypeOfHandlerMethod(HandlerMethod handlerMethod) {
+         
+         return metadataCache.get(handlerMethod).getResponseBodyClass();
+     }
+     
+     /**
+      * Same as {@link #determineReturnTypeOfHandlerMethod}, but keeps generics e.g. {@code List<Employee>} or {@code ResponseEntity<List<Employee>>}.
+      * @param handlerMethod
+      * @return declared type of the response body, null if void.
+      */
+     public JavaType determineReturnJavaTypeOfHandlerMethod(HandlerMethod handlerMethod) {
+         
+         return metadataCache.get(handlerMethod).getResponseBodyType();
      }
     
      
+     // Only the first max-body-bytes of the body are cached, a partial JSON body can not be parsed, so it's not logged.
+     private boolean isTruncated(RepeatableContentCachingRequestWrapper request) {
+         
+         if(request.isTruncated())
+         {
+             metrics.recordError("LG002-04");
+             log.info("LG002-04: Request body is larger than max-body-bytes, body is not logged");
+             return true;
+         }
+         return false;
+     }
+     
+     private boolean isTruncated(ContentCapturingRequestWrapper request) {
+         
+         if(request.isTruncated())
+         {
+             metrics.recordError("LG002-04");
+             log.info("LG002-04: Request body is larger than max-body-bytes, body is not logged");
+             return true;
+         }
+         return false;
+     }
+     
+     // Same for the response, a partial body is not logged raw either, as it's not redacted.
+     private boolean isTruncated(ContentCapturingResponseWrapper responseWrapper) {
+         
+         if(responseWrapper.isTruncated())
+         {
+             metrics.recordError("LG003-04");
+             log.info("LG003-04: Response body is larger than max-body-bytes, body is not logged");
+             return true;
+         }
+         return false;
+     }
+     
+     // Body that's not of the declared type, redacted by the configured JSON field names/paths only. Null if none are configured, or it's not JSON.
+     // Object mode always gets a String, as the body is walked by the redactor after.
+     private Object redactUntypedBody(byte[] content, boolean streaming) {
+         
+         if(!redactor.hasJsonPathRules())
+         {
+             return null;
+         }
+         try {
+             return streaming ? redactJson(content, content.length, TypeFactory.unknownType()) : redactor.redactUntypedJson(content, 0, content.length);
+         }catch(IOException e) {
+             log.debug("LG003-05: Response body is not JSON, logged raw: {}", e.getMessage());
+             return null;
+         }
+     }
+     
+     // Skips copying the body, when the handler does not declare one (e.g. no @RequestBody or void), it would not be logged anyway.
+     private boolean hasLoggableBody(String contentType, HandlerMethod handlerMethod, boolean request) {
+         
+         if(handlerMethod == null || !isSupportedMediaType(contentType))
+         {
+             return false;
+         }
+         HandlerLogMetadata metadata = metadataCache.get(handlerMethod);
+         return request ? metadata.hasRequestBody() : metadata.hasResponseBody();
+     }
+     
      // Right now configurable redaction and logging req/response payload is supported only for mime-type JSON.
      private static boolean isSupportedMediaType(String contentType) {
          if (contentType == null || contentType.isBlank()) {
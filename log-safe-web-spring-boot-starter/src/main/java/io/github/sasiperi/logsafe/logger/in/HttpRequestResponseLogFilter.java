@@ -16,20 +16,36 @@
 package io.github.sasiperi.logsafe.logger.in;
 
 import java.io.IOException;
+import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 import org.springframework.web.util.ContentCachingRequestWrapper;
-import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.ServletRequestPathUtils;
 
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import io.github.sasiperi.logsafe.logger.LogFilterRules;
+import io.github.sasiperi.logsafe.logger.LogSafeMetrics;
+import io.github.sasiperi.logsafe.logger.LogSafeMetrics.Stage;
+import io.github.sasiperi.logsafe.logger.LogSampler;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -45,24 +61,68 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 @AutoConfiguration
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @Component
 public class HttpRequestResponseLogFilter extends OncePerRequestFilter {
   
   private final RequestMappingHandlerMapping handlerMapping;
   private final HttpLogFilterHelper logFilterHelper;
+  private final HandlerLogMetadataCache metadataCache;
+  private final BodyBufferPool bufferPool;
+  private final LogSampler logSampler;
+  private final LogFilterRules logRules;
   
   private final boolean logRequest;
   private final boolean logResponse;
+  private final int maxBodyBytes;
+  private final RequestCaptureMode requestCapture;
+  
+  // No-op unless Micrometer is on the classpath, see LogSafeMetricsConfig.
+  private LogSafeMetrics metrics = LogSafeMetrics.NOOP;
 
   public HttpRequestResponseLogFilter(
           @Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping,
           HttpLogFilterHelper logFilterHelper,
+          HandlerLogMetadataCache metadataCache,
+          BodyBufferPool bufferPool,
+          LogSampler logSampler,
+          LogFilterRules logRules,
           @Value("${logsafe.logger.in.log-request:true}") boolean logRequest,
-          @Value("${logsafe.logger.in.log-response:false}") boolean logResponse) {
+          @Value("${logsafe.logger.in.log-response:false}") boolean logResponse,
+          @Value("${logsafe.logger.max-body-bytes:1048576}") int maxBodyBytes,
+          @Value("${logsafe.logger.in.request-capture:EAGER}") RequestCaptureMode requestCapture) {
       this.handlerMapping = handlerMapping;
       this.logFilterHelper = logFilterHelper;
+      this.metadataCache = metadataCache;
+      this.bufferPool = bufferPool;
+      this.logSampler = logSampler;
+      this.logRules = logRules;
       this.logRequest = logRequest;
       this.logResponse = logResponse;
+      this.maxBodyBytes = maxBodyBytes;
+      this.requestCapture = requestCapture;
+  }
+  
+  @Autowired(required = false)
+  public void setLogSafeMetrics(LogSafeMetrics metrics) {
+      this.metrics = metrics;
+  }
+  
+  // Resolve the request/response body types of all the mapped end-points once, ahead of the first request.
+  @Override
+  protected void initFilterBean() throws ServletException {
+      
+      try
+      {
+          Map<RequestMappingInfo, HandlerMethod> handlerMethods = handlerMapping.getHandlerMethods();
+          metadataCache.prefill(handlerMethods.values());
+          handlerMethods.forEach((mappingInfo, handlerMethod) -> logSampler.register(handlerMethod, mappingInfo.getPatternValues()));
+      }
+      catch (Exception e)
+      {
+          metrics.recordError("LG000-01");
+          log.warn("LG000-01: Error occured during resolving handler log metadata, will be resolved on request: {}", e.getMessage());
+      }
   }
   
   @Override
@@ -79,6 +139,7 @@ public class HttpRequestResponseLogFilter extends OncePerRequestFilter {
             catch (Exception e)
             {
                 handlerChain = null;
+                metrics.recordError("LG000");
                 log.info("LG000: Error occured during resolving request handler", e.getMessage());
             }
           
@@ -92,35 +153,80 @@ public class HttpRequestResponseLogFilter extends OncePerRequestFilter {
               //Find the (endpoint) method that would be handling this http request.
               HandlerMethod handlerMethod = (HandlerMethod) handlerChain.getHandler();
               
-              //Log Request with buffered, caching req wrapper, so that the req is still available after read from streamed, at the begining.
-              RepeatableContentCachingRequestWrapper repeatableContentCachingRequestWrapper = new RepeatableContentCachingRequestWrapper(request);
-
-              if(logRequest)
+              // Excluded by the rules or marked @NoLogSafe, passed on as is, not wrapped, buffered or sampled.
+              if((logRequest || logResponse) && isExcluded(request, handlerMethod))
               {
-
-                  logFilterHelper.logRequest(repeatableContentCachingRequestWrapper, handlerMethod);
+                  filterChain.doFilter(request, response);
+                  return;
+              }
+              
+              // Decided before anything is wrapped or buffered, so a request not sampled costs next to nothing.
+              if((logRequest || logResponse) && !logSampler.sample(handlerMethod))
+              {
+                  filterNotSampled(request, response, filterChain, handlerMethod);
+                  return;
+              }
+              
+              // Body is captured as the handler reads it, request is logged once handled.
+              if(requestCapture == RequestCaptureMode.LAZY)
+              {
+                  filterCapturingRequest(request, response, filterChain, handlerMethod);
+                  return;
               }
+              
+              long filterStart = metrics.start();
+              long chainNanos;
+              
+              //Log Request with buffered, caching req wrapper, so that the req is still available after read from streamed, at the begining.
+              RepeatableContentCachingRequestWrapper repeatableContentCachingRequestWrapper = new RepeatableContentCachingRequestWrapper(request, maxBodyBytes, bufferPool);
+              metrics.stop(Stage.CAPTURE, handlerMethod, filterStart);
 
-              if(logResponse)
+              try
               {
+                  if(logRequest)
+                  {
 
-                  ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
-                  filterChain.doFilter(repeatableContentCachingRequestWrapper, responseWrapper);
+                      logFilterHelper.logRequest(repeatableContentCachingRequestWrapper, handlerMethod);
+                  }
 
-                  //Log Response and reset, or else it's not available after read once (it can be read only once by default).
-                  logFilterHelper.logResponse(responseWrapper, handlerMethod);
+                  if(logResponse)
+                  {
 
-                  //copy back after reading once to log
-                  responseWrapper.copyBodyToResponse();
+                      // Response is written through to the client as it's written, only the first max-body-bytes are captured to log.
+                      ContentCapturingResponseWrapper responseWrapper = new ContentCapturingResponseWrapper(response, maxBodyBytes, bufferPool);
+                      try
+                      {
+                          try
+                          {
+                              chainNanos = doFilterTimed(filterChain, repeatableContentCachingRequestWrapper, responseWrapper);
+                          }
+                          finally
+                          {
+                              // Flushed even if the chain failed, so what the writer holds reaches the client (and the capture) before release.
+                              responseWrapper.flushCapture();
+                          }
+                          logFilterHelper.logResponse(responseWrapper, handlerMethod);
+                      }
+                      finally
+                      {
+                          releaseWhenDone(repeatableContentCachingRequestWrapper, responseWrapper::release);
+                      }
 
+                  }
+                  // By adding this additional condition, Saving a bit of computation (performance) if the response is not required to be logged
+                  // by not wrapping it into capturing response
+                  // Also this will take care if both are marked false, it would still filter through.
+                  else {
+                      //filter chain with repeatable request.
+                      chainNanos = doFilterTimed(filterChain, repeatableContentCachingRequestWrapper, response);
+                  }
               }
-              // By adding this additional condition, Saving a bit of computation (performance) if the response is not required to be logged
-              // by not wrapping it into repeatable response and copying it back to body
-              // Also this will take care if both are marked false, it would still filter through.
-              else {
-                  //filter chain with repeatable request.
-                  filterChain.doFilter(repeatableContentCachingRequestWrapper, response);
+              finally
+              {
+                  // Body buffer goes back to the pool, request is done (including logging) by now.
+                  releaseWhenDone(repeatableContentCachingRequestWrapper, repeatableContentCachingRequestWrapper::release);
               }
+              metrics.record(Stage.FILTER, handlerMethod, metrics.start() - filterStart - chainNanos);
 
             }else {
 
@@ -130,4 +236,141 @@ public class HttpRequestResponseLogFilter extends OncePerRequestFilter {
 
   }
 
+  // Lazy counterpart of the (eager) repeatable request path, the chain starts right away, without draining the body first.
+  private void filterCapturingRequest(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain, HandlerMethod handlerMethod)
+          throws ServletException, IOException {
+      
+      long filterStart = metrics.start();
+      long chainNanos;
+      ContentCapturingRequestWrapper requestWrapper = logRequest ? new ContentCapturingRequestWrapper(request, maxBodyBytes, bufferPool) : null;
+      ContentCapturingResponseWrapper responseWrapper = logResponse ? new ContentCapturingResponseWrapper(response, maxBodyBytes, bufferPool) : null;
+      
+      try
+      {
+          try
+          {
+              chainNanos = doFilterTimed(filterChain, requestWrapper != null ? requestWrapper : request, responseWrapper != null ? responseWrapper : response);
+          }
+          finally
+          {
+              // Flushed even if the chain failed, so what the writer holds reaches the client (and the capture) before release.
+              if(responseWrapper != null)
+              {
+                  responseWrapper.flushCapture();
+              }
+              // Logged even if the handler failed, with what it had read of the body by then.
+              if(requestWrapper != null)
+              {
+                  logFilterHelper.logCapturedRequest(requestWrapper, handlerMethod);
+              }
+          }
+          
+          if(responseWrapper != null)
+          {
+              logFilterHelper.logResponse(responseWrapper, handlerMethod);
+          }
+      }
+      finally
+      {
+          if(requestWrapper != null)
+          {
+              releaseWhenDone(request, requestWrapper::release);
+          }
+          if(responseWrapper != null)
+          {
+              releaseWhenDone(request, responseWrapper::release);
+          }
+      }
+      metrics.record(Stage.FILTER, handlerMethod, metrics.start() - filterStart - chainNanos);
+  }
+  
+  // Buffers go back to the pool once the request is done. If processing continues async (e.g. DeferredResult), the response
+  // is still written (and the request may still be read) after the filter returns, so that's once the async processing completes.
+  private static void releaseWhenDone(HttpServletRequest request, Runnable release) {
+      
+      if(!request.isAsyncStarted())
+      {
+          release.run();
+          return;
+      }
+      request.getAsyncContext().addListener(new AsyncListener() {
+          
+          @Override
+          public void onComplete(AsyncEvent event) {
+              release.run();
+          }
+          
+          @Override
+          public void onTimeout(AsyncEvent event) {
+              // Completed after, onComplete releases.
+          }
+          
+          @Override
+          public void onError(AsyncEvent event) {
+              // Completed after, onComplete releases.
+          }
+          
+          @Override
+          public void onStartAsync(AsyncEvent event) {
+              // Async restarted (another cycle), listeners are dropped unless added again.
+              event.getAsyncContext().addListener(this);
+          }
+      });
+  }
+  
+  // Runs the rest of the chain and returns the time it took, so that it's left out of the time the filter adds (FILTER stage).
+  private long doFilterTimed(FilterChain filterChain, ServletRequest request, ServletResponse response) throws ServletException, IOException {
+      
+      long start = metrics.start();
+      filterChain.doFilter(request, response);
+      return metrics.start() - start;
+  }
+
+  private boolean isExcluded(HttpServletRequest request, HandlerMethod handlerMethod) {
+      
+      if(logRules.isActive()
+              && logRules.isExcluded(request.getMethod(), request.getContentType(), logRules.hasPathRules() ? requestPath(request) : null))
+      {
+          return true;
+      }
+      return metadataCache.get(handlerMethod).isNoLogSafe();
+  }
+  
+  // Path is parsed (and cached in the request) by the handler lookup, parsed here only if the mapping does not use path patterns.
+  private static PathContainer requestPath(HttpServletRequest request) {
+      
+      RequestPath requestPath = ServletRequestPathUtils.hasParsedRequestPath(request)
+              ? ServletRequestPathUtils.getParsedRequestPath(request)
+              : RequestPath.parse(request.getRequestURI(), request.getContextPath());
+      return requestPath.pathWithinApplication();
+  }
+
+  // Not wrapped, so no body is logged, only the request/response headers, if the request fails or is slow.
+  private void filterNotSampled(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain, HandlerMethod handlerMethod)
+          throws ServletException, IOException {
+      
+      if(!logSampler.isOutcomeLogged())
+      {
+          filterChain.doFilter(request, response);
+          return;
+      }
+      
+      long start = System.nanoTime();
+      boolean failed = true;
+      try
+      {
+          filterChain.doFilter(request, response);
+          failed = false;
+      }
+      finally
+      {
+          // Outcome of an async request is not known yet.
+          String reason = request.isAsyncStarted() ? null : logSampler.alwaysLogReason(failed, response.getStatus(), System.nanoTime() - start);
+          if(reason != null)
+          {
+              logFilterHelper.logOutcome(request, response, handlerMethod, reason, logRequest, logResponse);
+          }
+      }
+  }
+
 }
@@ -15,52 +15,210 @@
  */
 package io.github.sasiperi.logsafe.logger.in;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
-import org.springframework.util.StreamUtils;
-import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
 import jakarta.servlet.ReadListener;
 import jakarta.servlet.ServletInputStream;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
 
 /**
  * This Request Wrapper class is created to log the request body at the start of request. As OOTB
  * wrapper has limitation to log the request body at the start of the request. Thus we decided to
  * add this custom-wrapper as suggested by Spring Dev and Ref:
  * https://github.com/spring-projects/spring-framework/pull/24533#issuecomment-589188646
+ * @implNote The body is read once into a single buffer (leased from {@link BodyBufferPool}, returned with {@link #release()}), capped at max-body-bytes. {@link #getInputStream()} and {@link #getReader()}
+ * hand out views of that buffer (no copies), with bulk reads, they fail once the buffer is released. If the body is larger than the cap, the rest is streamed
+ * from the original request after the cached part, so the controller still sees the full body (only once), while only the cached part is logged.
  * @author sasiperi
  * @since 11.20.2023
  */
-public class RepeatableContentCachingRequestWrapper extends ContentCachingRequestWrapper {
-  public RepeatableContentCachingRequestWrapper(HttpServletRequest request) throws IOException {
+public class RepeatableContentCachingRequestWrapper extends HttpServletRequestWrapper {
+
+  private static final int DEFAULT_BUFFER_SIZE = 1024;
+  private static final byte[] EMPTY = new byte[0];
+
+  private final BodyBufferPool bufferPool;
+  private byte[] content;
+  private int contentLength;
+  private boolean truncated;
+  // Set once the buffer is back in the pool, streams still held (e.g. by a late reader) must not see the next request's body.
+  private volatile boolean released;
+  // Rest of the original stream, beyond the cap, if truncated.
+  private ServletInputStream remainder;
+  // First byte of the remainder, read to find out whether the body is larger than the cap.
+  private int pushedBack = -1;
+
+  public RepeatableContentCachingRequestWrapper(HttpServletRequest request, int maxBodyBytes, BodyBufferPool bufferPool) throws IOException {
     super(request);
-    
-    // This is so RequestParameterMap, that's form-url-encoded, sent with POST will still be cached and would work.
-    // Otherwise with the way ContentCachingRequestWrapper implements for POSTs with mediatype x-form-url-encoded
-    // Parameter Map is not cached and not available for further reads (lost/empty).
-    super.getParameterMap();
-    StreamUtils.drain(super.getInputStream());
+    this.bufferPool = bufferPool;
+
+    if (isFormPost(request)) {
+      // This is so RequestParameterMap, that's form-url-encoded, sent with POST will still be cached and would work.
+      // Container reads the parameters from the body, thus nothing is left to cache (and it's not logged, not JSON).
+      request.getParameterMap();
+      this.content = EMPTY;
+      return;
+    }
+    cacheContent(request.getInputStream(), request.getContentLength(), Math.max(0, maxBodyBytes));
+  }
+
+  private void cacheContent(ServletInputStream in, int declaredLength, int maxBodyBytes) throws IOException {
+
+    // Size the buffer right away when the length is known, grow it otherwise.
+    int initialSize = declaredLength >= 0 ? Math.min(declaredLength, maxBodyBytes) : Math.min(DEFAULT_BUFFER_SIZE, maxBodyBytes);
+    byte[] buffer = bufferPool.lease(initialSize);
+    int length = 0;
+
+    try {
+      while (length < maxBodyBytes) {
+        if (length == buffer.length) {
+          byte[] grown = bufferPool.lease((int) Math.min((long) Math.max(buffer.length, DEFAULT_BUFFER_SIZE) * 2, maxBodyBytes));
+          System.arraycopy(buffer, 0, grown, 0, length);
+          bufferPool.release(buffer, length);
+          buffer = grown;
+        }
+        // Pooled buffer can be larger than the cap (size of the class), read no more than the cap.
+        int read = in.read(buffer, length, Math.min(buffer.length, maxBodyBytes) - length);
+        if (read == -1) {
+          break;
+        }
+        length += read;
+      }
+
+      if (length == maxBodyBytes && hasMore(in)) {
+        this.truncated = true;
+        this.remainder = in;
+      }
+    } catch (IOException | RuntimeException e) {
+      // Read failed (e.g. client aborted), the wrapper is never created, so the buffer goes back to the pool right here.
+      bufferPool.release(buffer, length);
+      throw e;
+    }
+    this.content = buffer;
+    this.contentLength = length;
+  }
+
+  // Reads one more byte of the original stream, it's handed back as the first byte of the remainder.
+  private boolean hasMore(ServletInputStream in) throws IOException {
+    int next = in.read();
+    if (next == -1) {
+      return false;
+    }
+    this.pushedBack = next;
+    return true;
+  }
+
+  // Media types are case-insensitive, e.g. Application/X-WWW-Form-Urlencoded is a form too. A malformed one is not parsed as a form by the container either.
+  private static boolean isFormPost(HttpServletRequest request) {
+    String contentType = request.getContentType();
+    if (contentType == null || !HttpMethod.POST.matches(request.getMethod())) {
+      return false;
+    }
+    try {
+      return MediaType.APPLICATION_FORM_URLENCODED.includes(MediaType.parseMediaType(contentType));
+    } catch (InvalidMediaTypeException e) {
+      return false;
+    }
   }
 
   @Override
   public ServletInputStream getInputStream() {
-    return new ByteServletInputStream(getContentAsByteArray());
+    if (truncated) {
+      // The remainder can be streamed only once, the first reader takes it.
+      ServletInputStream rest = remainder;
+      int first = pushedBack;
+      remainder = null;
+      pushedBack = -1;
+      return new CachedBodyServletInputStream(first, rest);
+    }
+    return new CachedBodyServletInputStream(-1, null);
+  }
+
+  @Override
+  public BufferedReader getReader() {
+    return new BufferedReader(new InputStreamReader(getInputStream(), getCharset()));
+  }
+
+  private Charset getCharset() {
+    String encoding = getCharacterEncoding();
+    return encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
   }
 
-  private static class ByteServletInputStream extends ServletInputStream {
+  /**
+   * @return copy of the cached body, e.g. to be handed to another thread.
+   */
+  public byte[] getContentAsByteArray() {
+    return Arrays.copyOf(content, contentLength);
+  }
+
+  /**
+   * @return cached body buffer itself (not a copy), only the first {@link #getCachedContentLength()} bytes are the body. Must not be modified,
+   * nor used after {@link #release()}, that's for the (synchronous) logging of the request only.
+   */
+  byte[] getCachedContent() {
+    return content;
+  }
+
+  public int getCachedContentLength() {
+    return contentLength;
+  }
+
+  /**
+   * @return true if the body is larger than max-body-bytes, that's only the first part of the body is cached.
+   */
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  /**
+   * Returns the body buffer to the pool, once the request is done. Streams of the cached body that are still open fail after this.
+   */
+  public void release() {
+    released = true;
+    byte[] buffer = content;
+    int length = contentLength;
+    content = EMPTY;
+    contentLength = 0;
+    bufferPool.release(buffer, length);
+  }
 
-    private final InputStream is;
+  private class CachedBodyServletInputStream extends ServletInputStream {
+
+    private final byte[] content;
+    private final int length;
+    private int position;
+    private int pushedBack;
+    private final InputStream remainder;
+
+    private CachedBodyServletInputStream(int pushedBack, InputStream remainder) {
+      this.content = RepeatableContentCachingRequestWrapper.this.content;
+      this.length = contentLength;
+      this.pushedBack = pushedBack;
+      this.remainder = remainder;
+    }
 
-    private ByteServletInputStream(byte[] content) {
-      this.is = new ByteArrayInputStream(content);
+    // The buffer may be leased to another request already.
+    private void ensureNotReleased() throws IOException {
+      if (released) {
+        throw new IOException("Request body is released, the request is complete");
+      }
     }
 
     @Override
     public boolean isFinished() {
-      return true;
+      return released || position >= length && pushedBack == -1 && remainder == null;
     }
 
     @Override
@@ -73,12 +231,65 @@ public class RepeatableContentCachingRequestWrapper extends ContentCachingReques
 
     @Override
     public int read() throws IOException {
-      return this.is.read();
+      ensureNotReleased();
+      if (position < length) {
+        return content[position++] & 0xFF;
+      }
+      return readRemainder();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      ensureNotReleased();
+      if (len == 0) {
+        return 0;
+      }
+      int cached = length - position;
+      if (cached > 0) {
+        int count = Math.min(cached, len);
+        System.arraycopy(content, position, b, off, count);
+        position += count;
+        return count;
+      }
+      if (pushedBack != -1) {
+        b[off] = (byte) readRemainder();
+        return 1;
+      }
+      return remainder != null ? remainder.read(b, off, len) : -1;
+    }
+
+    @Override
+    public byte[] readAllBytes() throws IOException {
+      ensureNotReleased();
+      if (remainder == null && pushedBack == -1) {
+        byte[] rest = Arrays.copyOfRange(content, position, length);
+        position = length;
+        return rest;
+      }
+      return super.readAllBytes();
+    }
+
+    @Override
+    public int available() throws IOException {
+      ensureNotReleased();
+      int cached = length - position + (pushedBack != -1 ? 1 : 0);
+      return cached > 0 || remainder == null ? cached : remainder.available();
+    }
+
+    private int readRemainder() throws IOException {
+      if (pushedBack != -1) {
+        int next = pushedBack;
+        pushedBack = -1;
+        return next;
+      }
+      return remainder != null ? remainder.read() : -1;
     }
 
     @Override
     public void close() throws IOException {
-      this.is.close();
+      if (remainder != null) {
+        remainder.close();
+      }
     }
   }
 }
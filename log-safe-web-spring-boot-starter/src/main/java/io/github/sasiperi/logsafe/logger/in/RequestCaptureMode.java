@@ -0,0 +1,31 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.in;
+
+/**
+ * When the request body is captured (and so, when the request is logged).
+ * - EAGER: Body is read (drained) before the filter chain starts, request is logged before it's handled.
+ *   See {@link RepeatableContentCachingRequestWrapper}.
+ * - LAZY: Body is captured through a tee as the handler reads it, request is logged once it's handled.
+ *   No up-front drain, the handler starts as soon as the headers are in. See {@link ContentCapturingRequestWrapper}.
+ *
+ * @author sasiperi
+ */
+public enum RequestCaptureMode
+{
+    EAGER,
+    LAZY
+}
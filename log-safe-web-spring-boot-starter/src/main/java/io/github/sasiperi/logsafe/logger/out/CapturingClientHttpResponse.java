@@ -0,0 +1,194 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.out;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tee style client response, to log the response body of an outbound call. Body is read by the caller as is (nothing is buffered ahead
+ * of the caller, streaming bodies keep streaming), while a copy of the first max-body-bytes is kept, in a buffer leased from {@link BodyBufferPool}.
+ * The response is logged once, when it's closed.
+ * @implNote A message converter (e.g. Jackson) stops reading at the end of the JSON value, without reading to the end of the stream,
+ * so a body is not required to be read to the end. A body that's shorter than its Content-Length, or partly skipped, is not logged,
+ * any other partial body fails to parse as JSON, and is not logged by {@link OutboundLogHelper} either.
+ * @author sasiperi
+ */
+@Slf4j
+class CapturingClientHttpResponse implements ClientHttpResponse {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ClientHttpResponse delegate;
+    private final HttpMethod method;
+    private final URI uri;
+    private final OutboundLogHelper logHelper;
+    private final BodyBufferPool bufferPool;
+    private final int maxBodyBytes;
+
+    private byte[] content = EMPTY;
+    private int contentLength;
+    private boolean truncated;
+    private boolean skipped;
+
+    private InputStream body;
+    private boolean closed;
+
+    CapturingClientHttpResponse(ClientHttpResponse delegate, HttpMethod method, URI uri, OutboundLogHelper logHelper) {
+        this.delegate = delegate;
+        this.method = method;
+        this.uri = uri;
+        this.logHelper = logHelper;
+        this.bufferPool = logHelper.getBufferPool();
+        this.maxBodyBytes = logHelper.getMaxBodyBytes();
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() throws IOException {
+        return delegate.getStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+        return delegate.getStatusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return delegate.getHeaders();
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+        if (body == null) {
+            InputStream delegateBody = delegate.getBody();
+            // Not captured at all, if it would not be logged anyway (not JSON, or no JSON field names/paths configured).
+            body = logHelper.hasLoggableBody(getHeaders()) ? new TeeInputStream(delegateBody) : delegateBody;
+        }
+        return body;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            // Status and headers are read before the delegate is closed, body is handed to the log event as a copy.
+            int status = delegate.getStatusCode().value();
+            long expectedLength = getHeaders().getContentLength();
+            boolean partial = skipped || (expectedLength >= 0 && contentLength < expectedLength);
+            byte[] logged = !partial && !truncated && contentLength > 0 ? Arrays.copyOf(content, contentLength) : null;
+            logHelper.logResponse(method, uri, status, getHeaders(), logged, logged != null ? logged.length : 0, truncated);
+        } catch (IOException | RuntimeException e) {
+            log.warn("LG006: Failed to log outbound response with error: ", e);
+        } finally {
+            release();
+            delegate.close();
+        }
+    }
+
+    private void capture(int b) {
+        if (contentLength >= maxBodyBytes) {
+            truncated = true;
+            return;
+        }
+        ensureCapacity(contentLength + 1);
+        content[contentLength++] = (byte) b;
+    }
+
+    private void capture(byte[] b, int off, int len) {
+        int count = Math.min(len, maxBodyBytes - contentLength);
+        if (count < len) {
+            truncated = true;
+        }
+        if (count <= 0) {
+            return;
+        }
+        ensureCapacity(contentLength + count);
+        System.arraycopy(b, off, content, contentLength, count);
+        contentLength += count;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= content.length) {
+            return;
+        }
+        long grownSize = Math.max((long) Math.max(content.length, DEFAULT_BUFFER_SIZE) * 2, capacity);
+        byte[] grown = bufferPool.lease((int) Math.min(grownSize, maxBodyBytes));
+        System.arraycopy(content, 0, grown, 0, contentLength);
+        bufferPool.release(content, contentLength);
+        content = grown;
+    }
+
+    private void release() {
+        byte[] buffer = content;
+        int length = contentLength;
+        content = EMPTY;
+        contentLength = 0;
+        bufferPool.release(buffer, length);
+    }
+
+    private class TeeInputStream extends FilterInputStream {
+
+        private TeeInputStream(InputStream delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1 && !closed) {
+                capture(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = in.read(b, off, len);
+            if (count > 0 && !closed) {
+                capture(b, off, count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes are not seen, so the capture is not the body anymore.
+            skipped = true;
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
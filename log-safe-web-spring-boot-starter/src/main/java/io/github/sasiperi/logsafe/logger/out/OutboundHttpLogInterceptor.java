@@ -0,0 +1,104 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.out;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Logs the outbound calls of RestTemplate and RestClient, see {@link OutboundLogHelper}.
+ * Added to the RestTemplate/RestClient built from the auto-configured RestTemplateBuilder/RestClient.Builder, a client created
+ * otherwise (e.g. new RestTemplate()) can add this bean to its interceptors.
+ * @implNote Request body is copied (if it would be logged) before the call, response body is teed as it's read by the caller
+ * (e.g. the message converter), see {@link CapturingClientHttpResponse}, and logged when the response is closed.
+ * @author sasiperi
+ */
+@Component
+@Slf4j
+@AutoConfiguration
+@ConditionalOnProperty(prefix = "logsafe.logger.out", name = "enabled", havingValue = "true")
+public class OutboundHttpLogInterceptor implements ClientHttpRequestInterceptor, RestTemplateCustomizer, RestClientCustomizer {
+
+    private final OutboundLogHelper logHelper;
+
+    @Autowired
+    public OutboundHttpLogInterceptor(OutboundLogHelper logHelper) {
+        this.logHelper = logHelper;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+
+        if(logHelper.isLogRequest())
+        {
+            try {
+                logRequest(request, body);
+            } catch (RuntimeException e) {
+                // Logging never fails the application's own call.
+                log.warn("LG006: Failed to log outbound request with error: ", e);
+            }
+        }
+
+        ClientHttpResponse response = execution.execute(request, body);
+
+        return logHelper.isLogResponse() ? capturing(request, response) : response;
+    }
+
+    // Response is handed back as is, if it could not be wrapped for logging.
+    private ClientHttpResponse capturing(HttpRequest request, ClientHttpResponse response) {
+        try {
+            return new CapturingClientHttpResponse(response, request.getMethod(), request.getURI(), logHelper);
+        } catch (RuntimeException e) {
+            log.warn("LG006: Failed to log outbound response with error: ", e);
+            return response;
+        }
+    }
+
+    // Body is copied, so that it's owned by the log event, only if it would be logged and fits max-body-bytes.
+    private void logRequest(HttpRequest request, byte[] body) {
+
+        boolean loggableBody = body != null && body.length > 0 && logHelper.hasLoggableBody(request.getHeaders());
+        boolean truncated = loggableBody && body.length > logHelper.getMaxBodyBytes();
+        byte[] content = loggableBody && !truncated ? Arrays.copyOf(body, body.length) : null;
+
+        logHelper.logRequest(request.getMethod(), request.getURI(), request.getHeaders(), content, content != null ? content.length : 0, truncated);
+    }
+
+    @Override
+    public void customize(RestTemplate restTemplate) {
+        restTemplate.getInterceptors().add(this);
+    }
+
+    @Override
+    public void customize(RestClient.Builder restClientBuilder) {
+        restClientBuilder.requestInterceptor(this);
+    }
+}
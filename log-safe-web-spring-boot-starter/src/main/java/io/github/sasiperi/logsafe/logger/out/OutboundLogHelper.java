@@ -0,0 +1,263 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.out;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import io.github.sasiperi.logsafe.config.OutboundLogConfig;
+import io.github.sasiperi.logsafe.logger.AsyncLogEmitter;
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import io.github.sasiperi.logsafe.logger.HttpLogMessage;
+import io.github.sasiperi.logsafe.logger.LogEventWriter;
+import io.github.sasiperi.logsafe.logger.LogMessageRedactor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Logs the outbound (HTTP client) requests and responses, for {@link OutboundHttpLogInterceptor} (RestTemplate/RestClient)
+ * and the WebClient filter of the reactive starter. Same as the inbound filter, headers and query params are redacted as they are read,
+ * by the logsafe.sensitive configuration. Body is redacted by the {@link AsyncLogEmitter} workers, never on the calling thread.
+ * @implNote A client body has no declared type (it's already serialized by the time it's seen), so it's redacted by the configured
+ * JSON field names/paths only, see {@link LogMessageRedactor#redactUntypedJson}, and it's not logged when none are configured.
+ * Unlike an inbound body that's not of its declared type (logged raw when there are no JSON field names/paths), a client body is never logged unredacted.
+ * Only complete JSON (compatible with {@link MediaType#APPLICATION_JSON}) bodies, up to max-body-bytes, are logged.
+ * @implNote Events are submitted forced async, even if logsafe.logger.async is not enabled. When the emitter can not keep up, they are dropped
+ * (logsafe.async.dropped) instead of blocking the caller, whatever the overflow policy.
+ * @author sasiperi
+ */
+@Component
+@Slf4j
+@AutoConfiguration
+@ConditionalOnProperty(prefix = "logsafe.logger.out", name = "enabled", havingValue = "true")
+public class OutboundLogHelper {
+
+    private final LogMessageRedactor redactor;
+    private final LogEventWriter logWriter;
+    private final BodyBufferPool bufferPool;
+    private final int maxBodyBytes;
+    private final boolean logRequest;
+    private final boolean logResponse;
+    private final AsyncLogEmitter logEmitter;
+
+    // Drops are counted by the emitter, this is only to warn once in a while.
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    @Autowired
+    public OutboundLogHelper(LogMessageRedactor redactor, LogEventWriter logWriter, BodyBufferPool bufferPool, AsyncLogEmitter logEmitter,
+            OutboundLogConfig outboundLogConfig, @Value("${logsafe.logger.max-body-bytes:1048576}") int maxBodyBytes) {
+        this.redactor = redactor;
+        this.logWriter = logWriter;
+        this.bufferPool = bufferPool;
+        this.logEmitter = logEmitter;
+        this.maxBodyBytes = Math.max(0, maxBodyBytes);
+        this.logRequest = outboundLogConfig.isLogRequest();
+        this.logResponse = outboundLogConfig.isLogResponse();
+    }
+
+    public boolean isLogRequest() {
+        return logRequest;
+    }
+
+    public boolean isLogResponse() {
+        return logResponse;
+    }
+
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    public BodyBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Skips capturing the body, when it would not be logged anyway, that's it's not JSON or no JSON field names/paths are configured.
+     * A malformed content type is not logged either, it never fails the call.
+     * @param headers headers of the request/response the body belongs to
+     * @return true if the body would be logged
+     */
+    public boolean hasLoggableBody(HttpHeaders headers) {
+        if(!redactor.hasJsonPathRules())
+        {
+            return false;
+        }
+        try {
+            MediaType contentType = headers.getContentType();
+            return contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(contentType);
+        } catch (InvalidMediaTypeException e) {
+            log.debug("LG006-04: Invalid outbound content type, body is not logged: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Logs the outbound request on an emitter worker.
+     * @param method HTTP method of the request
+     * @param uri URI of the request, query params are logged (redacted) separately
+     * @param headers request headers, redacted (and copied) on the calling thread
+     * @param body captured body, owned by the event (not written after this call), null if not captured
+     * @param bodyLength length of the captured body
+     * @param truncated true if the body is larger than max-body-bytes, it's not logged then
+     */
+    public void logRequest(HttpMethod method, URI uri, HttpHeaders headers, byte[] body, int bodyLength, boolean truncated) {
+        try {
+
+            HttpLogMessage httpLogMessage = HttpLogMessage
+                                                .builder()
+                                                .httpMethod(method.name())
+                                                .headers(getHeadersAsMap(headers))
+                                                .keysRedacted(true)
+                                                .build();
+
+            submit(() -> emit("OUTBOUND REQUEST DATA", httpLogMessage, uri, body, bodyLength, truncated));
+
+        } catch (Exception e) {
+            log.warn("LG006: Failed to log outbound request with error: ", e);
+        }
+    }
+
+    /**
+     * Logs the outbound response on an emitter worker, same as {@link #logRequest}, with the response status.
+     * @param method HTTP method of the request
+     * @param uri URI of the request
+     * @param status response status code
+     * @param headers response headers, redacted (and copied) on the calling thread
+     * @param body captured body, owned by the event, null if not captured
+     * @param bodyLength length of the captured body
+     * @param truncated true if the body is larger than max-body-bytes, it's not logged then
+     */
+    public void logResponse(HttpMethod method, URI uri, int status, HttpHeaders headers, byte[] body, int bodyLength, boolean truncated) {
+        try {
+
+            HttpLogMessage httpLogMessage = HttpLogMessage
+                                                .builder()
+                                                .httpMethod(method.name())
+                                                .status(status)
+                                                .headers(getHeadersAsMap(headers))
+                                                .keysRedacted(true)
+                                                .build();
+
+            submit(() -> emit("OUTBOUND RESPONSE DATA", httpLogMessage, uri, body, bodyLength, truncated));
+
+        } catch (Exception e) {
+            log.warn("LG006: Failed to log outbound response with error: ", e);
+        }
+    }
+
+    private void emit(String event, HttpLogMessage httpLogMessage, URI uri, byte[] body, int bodyLength, boolean truncated) {
+        try {
+
+            // Query is parsed here, not on the calling thread, params are logged redacted, URI without them (and without user info).
+            UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUri(uri);
+            MultiValueMap<String, String> queryParams = uriBuilder.build().getQueryParams();
+            httpLogMessage.setUri(uriBuilder.userInfo(null).replaceQuery(null).fragment(null).build().toUriString());
+            if(!queryParams.isEmpty())
+            {
+                httpLogMessage.setRequestParams(getQueryParamsAsMap(queryParams));
+            }
+
+            if(truncated)
+            {
+                log.info("LG006-02: Outbound body is larger than max-body-bytes, body is not logged");
+            }
+            else if(body != null && bodyLength > 0)
+            {
+                httpLogMessage.setBody(redactBody(body, bodyLength));
+            }
+
+            logWriter.write(log, event, httpLogMessage);
+
+        } catch (Exception e) {
+            log.warn("LG006: Failed to log outbound call with error: ", e);
+        }
+    }
+
+    // Redacted JSON, redacted straight into the encoder's generator when structured. Not logged raw, if it's not valid JSON.
+    private Object redactBody(byte[] body, int bodyLength) {
+        try {
+
+            return logWriter.isStructured()
+                    ? redactor.redactJsonBody(body, 0, bodyLength, TypeFactory.unknownType())
+                    : redactor.redactUntypedJson(body, 0, bodyLength);
+
+        }catch(IOException e) {
+            log.info("LG006-01: Error redacting outbound body, not logged: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    // Never run on the calling thread (e.g. an event loop), even if async emission is not enabled.
+    private void submit(Runnable event) {
+
+        if(!logEmitter.submit(event, true) && droppedCount.incrementAndGet() % 1000 == 1)
+        {
+            log.warn("LG006-03: Log emitter can not keep up, outbound log events are dropped, dropped so far: {}", droppedCount.get());
+        }
+    }
+
+    // Single pass over the headers, sensitive values are redacted (and not read), multiple values are joined with ",".
+    private Map<String, String> getHeadersAsMap(HttpHeaders headers) {
+
+        Map<String, String> headerMap = new HashMap<>(mapCapacity(headers.size()));
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            String headerName = header.getKey();
+            headerMap.put(headerName, redactor.isSensitiveHeader(headerName) ? LogMessageRedactor.REDACTED : joinValues(header.getValue()));
+        }
+        return headerMap;
+    }
+
+    private Map<String, String> getQueryParamsAsMap(MultiValueMap<String, String> queryParams) {
+
+        Map<String, String> params = new HashMap<>(mapCapacity(queryParams.size()));
+        for (Map.Entry<String, List<String>> param : queryParams.entrySet()) {
+            String paramName = param.getKey();
+            params.put(paramName, redactor.isSensitiveQueryParam(paramName) ? LogMessageRedactor.REDACTED : joinValues(param.getValue()));
+        }
+        return params;
+    }
+
+    private static String joinValues(List<String> values) {
+
+        if(values == null || values.isEmpty())
+        {
+            return null;
+        }
+        return values.size() == 1 ? values.get(0) : String.join(",", values);
+    }
+
+    // Initial capacity of a HashMap to hold the given number of entries, without re-hashing.
+    private static int mapCapacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.config;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class JsonPathAutomatonTest {
+
+    @Test
+    void testField_ChildWildcardAndElementSteps() {
+
+        JsonPathAutomaton automaton = JsonPathAutomaton.of(null, List.of("$.user.password", "$.cards[*].number", "$.*.secret", "$['api key']"));
+        JsonPathAutomaton.State root = automaton.root();
+
+        assertTrue(root.field("user").field("password").isRedact());
+        assertFalse(root.field("user").field("Password").isRedact(), "Path names are expected to be case sensitive");
+        assertFalse(root.field("password").isRedact());
+        assertTrue(root.field("cards").element().field("number").isRedact());
+        assertFalse(root.field("cards").field("number").isRedact());
+        assertTrue(root.field("anything").field("secret").isRedact());
+        assertTrue(root.field("api key").isRedact());
+        // Nothing can match below, so it's copied as is
+        assertTrue(root.field("user").field("name").isDead());
+    }
+
+    @Test
+    void testField_DescendantAndFieldNamesAtAnyDepth() {
+
+        JsonPathAutomaton automaton = JsonPathAutomaton.of(List.of("cardNumber"), List.of("$..token", "$.auth..key"));
+        JsonPathAutomaton.State root = automaton.root();
+
+        assertTrue(root.field("token").isRedact());
+        assertTrue(root.field("a").element().field("b").field("token").isRedact());
+        assertTrue(root.field("auth").field("x").field("key").isRedact());
+        assertFalse(root.field("x").field("key").isRedact());
+        assertTrue(root.field("x").element().field("CARDNUMBER").isRedact(), "Field names are expected to match ignoring case");
+        assertFalse(root.isDead());
+    }
+
+    @Test
+    void testOf_EmptyAndInvalid() {
+
+        assertTrue(JsonPathAutomaton.of(null, List.of(" ")).isEmpty());
+        assertTrue(JsonPathAutomaton.of(null, null).root().isDead());
+        assertTrue(JsonPathAutomaton.of(null, List.of("$")).root().isRedact());
+
+        assertThrows(IllegalArgumentException.class, () -> JsonPathAutomaton.of(null, List.of("user.password")));
+        assertThrows(IllegalArgumentException.class, () -> JsonPathAutomaton.of(null, List.of("$.cards[0].number")));
+        assertThrows(IllegalArgumentException.class, () -> JsonPathAutomaton.of(null, List.of("$.user.")));
+    }
+
+    @Test
+    void testSensitiveDataConfig_AutomatonRecompiledOnRebind() {
+
+        SensitiveDataConfig sensitiveData = new SensitiveDataConfig();
+        JsonPathAutomaton none = sensitiveData.getJsonPathAutomaton();
+        assertTrue(none.isEmpty());
+
+        sensitiveData.setJsonPaths(List.of("$.ssn"));
+        sensitiveData.setJsonFields(List.of("password"));
+
+        assertTrue(sensitiveData.getJsonPathAutomaton().root().field("ssn").isRedact());
+        assertTrue(sensitiveData.getJsonPathAutomaton().root().field("password").isRedact());
+        assertSame(none, JsonPathAutomaton.of(List.of(), List.of()));
+    }
+}
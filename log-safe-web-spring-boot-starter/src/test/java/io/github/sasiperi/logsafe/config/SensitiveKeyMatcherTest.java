@@ -0,0 +1,59 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.config;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SensitiveKeyMatcherTest {
+
+    @Test
+    void testMatches_IgnoringCase() {
+
+        SensitiveKeyMatcher matcher = SensitiveKeyMatcher.of(List.of("Authorization", "x-api-key", "apiKey"));
+
+        assertTrue(matcher.matches("authorization"));
+        assertTrue(matcher.matches("AUTHORIZATION"));
+        assertTrue(matcher.matches("X-Api-Key"));
+        assertTrue(matcher.matches("APIKEY"));
+        assertFalse(matcher.matches("x-api"));
+        assertFalse(matcher.matches("Content-Type"));
+        assertFalse(matcher.matches(null));
+    }
+
+    @Test
+    void testMatches_EmptyMatchesNothing() {
+
+        assertTrue(SensitiveKeyMatcher.of(null).isEmpty());
+        assertFalse(SensitiveKeyMatcher.of(List.of()).matches("Authorization"));
+    }
+
+    @Test
+    void testSensitiveDataConfig_MatcherRecompiledOnRebind() {
+
+        SensitiveDataConfig sensitiveData = new SensitiveDataConfig();
+        assertTrue(sensitiveData.getHeaderMatcher().matches("authorization"));
+
+        sensitiveData.setHeaders(List.of("x-session-id"));
+
+        assertTrue(sensitiveData.getHeaderMatcher().matches("X-Session-Id"));
+        assertFalse(sensitiveData.getHeaderMatcher().matches("authorization"));
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.sasiperi.logsafe.config.AsyncLogConfig;
+import io.github.sasiperi.logsafe.config.AsyncLogConfig.OverflowPolicy;
+
+class AsyncLogEmitterTest {
+
+    @Test
+    void testSubmit_RunsOnCallingThreadWhenNotEnabled() {
+
+        AsyncLogEmitter emitter = new AsyncLogEmitter(new AsyncLogConfig());
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+
+        assertTrue(emitter.submit(() -> ranOn.set(Thread.currentThread())));
+
+        assertFalse(emitter.isAsync());
+        assertEquals(Thread.currentThread(), ranOn.get());
+    }
+
+    @Test
+    void testSubmit_RunsOnWorkerAndDropsWhenQueueIsFull() throws Exception {
+
+        AsyncLogConfig config = new AsyncLogConfig();
+        config.setEnabled(true);
+        config.setQueueCapacity(1);
+        config.setOverflowPolicy(OverflowPolicy.DROP);
+        AsyncLogEmitter emitter = new AsyncLogEmitter(config);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch emitted = new CountDownLatch(1);
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+
+        try {
+            // Keep the (only) worker busy, so that the next event stays in the queue.
+            assertTrue(emitter.submit(() -> {
+                ranOn.set(Thread.currentThread());
+                started.countDown();
+                awaitQuietly(release);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertTrue(emitter.submit(emitted::countDown));
+            assertFalse(emitter.submit(() -> {}));
+
+            assertEquals(1, emitter.getQueueDepth());
+            assertEquals(2, emitter.getSubmittedCount());
+            assertEquals(1, emitter.getDroppedCount());
+
+            release.countDown();
+            assertTrue(emitted.await(5, TimeUnit.SECONDS));
+            assertTrue(ranOn.get().getName().startsWith("logsafe-log-emitter-"));
+        } finally {
+            release.countDown();
+            emitter.destroy();
+        }
+    }
+
+    @Test
+    void testSubmitForceAsync_RunsOnWorkerAndNeverBlocks() throws Exception {
+
+        // Not enabled, workers are started by the first forced event
+        AsyncLogConfig config = new AsyncLogConfig();
+        config.setQueueCapacity(1);
+        config.setOverflowPolicy(OverflowPolicy.BLOCK);
+        config.setBlockTimeout(Duration.ofMinutes(1));
+        AsyncLogEmitter emitter = new AsyncLogEmitter(config);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+
+        try {
+            assertTrue(emitter.submit(() -> {
+                ranOn.set(Thread.currentThread());
+                started.countDown();
+                awaitQuietly(release);
+            }, true));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertTrue(ranOn.get().getName().startsWith("logsafe-log-emitter-"));
+
+            // Queue is full, forced event is dropped right away instead of waiting (BLOCK) for space
+            assertTrue(emitter.submit(() -> {}, true));
+            long start = System.nanoTime();
+            assertFalse(emitter.submit(() -> {}, true));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            assertEquals(1, emitter.getDroppedCount());
+
+            // Other events still run on the calling thread
+            AtomicReference<Thread> inline = new AtomicReference<>();
+            assertTrue(emitter.submit(() -> inline.set(Thread.currentThread())));
+            assertEquals(Thread.currentThread(), inline.get());
+        } finally {
+            release.countDown();
+            emitter.destroy();
+        }
+    }
+
+    @Test
+    void testSubmitAfterDestroy_RunInlineOrDropped() {
+
+        AsyncLogConfig config = new AsyncLogConfig();
+        config.setEnabled(true);
+        AsyncLogEmitter emitter = new AsyncLogEmitter(config);
+        emitter.destroy();
+
+        // No worker is left, so the event is not queued: run on the calling thread, or dropped if it must not be.
+        AtomicReference<Thread> inline = new AtomicReference<>();
+        assertTrue(emitter.submit(() -> inline.set(Thread.currentThread())));
+        assertEquals(Thread.currentThread(), inline.get());
+
+        AtomicBoolean forcedRan = new AtomicBoolean();
+        assertFalse(emitter.submit(() -> forcedRan.set(true), true));
+        assertFalse(forcedRan.get());
+        assertEquals(1, emitter.getDroppedCount());
+        assertEquals(0, emitter.getSubmittedCount());
+        assertEquals(0, emitter.getQueueDepth());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
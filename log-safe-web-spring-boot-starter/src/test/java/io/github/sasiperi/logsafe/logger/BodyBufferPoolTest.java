@@ -0,0 +1,92 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.sasiperi.logsafe.config.BodyBufferPoolConfig;
+
+class BodyBufferPoolTest {
+
+    @Test
+    void testLease_SizeClassesUpToMaxBodyBytes() {
+
+        BodyBufferPool bufferPool = new BodyBufferPool(new BodyBufferPoolConfig(), 100_000);
+
+        assertEquals(4096, bufferPool.lease(1).length);
+        assertEquals(16384, bufferPool.lease(4097).length);
+        assertEquals(65536, bufferPool.lease(20_000).length);
+        // Last class is capped at max-body-bytes, anything larger is not pooled.
+        assertEquals(100_000, bufferPool.lease(70_000).length);
+        assertEquals(200_000, bufferPool.lease(200_000).length);
+        assertEquals(5, bufferPool.getMissCount());
+    }
+
+    @Test
+    void testRelease_BufferReusedByNextLeaseOfClass() {
+
+        BodyBufferPool bufferPool = new BodyBufferPool(new BodyBufferPoolConfig(), 1_048_576);
+
+        byte[] buffer = bufferPool.lease(10_000);
+        bufferPool.release(buffer);
+        // Not from a class, left to GC
+        bufferPool.release(new byte[10_000]);
+
+        assertEquals(1, bufferPool.getPooledCount());
+        assertEquals(16384, bufferPool.getPooledBytes());
+        assertSame(buffer, bufferPool.lease(5_000));
+        assertNotSame(buffer, bufferPool.lease(5_000));
+        assertEquals(1, bufferPool.getHitCount());
+        assertEquals(2, bufferPool.getMissCount());
+    }
+
+    @Test
+    void testRelease_UsedPartClearedBeforeNextLease() {
+
+        BodyBufferPool bufferPool = new BodyBufferPool(new BodyBufferPoolConfig(), 1_048_576);
+
+        byte[] buffer = bufferPool.lease(100);
+        byte[] ssn = "123-45-6789".getBytes();
+        System.arraycopy(ssn, 0, buffer, 0, ssn.length);
+        bufferPool.release(buffer, ssn.length);
+
+        // Next request must not see the previous body
+        assertSame(buffer, bufferPool.lease(100));
+        assertArrayEquals(new byte[ssn.length], Arrays.copyOf(buffer, ssn.length));
+    }
+
+    @Test
+    void testLease_AllocatedWhenPoolDisabled() {
+
+        BodyBufferPoolConfig config = new BodyBufferPoolConfig();
+        config.setEnabled(false);
+        BodyBufferPool bufferPool = new BodyBufferPool(config, 1_048_576);
+
+        byte[] buffer = bufferPool.lease(10_000);
+        bufferPool.release(buffer);
+
+        assertEquals(10_000, buffer.length);
+        assertEquals(0, bufferPool.getPooledCount());
+        assertNotSame(buffer, bufferPool.lease(10_000));
+    }
+}
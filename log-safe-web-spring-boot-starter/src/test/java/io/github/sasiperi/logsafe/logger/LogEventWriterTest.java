@@ -0,0 +1,161 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import static io.github.sasiperi.logsafe.testdto.EmployeeType.FULL_TIME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.KeyValuePair;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.github.sasiperi.logsafe.config.SensitiveDataConfig;
+import io.github.sasiperi.logsafe.testdto.Address;
+import io.github.sasiperi.logsafe.testdto.Employee;
+
+class LogEventWriterTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Logger log = (Logger) LoggerFactory.getLogger(LogEventWriterTest.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private LogSafeJsonMapper jsonMapper;
+    private LogMessageRedactor redactor;
+
+    @BeforeEach
+    void setup() {
+        jsonMapper = new LogSafeJsonMapper(objectMapper);
+        redactor = new LogMessageRedactor("io.github.sasiperi.logsafe", new SensitiveDataConfig(), jsonMapper);
+        appender.start();
+        log.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        log.detachAppender(appender);
+    }
+
+    @Test
+    void testWrite_StructuredFieldsAsKeyValuePairs() throws Exception {
+
+        HttpLogMessage httpLogMessage = HttpLogMessage.builder()
+                .httpMethod("POST")
+                .uri("/employees")
+                .headers(new HashMap<>(Map.of("Authorization", "Bearer blahblah")))
+                .body(new Employee("John", "Doe", "123-45-6789", FULL_TIME, new Address("NY", "New York", "555-1234")))
+                .build();
+
+        redactor.redactLogMessageToTree(httpLogMessage);
+        new LogEventWriter(LogEmissionMode.STRUCTURED, jsonMapper).write(log, "REQUEST DATA", httpLogMessage);
+
+        ILoggingEvent event = appender.list.get(0);
+        assertEquals("REQUEST DATA", event.getFormattedMessage());
+
+        Map<String, Object> fields = keyValues(event.getKeyValuePairs());
+        assertEquals("POST", fields.get("httpMethod"));
+        assertEquals("/employees", fields.get("uri"));
+        assertFalse(fields.containsKey("remoteHost"), "Null fields are expected to be left out");
+        assertEquals("[REDACTED]", ((Map<?, ?>) fields.get("headers")).get("Authorization"));
+
+        // Body is written by the encoder as nested JSON, not as a String
+        assertInstanceOf(RedactedJsonBody.class, fields.get("body"));
+        JsonNode body = objectMapper.readTree(objectMapper.writeValueAsString(fields)).get("body");
+        assertTrue(body.isObject());
+        assertEquals("John", body.get("firstName").asText());
+        assertEquals("[REDACTED]", body.get("ssn").asText());
+        assertEquals("[REDACTED]", body.get("address").get("phoneNumber").asText());
+    }
+
+    @Test
+    void testWrite_StructuredJsonRedactedIntoEncoderGenerator() throws Exception {
+
+        byte[] captured = "{\"firstName\":\"John\",\"ssn\":\"123-45-6789\"}".getBytes(StandardCharsets.UTF_8);
+        HttpLogMessage httpLogMessage = HttpLogMessage.builder()
+                .body(redactor.redactJsonBody(captured, 0, captured.length, objectMapper.constructType(Employee.class)))
+                .build();
+        // Captured buffer is released (cleared) before the event is encoded, the body holds its own copy.
+        Arrays.fill(captured, (byte) 0);
+
+        new LogEventWriter(LogEmissionMode.STRUCTURED, jsonMapper).write(log, "RESPONSE DATA", "error", 500, httpLogMessage);
+
+        Map<String, Object> fields = keyValues(appender.list.get(0).getKeyValuePairs());
+        assertEquals("error", fields.get("reason"));
+        assertEquals(500, fields.get("status"));
+        assertEquals("{\"body\":{\"firstName\":\"John\",\"ssn\":\"[REDACTED]\"}}", objectMapper.writeValueAsString(Map.of("body", fields.get("body"))));
+    }
+
+    @Test
+    void testRedactJsonBody_MalformedJsonRejectedUpFront() {
+
+        byte[] truncated = "{\"firstName\":\"John\",\"ssn\":".getBytes(StandardCharsets.UTF_8);
+        byte[] twoValues = "{} {}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(JsonProcessingException.class, () -> redactor.redactJsonBody(truncated, 0, truncated.length, TypeFactory.unknownType()));
+        assertThrows(JsonProcessingException.class, () -> redactor.redactJsonBody(twoValues, 0, twoValues.length, TypeFactory.unknownType()));
+    }
+
+    @Test
+    void testWrite_MessageAsJsonString() throws Exception {
+
+        HttpLogMessage httpLogMessage = HttpLogMessage.builder().uri("/employees").build();
+
+        new LogEventWriter(LogEmissionMode.MESSAGE, jsonMapper).write(log, "REQUEST DATA", httpLogMessage);
+
+        ILoggingEvent event = appender.list.get(0);
+        assertEquals("REQUEST DATA: {\"uri\":\"/employees\"}", event.getFormattedMessage());
+        assertTrue(event.getKeyValuePairs() == null || event.getKeyValuePairs().isEmpty());
+    }
+
+    @Test
+    void testWrite_MessageWrittenWithGivenMapper() {
+
+        HttpLogMessage httpLogMessage = HttpLogMessage.builder().httpMethod("GET").build();
+        LogSafeJsonMapper snakeCaseMapper = new LogSafeJsonMapper(new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE));
+
+        new LogEventWriter(LogEmissionMode.MESSAGE, snakeCaseMapper).write(log, "REQUEST DATA", httpLogMessage);
+
+        assertEquals("REQUEST DATA: {\"http_method\":\"GET\"}", appender.list.get(0).getFormattedMessage());
+        // toString() is a plain field dump, no mapper of its own.
+        assertTrue(httpLogMessage.toString().startsWith("HttpLogMessage(httpMethod=GET, "));
+    }
+
+    private static Map<String, Object> keyValues(List<KeyValuePair> keyValuePairs) {
+        return keyValuePairs.stream().collect(Collectors.toMap(pair -> pair.key, pair -> pair.value));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PatternParseException;
+
+import io.github.sasiperi.logsafe.config.LogFilterRulesConfig;
+
+class LogFilterRulesTest {
+
+    @Test
+    void testIsExcluded_NothingWhenNoRules() {
+
+        LogFilterRules logRules = new LogFilterRules(new LogFilterRulesConfig());
+
+        assertFalse(logRules.isActive());
+        assertFalse(logRules.isExcluded("POST", "application/json", path("/employees/1")));
+    }
+
+    @Test
+    void testIsExcluded_ByPath() {
+
+        LogFilterRulesConfig rulesConfig = new LogFilterRulesConfig();
+        rulesConfig.setIncludePaths(List.of("/employees/**", "/health/**"));
+        rulesConfig.setExcludePaths(List.of("/health/**"));
+        LogFilterRules logRules = new LogFilterRules(rulesConfig);
+
+        assertTrue(logRules.hasPathRules());
+        assertFalse(logRules.isExcluded("GET", null, path("/employees/1")));
+        // Excludes win over includes
+        assertTrue(logRules.isExcluded("GET", null, path("/health/live")));
+        assertTrue(logRules.isExcluded("GET", null, path("/customers/1")));
+    }
+
+    @Test
+    void testIsExcluded_ByMethod() {
+
+        LogFilterRulesConfig rulesConfig = new LogFilterRulesConfig();
+        rulesConfig.setExcludeMethods(List.of("options", "HEAD"));
+        LogFilterRules logRules = new LogFilterRules(rulesConfig);
+
+        assertFalse(logRules.hasPathRules());
+        assertTrue(logRules.isExcluded("OPTIONS", null, null));
+        assertTrue(logRules.isExcluded("HEAD", null, null));
+        assertFalse(logRules.isExcluded("GET", null, null));
+    }
+
+    @Test
+    void testIsExcluded_ByContentType() {
+
+        LogFilterRulesConfig rulesConfig = new LogFilterRulesConfig();
+        rulesConfig.setIncludeContentTypes(List.of("application/*"));
+        rulesConfig.setExcludeContentTypes(List.of("application/octet-stream"));
+        LogFilterRules logRules = new LogFilterRules(rulesConfig);
+
+        assertFalse(logRules.isExcluded("POST", "application/json;charset=UTF-8", null));
+        assertTrue(logRules.isExcluded("POST", "application/octet-stream", null));
+        assertTrue(logRules.isExcluded("POST", "multipart/form-data; boundary=abc", null));
+        // No body, no content type to match
+        assertFalse(logRules.isExcluded("GET", null, null));
+        assertFalse(logRules.isExcluded("POST", "not a content type", null));
+    }
+
+    @Test
+    void testInvalidPathPatternFailsOnStart() {
+
+        LogFilterRulesConfig rulesConfig = new LogFilterRulesConfig();
+        rulesConfig.setExcludePaths(List.of("/health/{id"));
+
+        assertThrows(PatternParseException.class, () -> new LogFilterRules(rulesConfig));
+    }
+
+    private static PathContainer path(String path) {
+        return PathContainer.parsePath(path);
+    }
+}
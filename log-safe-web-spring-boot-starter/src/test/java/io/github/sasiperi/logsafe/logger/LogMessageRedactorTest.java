@@ -0,0 +1,402 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import static io.github.sasiperi.logsafe.testdto.EmployeeType.FULL_TIME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+
+import io.github.sasiperi.logsafe.config.RedactionLimitsConfig;
+import io.github.sasiperi.logsafe.config.SensitiveDataConfig;
+import io.github.sasiperi.logsafe.testdto.Address;
+import io.github.sasiperi.logsafe.testdto.Card;
+import io.github.sasiperi.logsafe.testdto.Contact;
+import io.github.sasiperi.logsafe.testdto.Employee;
+import io.github.sasiperi.logsafe.testdto.Manager;
+import io.github.sasiperi.logsafe.testdto.TreeNode;
+
+class LogMessageRedactorTest {
+
+    private static final String REDACTED = "[REDACTED]";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private LogMessageRedactor redactor;
+
+    @BeforeEach
+    void setup() {
+        redactor = new LogMessageRedactor("io.github.sasiperi.logsafe", new SensitiveDataConfig(), new LogSafeJsonMapper(objectMapper));
+    }
+
+    @Test
+    void testRedactBody_InheritedFieldsRedactedAndLogged() throws Exception {
+
+        Manager manager = new Manager();
+        manager.setFirstName("Jane");
+        manager.setLastName("Doe");
+        manager.setSsn("123-45-6789");
+        manager.setEmployeeType(FULL_TIME);
+        manager.setAddress(new Address("NY", "New York", "555-1234"));
+        manager.setDepartment("Engineering");
+        manager.setSalary("100000");
+
+        HttpLogMessage httpLogMessage = HttpLogMessage.builder().body(manager).build();
+
+        redactor.redactLogMessage(httpLogMessage);
+
+        Map<String, Object> body = objectMapper.readValue(httpLogMessage.getBody().toString(), new TypeReference<Map<String, Object>>() {});
+
+        // Fields declared in the class itself
+        assertEquals("Engineering", body.get("department"));
+        assertEquals(REDACTED, body.get("salary"));
+
+        // Fields inherited from super class
+        assertEquals("Jane", body.get("firstName"));
+        assertEquals("Doe", body.get("lastName"));
+        assertEquals(REDACTED, body.get("ssn"));
+        assertEquals("FULL_TIME", body.get("employeeType"));
+        assertEquals(REDACTED, ((Map<?, ?>) body.get("address")).get("phoneNumber"));
+    }
+
+    @Test
+    void testRedactLogMessage_KeysRedactedIntoCopy() throws Exception {
+
+        Map<String, String> headers = new HashMap<>(Map.of("Authorization", "Bearer blahblah", "Accept", "application/json"));
+        Map<String, String> requestParams = Map.of("token", "abc", "page", "1");
+
+        HttpLogMessage httpLogMessage = HttpLogMessage.builder().headers(headers).requestParams(requestParams).build();
+
+        redactor.redactLogMessage(httpLogMessage);
+
+        assertEquals(Map.of("Authorization", REDACTED, "Accept", "application/json"), httpLogMessage.getHeaders());
+        assertEquals(Map.of("token", REDACTED, "page", "1"), httpLogMessage.getRequestParams());
+        // Caller's maps (modifiable or not) are left as they were.
+        assertEquals("Bearer blahblah", headers.get("Authorization"));
+        assertEquals("abc", requestParams.get("token"));
+    }
+
+    @Test
+    void testRedactJson_StreamingRedactsDeclaredGenericType() throws Exception {
+
+        List<Employee> employees = List.of(
+                new Employee("John", "Doe", "123-45-6789", FULL_TIME, new Address("NY", "New York", "555-1234")),
+                new Employee("Jane", "Doe", "987-65-4321", FULL_TIME, null));
+        byte[] json = objectMapper.writeValueAsBytes(employees);
+
+        String redacted = redactor.redactJson(json, 0, json.length,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, Employee.class));
+
+        List<Employee> body = objectMapper.readValue(redacted, new TypeReference<List<Employee>>() {});
+
+        assertEquals(2, body.size());
+        assertEquals("John", body.get(0).getFirstName());
+        assertEquals(REDACTED, body.get(0).getSsn());
+        assertEquals(REDACTED, body.get(0).getAddress().getPhoneNumber());
+        assertEquals("New York", body.get(0).getAddress().getCity());
+        assertEquals("Jane", body.get(1).getFirstName());
+        assertEquals(REDACTED, body.get(1).getSsn());
+        assertEquals(3, redactor.getRedactedFieldCount());
+    }
+
+    @Test
+    void testRedactJson_StreamingFollowsMapperNamingStrategy() throws Exception {
+
+        ObjectMapper snakeCaseMapper = new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+        redactor = new LogMessageRedactor("io.github.sasiperi.logsafe", new SensitiveDataConfig(), new LogSafeJsonMapper(snakeCaseMapper));
+
+        byte[] json = snakeCaseMapper.writeValueAsBytes(new Employee("John", "Doe", "123-45-6789", FULL_TIME, new Address("NY", "New York", "555-1234")));
+
+        JsonNode body = snakeCaseMapper.readTree(redactor.redactJson(json, 0, json.length, snakeCaseMapper.constructType(Employee.class)));
+
+        // phoneNumber is written as phone_number by the application's mapper, it's matched by that name.
+        assertEquals("John", body.get("first_name").asText());
+        assertEquals(REDACTED, body.get("ssn").asText());
+        assertEquals("New York", body.get("address").get("city").asText());
+        assertEquals(REDACTED, body.get("address").get("phone_number").asText());
+    }
+
+    @Test
+    void testRedactBody_JsonPathsMatchMapperNamingStrategy() throws Exception {
+
+        ObjectMapper snakeCaseMapper = new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+        SensitiveDataConfig sensitiveData = new SensitiveDataConfig();
+        sensitiveData.setJsonPaths(List.of("$.last_name"));
+        redactor = new LogMessageRedactor("io.github.sasiperi.logsafe", sensitiveData, new LogSafeJsonMapper(snakeCaseMapper));
+
+        HttpLogMessage httpLogMessage = HttpLogMessage.builder()
+                .body(new Employee("John", "Doe", "123-45-6789", FULL_TIME, new Address("NY", "New York", "555-1234"))).build();
+
+        redactor.redactLogMessage(httpLogMessage);
+
+        // Paths are written against the payload as the application's mapper names it, last_name matches lastName.
+        Map<String, Object> body = objectMapper.readValue(httpLogMessage.getBody().toString(), new TypeReference<Map<String, Object>>() {});
+        assertEquals("John", body.get("firstName"));
+        assertEquals(REDACTED, body.get("lastName"));
+    }
+
+    @Test
+    void testRedactBody_UntypedMapByJsonFieldsAndPaths() throws Exception {
+
+        SensitiveDataConfig sensitiveData = new SensitiveDataConfig();
+        sensitiveData.setJsonFields(List.of("password"));
+        sensitiveData.setJsonPaths(List.of("$.cards[*].number"));
+        redactor = new LogMessageRedactor("io.github.sasiperi.logsafe", sensitiveData, new LogSafeJsonMapper(objectMapper));
+
+        Map<String, Object> payload = objectMapper.readValue(
+                "{\"user\":{\"name\":\"Jane\",\"Password\":\"secret\"},\"cards\":[{\"number\":\"4111\",\"type\":\"VISA\"}]}",
+                new TypeReference<Map<String, Object>>() {});
+        HttpLogMessage httpLogMessage = HttpLogMessage.builder().body(payload).build();
+
+        redactor.redactLogMessage(httpLogMessage);
+
+        Map<String, Object> body = objectMapper.readValue(httpLogMessage.getBody().toString(), new TypeReference<Map<String, Object>>() {});
+        assertEquals("Jane", ((Map<?, ?>) body.get("user")).get("name"));
+        assertEquals(REDACTED, ((Map<?, ?>) body.get("user")).get("Password"));
+        assertEquals(REDACTED, ((Map<?, ?>) ((List<?>) body.get("cards")).get(0)).get("number"));
+        assertEquals("VISA", ((Map<?, ?>) ((List<?>) body.get("cards")).get(0)).get("type"));
+    }
+
+    @Test
+    void testRedactJson_UntypedByJsonPathsOnTopOfRedact() throws Exception {
+
+        SensitiveDataConfig sensitiveData = new SensitiveDataConfig();
+        sensitiveData.setJsonPaths(List.of("$..lastName", "$.error.trace"));
+        redactor = new LogMessageRedactor("io.github.sasiperi.logsafe", sensitiveData, new LogSafeJsonMapper(objectMapper));
+
+        byte[] error = "{\"error\":{\"code\":500,\"trace\":[\"at x\"]},\"lastName\":\"Doe\"}".getBytes();
+        assertEquals("{\"error\":{\"code\":500,\"trace\":\"[REDACTED]\"},\"lastName\":\"[REDACTED]\"}",
+                redactor.redactUntypedJson(error, 0, error.length));
+
+        // Typed body, @Redact and paths both apply
+        byte[] json = objectMapper.writeValueAsBytes(new Employee("John", "Doe", "123-45-6789", FULL_TIME, null));
+        Employee employee = objectMapper.readValue(redactor.redactJson(json, 0, json.length, objectMapper.constructType(Employee.class)), Employee.class);
+        assertEquals("John", employee.getFirstName());
+        assertEquals(REDACTED, employee.getLastName());
+        assertEquals(REDACTED, employee.getSsn());
+    }
+
+    @Test
+    void testRedactBody_GeneratedRedactorForKnownTypeOnly() throws Exception {
+
+        CountingAddressRedactor addressRedactor = new CountingAddressRedactor();
+        GeneratedRedactors generatedRedactors = GeneratedRedactors.of(addressRedactor);
+        assertSame(addressRedactor, generatedRedactors.find(Address.class));
+        assertNull(generatedRedactors.find(Employee.class), "Types with no generated redactor are redacted reflectively");
+
+        SensitiveDataConfig sensitiveData = new SensitiveDataConfig();
+        sensitiveData.setJsonPaths(List.of("$..city"));
+        redactor = new LogMessageRedactor("io.github.sasiperi.logsafe", sensitiveData, new LogSafeJsonMapper(objectMapper),
+                RedactionMode.OBJECT, generatedRedactors);
+
+        HttpLogMessage httpLogMessage = HttpLogMessage.builder()
+                .body(new Employee("John", "Doe", "123-45-6789", FULL_TIME, new Address("NY", "New York", "555-1234"))).build();
+        redactor.redactLogMessage(httpLogMessage);
+
+        Map<String, Object> body = objectMapper.readValue(httpLogMessage.getBody().toString(), new TypeReference<Map<String, Object>>() {});
+        Map<?, ?> address = (Map<?, ?>) body.get("address");
+        assertEquals(REDACTED, body.get("ssn"));
+        assertEquals("NY", address.get("state"));
+        // @Redact flag and json paths, both apply through the generated redactor
+        assertEquals(REDACTED, address.get("phoneNumber"));
+        assertEquals(REDACTED, address.get("city"));
+        assertEquals(1, addressRedactor.calls, "Address is expected to be read by its generated redactor");
+    }
+
+    @Test
+    void testRedactBody_FailingGeneratedRedactorFallsBackToReflection() throws Exception {
+
+        redactor = new LogMessageRedactor("io.github.sasiperi.logsafe", new SensitiveDataConfig(), new LogSafeJsonMapper(objectMapper),
+                RedactionMode.OBJECT, GeneratedRedactors.of(new FailingAddressRedactor()));
+
+        HttpLogMessage httpLogMessage = HttpLogMessage.builder()
+                .body(new Employee("John", "Doe", "123-45-6789", FULL_TIME, new Address("NY", "New York", "555-1234"))).build();
+        redactor.redactLogMessage(httpLogMessage);
+
+        // Rest of the body is still logged, Address is read through its redaction plan instead
+        Map<String, Object> body = objectMapper.readValue(httpLogMessage.getBody().toString(), new TypeReference<Map<String, Object>>() {});
+        Map<?, ?> address = (Map<?, ?>) body.get("address");
+        assertEquals("John", body.get("firstName"));
+        assertEquals(REDACTED, body.get("ssn"));
+        assertEquals("NY", address.get("state"));
+        assertEquals("New York", address.get("city"));
+        assertEquals(REDACTED, address.get("phoneNumber"));
+    }
+
+    @Test
+    void testRedactBody_SerializerModeRedactsWhileSerializing() throws Exception {
+
+        redactor = new LogMessageRedactor("io.github.sasiperi.logsafe", new SensitiveDataConfig(), new LogSafeJsonMapper(objectMapper), RedactionMode.SERIALIZER);
+
+        Manager manager = new Manager();
+        manager.setFirstName("Jane");
+        manager.setSsn("123-45-6789");
+        manager.setAddress(new Address("NY", "New York", "555-1234"));
+        manager.setSalary("100000");
+
+        HttpLogMessage httpLogMessage = HttpLogMessage.builder().body(manager).build();
+        redactor.redactLogMessage(httpLogMessage);
+
+        // Same as the application's mapper writes it, @JsonInclude(NON_NULL) honored, only @Redact values replaced
+        Manager expected = new Manager();
+        expected.setFirstName("Jane");
+        expected.setSsn(REDACTED);
+        expected.setAddress(new Address("NY", "New York", REDACTED));
+        expected.setSalary(REDACTED);
+        assertEquals(objectMapper.writeValueAsString(expected), httpLogMessage.getBody());
+        assertEquals(3, redactor.getRedactedFieldCount());
+        assertEquals("123-45-6789", manager.getSsn(), "Original body is not modified");
+
+        // Tree body for structured emission is redacted while written, even into a plain mapper's generator
+        HttpLogMessage structured = HttpLogMessage.builder().body(manager).build();
+        redactor.redactLogMessageToTree(structured);
+        assertInstanceOf(RedactedJsonBody.class, structured.getBody());
+        assertEquals(objectMapper.writeValueAsString(expected), objectMapper.writeValueAsString(structured.getBody()));
+    }
+
+    @Test
+    void testRedactBody_CyclesCutAndLimitsTruncate() throws Exception {
+
+        RedactionLimitsConfig limits = new RedactionLimitsConfig();
+        limits.setMaxDepth(4);
+        limits.setMaxCollectionElements(2);
+        redactor.setRedactionLimits(limits);
+
+        TreeNode root = new TreeNode("root");
+        TreeNode child = root.addChild(new TreeNode("child"));
+        child.addChild(new TreeNode("grandChild")).addChild(new TreeNode("greatGrandChild"));
+        root.addChild(new TreeNode("second"));
+        root.addChild(new TreeNode("third"));
+
+        HttpLogMessage httpLogMessage = HttpLogMessage.builder().body(root).build();
+        redactor.redactLogMessage(httpLogMessage);
+
+        Map<String, Object> body = objectMapper.readValue(httpLogMessage.getBody().toString(), new TypeReference<Map<String, Object>>() {});
+        List<?> children = (List<?>) body.get("children");
+        Map<?, ?> first = (Map<?, ?>) children.get(0);
+
+        // Back reference to an object on the path is a cycle, not walked again
+        assertEquals("child", first.get("name"));
+        assertEquals("[CYCLE]", first.get("parent"));
+        // root > children > child > children > grandChild, past max depth
+        assertEquals("...(max depth)", ((List<?>) first.get("children")).get(0));
+        // 2 of 3 children logged
+        assertEquals(3, children.size());
+        assertEquals("...(+1 more)", children.get(2));
+        assertEquals(1, redactor.getTruncatedBodyCount());
+
+        // Same object twice, that's not a cycle, is logged twice
+        Address address = new Address("NY", "New York", "555-1234");
+        httpLogMessage = HttpLogMessage.builder().body(List.of(address, address)).build();
+        redactor.redactLogMessage(httpLogMessage);
+        List<Map<String, Object>> addresses = objectMapper.readValue(httpLogMessage.getBody().toString(), new TypeReference<List<Map<String, Object>>>() {});
+        assertEquals(Map.of("state", "NY", "city", "New York", "phoneNumber", REDACTED), addresses.get(0));
+        assertEquals(addresses.get(0), addresses.get(1));
+        assertEquals(1, redactor.getTruncatedBodyCount());
+    }
+
+    @Test
+    void testRedactBody_RecordsAndFinalFields() throws Exception {
+
+        Card card = new Card("Jane", "4111", new Address("NY", "New York", "555-1234"));
+        HttpLogMessage httpLogMessage = HttpLogMessage.builder().body(List.of(card, new Contact("John", "555-9876"))).build();
+
+        redactor.redactLogMessage(httpLogMessage);
+
+        List<Map<String, Object>> body = objectMapper.readValue(httpLogMessage.getBody().toString(), new TypeReference<List<Map<String, Object>>>() {});
+        assertEquals("Jane", body.get(0).get("holder"));
+        assertEquals(REDACTED, body.get(0).get("number"));
+        assertEquals(REDACTED, ((Map<?, ?>) body.get(0).get("billingAddress")).get("phoneNumber"));
+        assertEquals(Map.of("name", "John", "phoneNumber", REDACTED), body.get(1));
+
+        // Streaming, against the declared record type, @JsonProperty name of the component
+        byte[] json = objectMapper.writeValueAsBytes(card);
+        Card redacted = objectMapper.readValue(redactor.redactJson(json, 0, json.length, objectMapper.constructType(Card.class)), Card.class);
+        assertEquals("Jane", redacted.holder());
+        assertEquals(REDACTED, redacted.number());
+        assertEquals(REDACTED, redacted.billingAddress().getPhoneNumber());
+    }
+
+    @Test
+    void testRedactionPlan_ResolvedOncePerClass() {
+
+        RedactionPlan plan = RedactionPlan.of(Employee.class);
+
+        assertSame(plan, RedactionPlan.of(Employee.class), "Plan is expected to be cached per class");
+        assertEquals(5, plan.getFields().size());
+        assertEquals(7, RedactionPlan.of(Manager.class).getFields().size());
+        // Components in declaration order
+        assertEquals(List.of("holder", "number", "billingAddress"),
+                RedactionPlan.of(Card.class).getFields().stream().map(RedactionPlan.RedactableField::getName).toList());
+    }
+
+    // Stands for the redactor log-safe-redaction-processor generates for Address, counts its calls.
+    private static final class CountingAddressRedactor implements Redactor<Address> {
+
+        private int calls;
+
+        @Override
+        public Class<Address> getType() {
+            return Address.class;
+        }
+
+        @Override
+        public int getFieldCount() {
+            return 3;
+        }
+
+        @Override
+        public void redact(Address dto, Redactor.FieldSink sink) {
+            calls++;
+            sink.field("state", dto.getState(), false);
+            sink.field("city", dto.getCity(), false);
+            sink.field("phoneNumber", dto.getPhoneNumber(), true);
+        }
+    }
+
+    // Generated redactor whose getter throws part way through the object.
+    private static final class FailingAddressRedactor implements Redactor<Address> {
+
+        @Override
+        public Class<Address> getType() {
+            return Address.class;
+        }
+
+        @Override
+        public int getFieldCount() {
+            return 3;
+        }
+
+        @Override
+        public void redact(Address dto, Redactor.FieldSink sink) {
+            sink.field("state", dto.getState(), false);
+            throw new IllegalStateException("City is not loaded");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+
+import io.github.sasiperi.logsafe.testdto.Employee;
+
+class LogSafeJsonMapperTest {
+
+    @Test
+    void testReaderFor_SharedPerType() {
+
+        LogSafeJsonMapper jsonMapper = new LogSafeJsonMapper(new ObjectMapper());
+
+        assertSame(jsonMapper.readerFor(Employee.class), jsonMapper.readerFor(Employee.class));
+    }
+
+    @Test
+    void testLogMessage_WrittenWithApplicationMapperConfig() throws Exception {
+
+        ObjectMapper applicationMapper = new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+        LogSafeJsonMapper jsonMapper = new LogSafeJsonMapper(applicationMapper);
+
+        String logLine = jsonMapper.getLogMessageWriter().writeValueAsString(HttpLogMessage.builder().httpMethod("POST").remoteHost("localhost").build());
+
+        assertTrue(logLine.contains("\"http_method\":\"POST\""), logLine);
+        assertTrue(logLine.contains("\"remote_host\":\"localhost\""), logLine);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.method.HandlerMethod;
+
+import io.github.sasiperi.logsafe.config.LogSamplingConfig;
+
+class LogSamplerTest {
+
+    @Test
+    void testSample_AllWhenDisabled() throws Exception {
+
+        LogSampler logSampler = new LogSampler(new LogSamplingConfig());
+
+        assertTrue(logSampler.sample(handlerMethod("getEmployee")));
+        assertFalse(logSampler.isOutcomeLogged());
+        assertEquals(0, logSampler.getSampledCount());
+    }
+
+    @Test
+    void testSample_EndpointRateOverridesDefault() throws Exception {
+
+        LogSamplingConfig.Endpoint employees = new LogSamplingConfig.Endpoint();
+        employees.setRate(1.0);
+        LogSamplingConfig.Endpoint health = new LogSamplingConfig.Endpoint();
+        health.setRate(0.0);
+
+        LogSamplingConfig samplingConfig = new LogSamplingConfig();
+        samplingConfig.setEnabled(true);
+        samplingConfig.setRate(0.0);
+        samplingConfig.getEndpoints().put("/employees/**", employees);
+        samplingConfig.getEndpoints().put("LogSamplerTest#getHealth", health);
+
+        LogSampler logSampler = new LogSampler(samplingConfig);
+        logSampler.register(handlerMethod("getEmployee"), List.of("/employees/{id}"));
+
+        assertTrue(logSampler.sample(handlerMethod("getEmployee")));
+        // Not registered, resolved by handler name on first use
+        assertFalse(logSampler.sample(handlerMethod("getHealth")));
+        assertEquals(1, logSampler.getSampledCount());
+        assertEquals(1, logSampler.getSkippedCount());
+    }
+
+    @Test
+    void testTryAcquire_RateLimitedWithBurstOfOneSecond() {
+
+        LogSampler.EndpointSampler sampler = new LogSampler.EndpointSampler(1.0, 10);
+        long now = 5_000_000_000L;
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(sampler.tryAcquire(now), "Burst of rate-limit requests is expected to be sampled");
+        }
+        assertFalse(sampler.tryAcquire(now));
+        // A token every 100ms
+        assertFalse(sampler.tryAcquire(now + 50_000_000L));
+        assertTrue(sampler.tryAcquire(now + 100_000_000L));
+        assertFalse(sampler.tryAcquire(now + 100_000_000L));
+    }
+
+    @Test
+    void testAlwaysLogReason_ErrorsAndSlowRequests() {
+
+        LogSamplingConfig samplingConfig = new LogSamplingConfig();
+        samplingConfig.setEnabled(true);
+        samplingConfig.setSlowThreshold(Duration.ofMillis(500));
+        LogSampler logSampler = new LogSampler(samplingConfig);
+
+        assertTrue(logSampler.isOutcomeLogged());
+        assertEquals("error", logSampler.alwaysLogReason(true, 200, 0));
+        assertEquals("error", logSampler.alwaysLogReason(false, 503, 0));
+        assertEquals("slow", logSampler.alwaysLogReason(false, 200, Duration.ofSeconds(1).toNanos()));
+        assertNull(logSampler.alwaysLogReason(false, 404, Duration.ofMillis(10).toNanos()));
+        assertEquals(3, logSampler.getForcedCount());
+    }
+
+    private HandlerMethod handlerMethod(String name) throws NoSuchMethodException {
+        return new HandlerMethod(this, getClass().getDeclaredMethod(name));
+    }
+
+    public String getEmployee() {
+        return "employee";
+    }
+
+    public String getHealth() {
+        return "UP";
+    }
+}
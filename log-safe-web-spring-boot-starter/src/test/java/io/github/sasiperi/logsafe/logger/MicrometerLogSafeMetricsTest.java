@@ -0,0 +1,91 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.method.HandlerMethod;
+
+import io.github.sasiperi.logsafe.logger.LogSafeMetrics.Stage;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MicrometerLogSafeMetricsTest {
+
+    @Test
+    void testRecord_StageTimerTaggedByHandler() throws Exception {
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LogSafeMetrics metrics = new MicrometerLogSafeMetrics(registry);
+
+        metrics.record(Stage.REDACT, handlerMethod("getEmployee"), TimeUnit.MILLISECONDS.toNanos(2));
+        // A new HandlerMethod instance of the same method (as it is per request) records to the same timer.
+        metrics.stop(Stage.REDACT, handlerMethod("getEmployee"), metrics.start());
+        // Not resolved to a handler, not recorded.
+        metrics.record(Stage.REDACT, null, 1);
+
+        Timer timer = registry.get("logsafe.filter.stage")
+                .tag("stage", "redact")
+                .tag("handler", "MicrometerLogSafeMetricsTest#getEmployee")
+                .timer();
+        assertEquals(2, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.MILLISECONDS) >= 2);
+        assertEquals(0, registry.get("logsafe.filter.stage").tag("stage", "emit").timer().count());
+    }
+
+    @Test
+    void testRecordBytesCapturedAndErrors() throws Exception {
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LogSafeMetrics metrics = new MicrometerLogSafeMetrics(registry);
+
+        metrics.recordBytesCaptured(handlerMethod("getEmployee"), true, 120);
+        metrics.recordBytesCaptured(handlerMethod("getEmployee"), false, 80);
+        metrics.recordError("LG002-01");
+        metrics.recordError("LG002-01");
+        metrics.recordError("LG003-04");
+
+        DistributionSummary requestBytes = registry.get("logsafe.body.captured").tag("direction", "request").summary();
+        assertEquals(120, requestBytes.totalAmount());
+        assertEquals(80, registry.get("logsafe.body.captured").tag("direction", "response").summary().totalAmount());
+        assertEquals(2, registry.get("logsafe.errors").tag("code", "LG002-01").counter().count());
+        assertEquals(1, registry.get("logsafe.errors").tag("code", "LG003-04").counter().count());
+    }
+
+    @Test
+    void testNoop_DoesNotReadTheClock() throws Exception {
+
+        LogSafeMetrics metrics = LogSafeMetrics.NOOP;
+
+        assertFalse(metrics.isEnabled());
+        assertEquals(0L, metrics.start());
+        metrics.stop(Stage.FILTER, handlerMethod("getEmployee"), 0L);
+    }
+
+    private HandlerMethod handlerMethod(String name) throws NoSuchMethodException {
+        return new HandlerMethod(this, getClass().getDeclaredMethod(name));
+    }
+
+    public String getEmployee() {
+        return "employee";
+    }
+}
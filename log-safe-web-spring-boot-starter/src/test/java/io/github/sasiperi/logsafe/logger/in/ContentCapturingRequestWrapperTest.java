@@ -0,0 +1,88 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.in;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import io.github.sasiperi.logsafe.config.BodyBufferPoolConfig;
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+
+class ContentCapturingRequestWrapperTest {
+
+    private static final String BODY = "{\"firstName\":\"John\",\"ssn\":\"123-45-6789\"}";
+
+    private final BodyBufferPool bufferPool = new BodyBufferPool(new BodyBufferPoolConfig(), 1024);
+
+    @Test
+    void testGetInputStream_NothingCapturedUntilRead() throws IOException {
+
+        ContentCapturingRequestWrapper wrapper = new ContentCapturingRequestWrapper(jsonRequest(BODY), 1024, bufferPool);
+
+        // Not drained up front
+        assertEquals(0, wrapper.getCachedContentLength());
+
+        // Handler reads the body, it's captured as it goes through
+        assertArrayEquals(BODY.getBytes(StandardCharsets.UTF_8), wrapper.getInputStream().readAllBytes());
+        assertFalse(wrapper.isTruncated());
+        assertEquals(BODY.length(), wrapper.getCachedContentLength());
+        assertArrayEquals(BODY.getBytes(StandardCharsets.UTF_8), wrapper.getContentAsByteArray());
+
+        // Buffer goes back to the pool
+        wrapper.release();
+        assertEquals(1, bufferPool.getPooledCount());
+    }
+
+    @Test
+    void testGetReader_CapturedAndStreamNotAvailableAfter() throws IOException {
+
+        ContentCapturingRequestWrapper wrapper = new ContentCapturingRequestWrapper(jsonRequest(BODY), 1024, bufferPool);
+
+        assertEquals(BODY, wrapper.getReader().readLine());
+        assertArrayEquals(BODY.getBytes(StandardCharsets.UTF_8), wrapper.getContentAsByteArray());
+        assertThrows(IllegalStateException.class, wrapper::getInputStream);
+    }
+
+    @Test
+    void testGetInputStream_BodyLargerThanMaxIsTruncatedAndStillReadInFull() throws IOException {
+
+        ContentCapturingRequestWrapper wrapper = new ContentCapturingRequestWrapper(jsonRequest(BODY), 10, bufferPool);
+
+        // Handler gets the full body, only the first part is captured.
+        assertEquals(BODY, new String(wrapper.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        assertTrue(wrapper.isTruncated());
+        assertEquals(10, wrapper.getCachedContentLength());
+        assertArrayEquals(BODY.substring(0, 10).getBytes(StandardCharsets.UTF_8), wrapper.getContentAsByteArray());
+    }
+
+    private static MockHttpServletRequest jsonRequest(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/test");
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
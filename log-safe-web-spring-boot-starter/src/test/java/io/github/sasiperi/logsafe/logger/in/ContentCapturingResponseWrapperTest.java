@@ -0,0 +1,83 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.in;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.github.sasiperi.logsafe.config.BodyBufferPoolConfig;
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+
+class ContentCapturingResponseWrapperTest {
+
+    private static final String BODY = "{\"firstName\":\"John\",\"ssn\":\"123-45-6789\"}";
+
+    private final BodyBufferPool bufferPool = new BodyBufferPool(new BodyBufferPoolConfig(), 1024);
+
+    @Test
+    void testGetOutputStream_WrittenThroughAndCaptured() throws IOException {
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ContentCapturingResponseWrapper wrapper = new ContentCapturingResponseWrapper(response, 1024, bufferPool);
+
+        wrapper.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+
+        // Client has the content right away, not held until the request is done.
+        assertEquals(BODY, response.getContentAsString());
+        assertEquals(BODY, new String(wrapper.getContentAsByteArray(), StandardCharsets.UTF_8));
+        assertFalse(wrapper.isTruncated());
+
+        wrapper.release();
+        assertEquals(1, bufferPool.getPooledCount());
+    }
+
+    @Test
+    void testGetOutputStream_OnlyFirstMaxBytesCaptured() throws IOException {
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ContentCapturingResponseWrapper wrapper = new ContentCapturingResponseWrapper(response, 10, bufferPool);
+
+        wrapper.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8), 0, 8);
+        wrapper.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8), 8, BODY.length() - 8);
+
+        assertEquals(BODY, response.getContentAsString());
+        assertEquals(BODY.substring(0, 10), new String(wrapper.getContentAsByteArray(), StandardCharsets.UTF_8));
+        assertTrue(wrapper.isTruncated());
+    }
+
+    @Test
+    void testGetWriter_CapturedOnFlush() throws IOException {
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        ContentCapturingResponseWrapper wrapper = new ContentCapturingResponseWrapper(response, 1024, bufferPool);
+
+        PrintWriter writer = wrapper.getWriter();
+        writer.write(BODY);
+        wrapper.flushCapture();
+
+        assertEquals(BODY, response.getContentAsString());
+        assertEquals(BODY.length(), wrapper.getCapturedContentLength());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.in;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.method.HandlerMethod;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.sasiperi.logsafe.logger.LogSafeJsonMapper;
+import io.github.sasiperi.logsafe.logger.NoLogSafe;
+import io.github.sasiperi.logsafe.testdto.Employee;
+
+class HandlerLogMetadataCacheTest {
+
+    private HandlerLogMetadataCache metadataCache;
+
+    @BeforeEach
+    void setup() {
+        metadataCache = new HandlerLogMetadataCache(new LogSafeJsonMapper(new ObjectMapper()));
+    }
+
+    @Test
+    void testPrefill_ResolvesRequestAndResponseTypesOncePerMethod() throws Exception {
+
+        HandlerMethod createEmployees = handlerMethod("createEmployees", List.class);
+        HandlerMethod deleteEmployee = handlerMethod("deleteEmployee", String.class);
+
+        metadataCache.prefill(List.of(createEmployees, deleteEmployee));
+
+        assertEquals(2, metadataCache.size());
+
+        // A new HandlerMethod instance of the same method (as it is per request) hits the same entry.
+        HandlerLogMetadata metadata = metadataCache.get(handlerMethod("createEmployees", List.class));
+        assertSame(metadataCache.get(createEmployees), metadata);
+        assertEquals(2, metadataCache.size());
+
+        assertTrue(metadata.hasRequestBody());
+        assertEquals(List.class, metadata.getRequestBodyClass());
+        assertEquals(Employee.class, metadata.getRequestBodyType().getContentType().getRawClass());
+
+        // ResponseEntity<Employee> is unwrapped.
+        assertTrue(metadata.hasResponseBody());
+        assertEquals(Employee.class, metadata.getResponseBodyClass());
+    }
+
+    @Test
+    void testGet_NoBodyToLogForVoidHandlerWithoutRequestBody() throws Exception {
+
+        HandlerLogMetadata metadata = metadataCache.get(handlerMethod("deleteEmployee", String.class));
+
+        assertFalse(metadata.hasRequestBody());
+        assertFalse(metadata.hasResponseBody());
+        assertNull(metadata.getRequestBodyType());
+        assertNull(metadata.getResponseBodyClass());
+    }
+
+    @Test
+    void testGet_NoLogSafeOfControllerInheritingTheMapping() throws Exception {
+
+        Method getEmployee = BaseController.class.getDeclaredMethod("getEmployee", String.class);
+
+        HandlerLogMetadata logged = metadataCache.get(new HandlerMethod(new EmployeeController(), getEmployee));
+        HandlerLogMetadata notLogged = metadataCache.get(new HandlerMethod(new SecretController(), getEmployee));
+
+        // Same inherited method, resolved per controller.
+        assertFalse(logged.isNoLogSafe());
+        assertTrue(notLogged.isNoLogSafe());
+        assertEquals(2, metadataCache.size());
+    }
+
+    private HandlerMethod handlerMethod(String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return new HandlerMethod(this, getClass().getDeclaredMethod(name, parameterTypes));
+    }
+
+    public ResponseEntity<Employee> createEmployees(@RequestBody List<Employee> employees) {
+        return ResponseEntity.ok(employees.get(0));
+    }
+
+    public void deleteEmployee(String id) {
+    }
+
+    abstract static class BaseController {
+
+        public Employee getEmployee(String id) {
+            return null;
+        }
+    }
+
+    static class EmployeeController extends BaseController {
+    }
+
+    @NoLogSafe
+    static class SecretController extends BaseController {
+    }
+}
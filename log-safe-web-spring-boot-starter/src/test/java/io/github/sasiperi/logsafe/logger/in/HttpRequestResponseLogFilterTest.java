@@ -15,9 +15,13 @@
  */
 package io.github.sasiperi.logsafe.logger.in;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -25,10 +29,14 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
+import java.util.Map;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.system.CapturedOutput;
@@ -37,22 +45,45 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
-import org.springframework.web.util.ContentCachingResponseWrapper;
 
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import io.github.sasiperi.logsafe.config.BodyBufferPoolConfig;
+import io.github.sasiperi.logsafe.config.LogFilterRulesConfig;
+import io.github.sasiperi.logsafe.config.LogSamplingConfig;
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import io.github.sasiperi.logsafe.logger.LogFilterRules;
+import io.github.sasiperi.logsafe.logger.LogSampler;
+import io.github.sasiperi.logsafe.logger.NoLogSafe;
 import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 
 @ExtendWith({MockitoExtension.class, OutputCaptureExtension.class})
 class HttpRequestResponseLogFilterTest {
 
+    private static final int MAX_BODY_BYTES = 1024;
+
+    private final BodyBufferPool bufferPool = new BodyBufferPool(new BodyBufferPoolConfig(), MAX_BODY_BYTES);
+
+    // Sampling is off by default, that's every request is logged.
+    private final LogSampler logSampler = new LogSampler(new LogSamplingConfig());
+
+    // No include/exclude rules, that's every request is included.
+    private final LogFilterRules logRules = new LogFilterRules(new LogFilterRulesConfig());
+
     @Mock
     private RequestMappingHandlerMapping handlerMapping;
 
     @Mock
     private HttpLogFilterHelper logFilterHelper;
 
+    @Mock
+    private HandlerLogMetadataCache metadataCache;
+
     @Mock
     private FilterChain filterChain;
 
@@ -76,10 +107,11 @@ class HttpRequestResponseLogFilterTest {
     @Test
     void shouldLogRequestAndResponseWhenBothFlagsAreTrue() throws Exception { 
         // Arrange
-    	filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, true, true);
+    	filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, logSampler, logRules, true, true, MAX_BODY_BYTES, RequestCaptureMode.EAGER);
 
         when(handlerMapping.getHandler(request)).thenReturn(handlerChain);
         when(handlerChain.getHandler()).thenReturn(handlerMethod);
+        when(metadataCache.get(handlerMethod)).thenReturn(metadataOf("getEmployee"));
 
         // Act
         filter.doFilterInternal(request, response, filterChain);
@@ -97,15 +129,15 @@ class HttpRequestResponseLogFilterTest {
         assertTrue(requestCaptor.getValue() instanceof RepeatableContentCachingRequestWrapper);
 
         // Assert that the response was wrapped correctly
-        assertTrue(responseCaptor.getValue() instanceof ContentCachingResponseWrapper);
+        assertTrue(responseCaptor.getValue() instanceof ContentCapturingResponseWrapper);
         
-        verify(logFilterHelper).logResponse(any(ContentCachingResponseWrapper.class), eq(handlerMethod));
+        verify(logFilterHelper).logResponse(any(ContentCapturingResponseWrapper.class), eq(handlerMethod));
     }
 
     @Test
     void shouldNotLogWhenNoHandlerFound() throws Exception {
         // Arrange
-    	filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, true, true);
+    	filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, logSampler, logRules, true, true, MAX_BODY_BYTES, RequestCaptureMode.EAGER);
 
         when(handlerMapping.getHandler(request)).thenReturn(null);
 
@@ -124,10 +156,11 @@ class HttpRequestResponseLogFilterTest {
     @Test
     void shouldLogOnlyLogRequestWhenRequestFlagTrue() throws Exception {
         // Arrange
-        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, true, false);
+        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, logSampler, logRules, true, false, MAX_BODY_BYTES, RequestCaptureMode.EAGER);
 
         when(handlerMapping.getHandler(request)).thenReturn(handlerChain);
         when(handlerChain.getHandler()).thenReturn(handlerMethod);
+        when(metadataCache.get(handlerMethod)).thenReturn(metadataOf("getEmployee"));
 
         // Act
         filter.doFilterInternal(request, response, filterChain);
@@ -147,7 +180,7 @@ class HttpRequestResponseLogFilterTest {
     @Test
     void shouldNotLogAndProceedWhenExceptionInHandlerMappingOccuredAndErrorLG001Logged(CapturedOutput output) throws Exception {
         // Arrange
-    	filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, true, true);
+    	filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, logSampler, logRules, true, true, MAX_BODY_BYTES, RequestCaptureMode.EAGER);
 
         when(handlerMapping.getHandler(request)).thenThrow(new RuntimeException("Error"));
 
@@ -166,7 +199,7 @@ class HttpRequestResponseLogFilterTest {
     @Test
     void shouldNotLogRequestOrResponseWhenFlagsAreFalse() throws Exception {
         // Arrange
-        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, false, false);
+        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, logSampler, logRules, false, false, MAX_BODY_BYTES, RequestCaptureMode.EAGER);
         when(handlerMapping.getHandler(request)).thenReturn(handlerChain);
         when(handlerChain.getHandler()).thenReturn(handlerMethod);
 
@@ -181,10 +214,11 @@ class HttpRequestResponseLogFilterTest {
     @Test
     void shouldLogResponseLoggedAndBodyResetWhenResponseFlagTrue() throws Exception {
         // Arrange
-        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, false, true);
+        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, logSampler, logRules, false, true, MAX_BODY_BYTES, RequestCaptureMode.EAGER);
 
         when(handlerMapping.getHandler(request)).thenReturn(handlerChain);
         when(handlerChain.getHandler()).thenReturn(handlerMethod);
+        when(metadataCache.get(handlerMethod)).thenReturn(metadataOf("getEmployee"));
 
         MockHttpServletResponse responseWrapper = spy(new MockHttpServletResponse());
 
@@ -204,10 +238,10 @@ class HttpRequestResponseLogFilterTest {
         assertTrue(requestCaptor.getValue() instanceof RepeatableContentCachingRequestWrapper);
 
         // Assert that the response was wrapped correctly
-        assertTrue(responseCaptor.getValue() instanceof ContentCachingResponseWrapper);
+        assertTrue(responseCaptor.getValue() instanceof ContentCapturingResponseWrapper);
         
         //verify that the logResponse called once.
-        verify(logFilterHelper, times(1)).logResponse(any(ContentCachingResponseWrapper.class), eq(handlerMethod));
+        verify(logFilterHelper, times(1)).logResponse(any(ContentCapturingResponseWrapper.class), eq(handlerMethod));
         // Verify the response is not logged
         verify(logFilterHelper, never()).logRequest(any(), eq(handlerMethod));
         
@@ -215,4 +249,195 @@ class HttpRequestResponseLogFilterTest {
         // Verify the filter chain proceeds correctly
         verify(filterChain).doFilter(any(), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldLogRequestAfterChainWhenCapturedLazily() throws Exception {
+        // Arrange
+        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, logSampler, logRules, true, true, MAX_BODY_BYTES, RequestCaptureMode.LAZY);
+
+        when(handlerMapping.getHandler(request)).thenReturn(handlerChain);
+        when(handlerChain.getHandler()).thenReturn(handlerMethod);
+        when(metadataCache.get(handlerMethod)).thenReturn(metadataOf("getEmployee"));
+
+        // Act
+        filter.doFilterInternal(request, response, filterChain);
+
+        // Assert, chain starts right away with the tee wrappers, request is logged once it's handled
+        ArgumentCaptor<ServletRequest> requestCaptor = ArgumentCaptor.forClass(ServletRequest.class);
+        ArgumentCaptor<ServletResponse> responseCaptor = ArgumentCaptor.forClass(ServletResponse.class);
+        InOrder inOrder = inOrder(filterChain, logFilterHelper);
+        inOrder.verify(filterChain).doFilter(requestCaptor.capture(), responseCaptor.capture());
+        inOrder.verify(logFilterHelper).logCapturedRequest(any(ContentCapturingRequestWrapper.class), eq(handlerMethod));
+        inOrder.verify(logFilterHelper).logResponse(any(ContentCapturingResponseWrapper.class), eq(handlerMethod));
+
+        assertTrue(requestCaptor.getValue() instanceof ContentCapturingRequestWrapper);
+        assertTrue(responseCaptor.getValue() instanceof ContentCapturingResponseWrapper);
+    }
+
+    @Test
+    void shouldReleaseBuffersWhenAsyncRequestCompletes() throws Exception {
+        // Arrange
+        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, logSampler, logRules, true, true, MAX_BODY_BYTES, RequestCaptureMode.EAGER);
+
+        when(handlerMapping.getHandler(request)).thenReturn(handlerChain);
+        when(handlerChain.getHandler()).thenReturn(handlerMethod);
+        when(metadataCache.get(handlerMethod)).thenReturn(metadataOf("getEmployee"));
+        request.setAsyncSupported(true);
+        request.setContent("{\"name\":\"John\"}".getBytes());
+        // Handler continues async (e.g. DeferredResult), response is written after the filter returns.
+        doAnswer(invocation -> {
+            ((ServletRequest) invocation.getArgument(0)).startAsync();
+            return null;
+        }).when(filterChain).doFilter(any(), any());
+
+        // Act
+        filter.doFilterInternal(request, response, filterChain);
+
+        // Assert, buffers are in use until the async processing completes, then back in the pool.
+        assertEquals(0, bufferPool.getPooledCount());
+        request.getAsyncContext().complete();
+        assertEquals(1, bufferPool.getPooledCount());
+    }
+
+    @Test
+    void shouldFlushPartialResponseWhenChainThrows() throws Exception {
+        assertPartialResponseFlushedWhenChainThrows(RequestCaptureMode.EAGER);
+    }
+
+    @Test
+    void shouldFlushPartialResponseWhenChainThrowsCapturedLazily() throws Exception {
+        assertPartialResponseFlushedWhenChainThrows(RequestCaptureMode.LAZY);
+    }
+
+    private void assertPartialResponseFlushedWhenChainThrows(RequestCaptureMode requestCapture) throws Exception {
+        // Arrange
+        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, logSampler, logRules, true, true, MAX_BODY_BYTES, requestCapture);
+
+        when(handlerMapping.getHandler(request)).thenReturn(handlerChain);
+        when(handlerChain.getHandler()).thenReturn(handlerMethod);
+        when(metadataCache.get(handlerMethod)).thenReturn(metadataOf("getEmployee"));
+        // Handler writes part of the body through the writer (buffered, not flushed), then fails.
+        doAnswer(invocation -> {
+            ((ServletResponse) invocation.getArgument(1)).getWriter().write("{\"name\":");
+            throw new ServletException("handler failed");
+        }).when(filterChain).doFilter(any(), any());
+
+        // Act
+        assertThrows(ServletException.class, () -> filter.doFilterInternal(request, response, filterChain));
+
+        // Assert, partial body reached the client before the buffers went back to the pool.
+        assertEquals("{\"name\":", response.getContentAsString());
+        assertTrue(bufferPool.getPooledCount() > 0);
+        verify(logFilterHelper, never()).logResponse(any(), any());
+    }
+
+    @Test
+    void shouldPrefillHandlerMetadataOnInit() throws Exception {
+        // Arrange
+        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, logSampler, logRules, true, false, MAX_BODY_BYTES, RequestCaptureMode.EAGER);
+
+        Map<RequestMappingInfo, HandlerMethod> handlerMethods = Map.of(RequestMappingInfo.paths("/employees").build(), handlerMethod);
+        when(handlerMapping.getHandlerMethods()).thenReturn(handlerMethods);
+
+        // Act
+        filter.afterPropertiesSet();
+
+        // Assert
+        verify(metadataCache).prefill(handlerMethods.values());
+        verifyNoInteractions(logFilterHelper);
+    }
+
+    @Test
+    void shouldNotWrapOrLogWhenNotSampled() throws Exception {
+        // Arrange
+        LogSamplingConfig samplingConfig = new LogSamplingConfig();
+        samplingConfig.setEnabled(true);
+        samplingConfig.setRate(0.0);
+        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, new LogSampler(samplingConfig), logRules, true, true, MAX_BODY_BYTES, RequestCaptureMode.EAGER);
+
+        HandlerMethod employeeHandler = new HandlerMethod(this, getClass().getDeclaredMethod("getEmployee"));
+        when(handlerMapping.getHandler(request)).thenReturn(handlerChain);
+        when(handlerChain.getHandler()).thenReturn(employeeHandler);
+        when(metadataCache.get(employeeHandler)).thenReturn(metadataOf("getEmployee"));
+
+        // Act
+        filter.doFilterInternal(request, response, filterChain);
+
+        // Assert, passed on as is
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(logFilterHelper);
+    }
+
+    @Test
+    void shouldLogOutcomeWhenNotSampledButFailed() throws Exception {
+        // Arrange
+        LogSamplingConfig samplingConfig = new LogSamplingConfig();
+        samplingConfig.setEnabled(true);
+        samplingConfig.setRate(0.0);
+        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, new LogSampler(samplingConfig), logRules, true, true, MAX_BODY_BYTES, RequestCaptureMode.EAGER);
+
+        HandlerMethod employeeHandler = new HandlerMethod(this, getClass().getDeclaredMethod("getEmployee"));
+        when(handlerMapping.getHandler(request)).thenReturn(handlerChain);
+        when(handlerChain.getHandler()).thenReturn(employeeHandler);
+        when(metadataCache.get(employeeHandler)).thenReturn(metadataOf("getEmployee"));
+        response.setStatus(500);
+
+        // Act
+        filter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        verify(filterChain).doFilter(request, response);
+        verify(logFilterHelper).logOutcome(request, response, employeeHandler, "error", true, true);
+        verify(logFilterHelper, never()).logRequest(any(), any());
+    }
+
+    @Test
+    void shouldPassOnAsIsWhenHandlerIsNoLogSafe() throws Exception {
+        // Arrange
+        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, logSampler, logRules, true, true, MAX_BODY_BYTES, RequestCaptureMode.EAGER);
+
+        when(handlerMapping.getHandler(request)).thenReturn(handlerChain);
+        when(handlerChain.getHandler()).thenReturn(handlerMethod);
+        when(metadataCache.get(handlerMethod)).thenReturn(metadataOf("getSecret"));
+
+        // Act
+        filter.doFilterInternal(request, response, filterChain);
+
+        // Assert, not wrapped
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(logFilterHelper);
+    }
+
+    @Test
+    void shouldPassOnAsIsWhenPathIsExcluded() throws Exception {
+        // Arrange
+        LogFilterRulesConfig rulesConfig = new LogFilterRulesConfig();
+        rulesConfig.setExcludePaths(List.of("/health/**"));
+        filter = new HttpRequestResponseLogFilter(handlerMapping, logFilterHelper, metadataCache, bufferPool, logSampler,
+                new LogFilterRules(rulesConfig), true, true, MAX_BODY_BYTES, RequestCaptureMode.EAGER);
+
+        request.setRequestURI("/health/live");
+        when(handlerMapping.getHandler(request)).thenReturn(handlerChain);
+        when(handlerChain.getHandler()).thenReturn(handlerMethod);
+
+        // Act
+        filter.doFilterInternal(request, response, filterChain);
+
+        // Assert, not wrapped, and the handler metadata is not even looked up
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(logFilterHelper, metadataCache);
+    }
+
+    private HandlerLogMetadata metadataOf(String methodName) throws NoSuchMethodException {
+        return new HandlerLogMetadata(getClass().getDeclaredMethod(methodName), getClass(), TypeFactory.defaultInstance());
+    }
+
+    public String getEmployee() {
+        return "employee";
+    }
+
+    @NoLogSafe
+    public String getSecret() {
+        return "secret";
+    }
+}
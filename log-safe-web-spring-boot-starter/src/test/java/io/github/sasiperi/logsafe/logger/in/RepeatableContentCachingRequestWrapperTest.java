@@ -0,0 +1,168 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.in;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import io.github.sasiperi.logsafe.config.BodyBufferPoolConfig;
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+
+class RepeatableContentCachingRequestWrapperTest {
+
+    private static final String BODY = "{\"firstName\":\"John\",\"ssn\":\"123-45-6789\"}";
+
+    private final BodyBufferPool bufferPool = new BodyBufferPool(new BodyBufferPoolConfig(), 1024);
+
+    @Test
+    void testGetInputStream_RepeatableViewsOfCachedBody() throws IOException {
+
+        RepeatableContentCachingRequestWrapper wrapper = new RepeatableContentCachingRequestWrapper(jsonRequest(BODY), 1024, bufferPool);
+
+        assertFalse(wrapper.isTruncated());
+        assertEquals(BODY.length(), wrapper.getCachedContentLength());
+
+        // Bulk read
+        ServletInputStream in = wrapper.getInputStream();
+        assertEquals(BODY.length(), in.available());
+        byte[] read = new byte[64];
+        assertEquals(BODY.length(), in.read(read, 0, read.length));
+        assertEquals(-1, in.read(read, 0, read.length));
+        assertTrue(in.isFinished());
+
+        // Each stream is a new view of the same buffer
+        assertArrayEquals(BODY.getBytes(StandardCharsets.UTF_8), wrapper.getInputStream().readAllBytes());
+        assertEquals(BODY, wrapper.getReader().readLine());
+        assertArrayEquals(BODY.getBytes(StandardCharsets.UTF_8), wrapper.getContentAsByteArray());
+
+        // Buffer goes back to the pool, and is reused by the next request. A stream still held fails, it does not read the next body.
+        ServletInputStream held = wrapper.getInputStream();
+        wrapper.release();
+        assertThrows(IOException.class, held::read);
+        assertTrue(held.isFinished());
+        assertEquals(1, bufferPool.getPooledCount());
+        new RepeatableContentCachingRequestWrapper(jsonRequest(BODY), 1024, bufferPool);
+        assertEquals(1, bufferPool.getHitCount());
+    }
+
+    @Test
+    void testGetInputStream_BodyLargerThanMaxIsTruncatedAndRestStreamed() throws IOException {
+
+        RepeatableContentCachingRequestWrapper wrapper = new RepeatableContentCachingRequestWrapper(jsonRequest(BODY), 10, bufferPool);
+
+        assertTrue(wrapper.isTruncated());
+        assertEquals(10, wrapper.getCachedContentLength());
+        assertArrayEquals(BODY.substring(0, 10).getBytes(StandardCharsets.UTF_8), wrapper.getContentAsByteArray());
+
+        // Controller still gets the full body, cached part first and then the rest of the original stream.
+        assertEquals(BODY, new String(wrapper.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testConstructor_FormPostParametersStillAvailable() throws IOException {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/test");
+        request.setContentType(MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+        request.addParameter("name", "John");
+
+        RepeatableContentCachingRequestWrapper wrapper = new RepeatableContentCachingRequestWrapper(request, 1024, bufferPool);
+
+        assertEquals("John", wrapper.getParameter("name"));
+        assertEquals(0, wrapper.getCachedContentLength());
+    }
+
+    @Test
+    void testConstructor_FormPostContentTypeMatchedIgnoringCase() throws IOException {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/test");
+        request.setContentType("Application/X-WWW-Form-Urlencoded; charset=UTF-8");
+        request.setContent("name=John".getBytes(StandardCharsets.UTF_8));
+        request.addParameter("name", "John");
+
+        RepeatableContentCachingRequestWrapper wrapper = new RepeatableContentCachingRequestWrapper(request, 1024, bufferPool);
+
+        assertEquals("John", wrapper.getParameter("name"));
+        assertEquals(0, wrapper.getCachedContentLength());
+    }
+
+    @Test
+    void testConstructor_ReadFailureReleasesBufferToPool() {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/test") {
+            @Override
+            public ServletInputStream getInputStream() {
+                return new ServletInputStream() {
+                    private boolean aborted;
+
+                    @Override
+                    public int read() throws IOException {
+                        return read(new byte[1], 0, 1);
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        // Client aborts after the first few bytes
+                        if (aborted) {
+                            throw new IOException("Connection reset");
+                        }
+                        aborted = true;
+                        Arrays.fill(b, off, off + 5, (byte) 'a');
+                        return 5;
+                    }
+
+                    @Override
+                    public boolean isFinished() {
+                        return false;
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setReadListener(ReadListener readListener) {
+                    }
+                };
+            }
+        };
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        assertThrows(IOException.class, () -> new RepeatableContentCachingRequestWrapper(request, 1024, bufferPool));
+        assertEquals(1, bufferPool.getPooledCount());
+    }
+
+    private static MockHttpServletRequest jsonRequest(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/test");
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
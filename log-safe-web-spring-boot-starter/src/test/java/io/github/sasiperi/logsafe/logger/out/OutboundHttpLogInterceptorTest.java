@@ -0,0 +1,220 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.logger.out;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.github.sasiperi.logsafe.config.AsyncLogConfig;
+import io.github.sasiperi.logsafe.config.BodyBufferPoolConfig;
+import io.github.sasiperi.logsafe.config.OutboundLogConfig;
+import io.github.sasiperi.logsafe.config.SensitiveDataConfig;
+import io.github.sasiperi.logsafe.logger.AsyncLogEmitter;
+import io.github.sasiperi.logsafe.logger.BodyBufferPool;
+import io.github.sasiperi.logsafe.logger.LogEmissionMode;
+import io.github.sasiperi.logsafe.logger.LogEventWriter;
+import io.github.sasiperi.logsafe.logger.LogMessageRedactor;
+import io.github.sasiperi.logsafe.logger.LogSafeJsonMapper;
+
+class OutboundHttpLogInterceptorTest {
+
+    private static final int MAX_BODY_BYTES = 1024;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String RESPONSE_BODY = "{\"firstName\":\"John\",\"ssn\":\"123-45-6789\"}";
+
+    private final Logger log = (Logger) LoggerFactory.getLogger(OutboundLogHelper.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private SensitiveDataConfig sensitiveData;
+    private OutboundLogHelper logHelper;
+    private AsyncLogEmitter logEmitter;
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    void setUp() {
+        sensitiveData = new SensitiveDataConfig();
+        sensitiveData.setJsonFields(List.of("password", "ssn"));
+        appender.start();
+        log.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        log.detachAppender(appender);
+    }
+
+    private void setUpClient(int maxBodyBytes) {
+
+        LogSafeJsonMapper jsonMapper = new LogSafeJsonMapper(objectMapper);
+        LogMessageRedactor redactor = new LogMessageRedactor("io.github.sasiperi.logsafe", sensitiveData, jsonMapper);
+        // Async emission is not enabled, outbound events are still logged by the emitter workers.
+        logEmitter = new AsyncLogEmitter(new AsyncLogConfig());
+        logHelper = new OutboundLogHelper(redactor, new LogEventWriter(LogEmissionMode.MESSAGE, jsonMapper), new BodyBufferPool(new BodyBufferPoolConfig(), maxBodyBytes),
+                logEmitter, new OutboundLogConfig(), maxBodyBytes);
+
+        restTemplate = new RestTemplate();
+        new OutboundHttpLogInterceptor(logHelper).customize(restTemplate);
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+    }
+
+    private Map<?, ?> exchange() {
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth("blahblah");
+
+        Map<?, ?> response = restTemplate.exchange("http://localhost/employees?token=abc&page=1", HttpMethod.POST,
+                new HttpEntity<>(Map.of("firstName", "John", "password", "secret"), headers), Map.class).getBody();
+
+        server.verify();
+        // Waits for the emitter workers to log the events.
+        logEmitter.destroy();
+        return response;
+    }
+
+    private void expectPost() {
+        server.expect(requestTo("http://localhost/employees?token=abc&page=1"))
+              .andExpect(method(HttpMethod.POST))
+              .andExpect(content().json("{\"firstName\":\"John\",\"password\":\"secret\"}"))
+              .andRespond(withSuccess(RESPONSE_BODY, MediaType.APPLICATION_JSON));
+    }
+
+    private JsonNode loggedMessage(int index, String event) throws Exception {
+
+        String message = appender.list.get(index).getFormattedMessage();
+        assertTrue(message.startsWith(event + ": "), message);
+        return objectMapper.readTree(message.substring(event.length() + 2));
+    }
+
+    @Test
+    void testIntercept_RequestAndResponseLoggedRedacted() throws Exception {
+
+        setUpClient(MAX_BODY_BYTES);
+        expectPost();
+
+        Map<?, ?> response = exchange();
+
+        // Caller still gets the body as sent, only the logged copy is redacted.
+        assertEquals("123-45-6789", response.get("ssn"));
+        assertEquals(2, appender.list.size());
+
+        JsonNode request = loggedMessage(0, "OUTBOUND REQUEST DATA");
+        assertEquals("POST", request.get("httpMethod").asText());
+        assertEquals("http://localhost/employees", request.get("uri").asText());
+        assertEquals("[REDACTED]", request.get("headers").get("Authorization").asText());
+        assertEquals("[REDACTED]", request.get("requestParams").get("token").asText());
+        assertEquals("1", request.get("requestParams").get("page").asText());
+        JsonNode requestBody = objectMapper.readTree(request.get("body").asText());
+        assertEquals("John", requestBody.get("firstName").asText());
+        assertEquals("[REDACTED]", requestBody.get("password").asText());
+
+        JsonNode responseMessage = loggedMessage(1, "OUTBOUND RESPONSE DATA");
+        assertEquals(200, responseMessage.get("status").asInt());
+        JsonNode responseBody = objectMapper.readTree(responseMessage.get("body").asText());
+        assertEquals("John", responseBody.get("firstName").asText());
+        assertEquals("[REDACTED]", responseBody.get("ssn").asText());
+    }
+
+    @Test
+    void testIntercept_BodyNotLoggedWithoutJsonRules() throws Exception {
+
+        sensitiveData.setJsonFields(List.of());
+        setUpClient(MAX_BODY_BYTES);
+        expectPost();
+
+        exchange();
+
+        assertEquals(2, appender.list.size());
+        for (ILoggingEvent event : appender.list) {
+            String message = event.getFormattedMessage();
+            assertFalse(message.contains("secret"), message);
+            assertFalse(message.contains("123-45-6789"), message);
+            assertFalse(message.contains("\"body\""), message);
+        }
+    }
+
+    @Test
+    void testIntercept_BodyLargerThanMaxBodyBytesNotLogged() throws Exception {
+
+        setUpClient(16);
+        expectPost();
+
+        Map<?, ?> response = exchange();
+
+        assertEquals("123-45-6789", response.get("ssn"));
+        List<String> messages = appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+        assertTrue(messages.stream().anyMatch(message -> message.startsWith("LG006-02")), messages.toString());
+        assertTrue(messages.stream().noneMatch(message -> message.contains("\"body\"")), messages.toString());
+    }
+
+    @Test
+    void testIntercept_MalformedContentTypeDoesNotFailCall() throws Exception {
+
+        setUpClient(MAX_BODY_BYTES);
+        OutboundHttpLogInterceptor interceptor = new OutboundHttpLogInterceptor(logHelper);
+
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, URI.create("http://localhost/employees"));
+        request.getHeaders().set(HttpHeaders.CONTENT_TYPE, "not a media type");
+        MockClientHttpResponse serverResponse = new MockClientHttpResponse(RESPONSE_BODY.getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+        serverResponse.getHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json;;;=");
+
+        byte[] body = "{\"password\":\"secret\"}".getBytes(StandardCharsets.UTF_8);
+        try (ClientHttpResponse response = interceptor.intercept(request, body, (sent, sentBody) -> serverResponse)) {
+            // Caller gets the response as is, only the bodies are not logged.
+            assertEquals(RESPONSE_BODY, new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8));
+        }
+        logEmitter.destroy();
+
+        assertEquals(2, appender.list.size());
+        for (ILoggingEvent event : appender.list) {
+            String message = event.getFormattedMessage();
+            assertFalse(message.contains("\"body\""), message);
+            assertFalse(message.contains("secret"), message);
+        }
+    }
+}
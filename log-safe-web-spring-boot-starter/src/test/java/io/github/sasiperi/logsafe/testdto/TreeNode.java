@@ -0,0 +1,42 @@
+/*
+ * Copyright [2024] [author: Sasi Peri] [company: FourthQuest]
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package io.github.sasiperi.logsafe.testdto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Bi-directional relationship, to test the cycles are cut. No @Data, as equals/hashCode/toString would recurse too.
+@Getter
+@Setter
+public class TreeNode {
+
+    private String name;
+    private TreeNode parent;
+    private List<TreeNode> children = new ArrayList<>();
+
+    public TreeNode(String name) {
+        this.name = name;
+    }
+
+    public TreeNode addChild(TreeNode child) {
+        child.setParent(this);
+        children.add(child);
+        return child;
+    }
+}